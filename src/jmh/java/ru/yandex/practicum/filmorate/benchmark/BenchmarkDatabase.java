@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Встроенная H2 в памяти со схемой приложения и синтетическими данными заданного размера.
+// Миграции применяются до справочников включительно (V4), без демонстрационных данных (V5);
+// последовательности журналов изменений (V6) создаются тем же файлом миграции
+final class BenchmarkDatabase implements AutoCloseable {
+
+    static final int MPA_COUNT = 5;
+    static final int GENRE_COUNT = 6;
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random = new Random(42);
+
+    BenchmarkDatabase() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:benchmark" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setMaximumPoolSize(16);
+        Flyway.configure().dataSource(dataSource).target("4").load().migrate();
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V6__change_log_sequences.sql"))
+                .execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    // Фильмы с двумя жанрами каждый; id идут подряд с 1
+    void seedFilms(int count) {
+        List<Object[]> films = new ArrayList<>(count);
+        List<Object[]> genres = new ArrayList<>(count * 2);
+        for (int id = 1; id <= count; id++) {
+            films.add(new Object[]{"Film " + id, "Description for film " + id,
+                    Date.valueOf(LocalDate.of(1950 + id % 70, 1 + id % 12, 1 + id % 28)),
+                    90 + id % 60, 1 + id % MPA_COUNT});
+            int genre = 1 + id % GENRE_COUNT;
+            genres.add(new Object[]{id, genre});
+            genres.add(new Object[]{id, 1 + genre % GENRE_COUNT});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO films (name, description, release_date, duration, mpa_id) " +
+                "VALUES (?, ?, ?, ?, ?)", films);
+        jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genres);
+    }
+
+    // Пользователи с id от 1 до count
+    void seedUsers(int count) {
+        List<Object[]> users = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            users.add(new Object[]{"User " + id, "user" + id + "@example.com", "user" + id,
+                    Date.valueOf(LocalDate.of(1970 + id % 40, 1, 1))});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (name, email, login, birthday) VALUES (?, ?, ?, ?)", users);
+    }
+
+    // Каждый пользователь дружит с friendsPerUser случайными другими
+    void seedFriendships(int users, int friendsPerUser) {
+        List<Object[]> edges = new ArrayList<>(users * friendsPerUser);
+        for (int id = 1; id <= users; id++) {
+            int userId = id;
+            random.ints(1, users + 1)
+                    .filter(friendId -> friendId != userId)
+                    .distinct()
+                    .limit(Math.min(friendsPerUser, users - 1))
+                    .forEach(friendId -> edges.add(new Object[]{userId, friendId}));
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)", edges);
+    }
+
+    // Каждому фильму до maxLikesPerFilm лайков от случайных пользователей
+    void seedLikes(int films, int users, int maxLikesPerFilm) {
+        List<Object[]> likes = new ArrayList<>();
+        List<Object[]> counters = new ArrayList<>(films);
+        for (int filmId = 1; filmId <= films; filmId++) {
+            int filmLikes = random.nextInt(Math.min(maxLikesPerFilm, users) + 1);
+            int film = filmId;
+            random.ints(1, users + 1)
+                    .distinct()
+                    .limit(filmLikes)
+                    .forEach(userId -> likes.add(new Object[]{film, userId}));
+            counters.add(new Object[]{filmLikes, filmId});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", likes);
+        jdbcTemplate.batchUpdate("UPDATE films SET likes_count = ? WHERE id = ?", counters);
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.filmorate.dao.ChangeLogFactory;
+import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.UserDbStorage;
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Старт индексов: рейтинг фильмов и граф дружбы из таблиц (tables) и из журнала изменений (changelog),
+// а также цена одной записи в журнал
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ChangeLogBenchmark {
+
+    @Param({"10000"})
+    private int films;
+
+    @Param({"20"})
+    private int friendsPerUser;
+
+    private BenchmarkDatabase database;
+    private Path directory;
+    private ChangeLogFactory changeLogs;
+    private ChangeLog appendLog;
+    private byte[] record;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        database = new BenchmarkDatabase();
+        database.seedFilms(films);
+        database.seedUsers(films);
+        database.seedFriendships(films, friendsPerUser);
+        database.seedLikes(films, films, 20);
+
+        directory = Files.createTempDirectory("changelog-benchmark");
+        changeLogs = new ChangeLogFactory(true, directory.toString(), 16 << 20, 4);
+        // Первый старт пишет контрольные точки из таблиц; дальше индексы восстанавливаются из них
+        filmStorage().flushLikes();
+        userStorage().closeChangeLog();
+
+        // Сжатие свернёт записи в одну: пишется сдвиг лайков одного фильма
+        appendLog = new ChangeLog(directory.resolve("append"), 16 << 20, 4, Sum::new);
+        record = ByteBuffer.allocate(9).put((byte) 3).putInt(1).putInt(1).array();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        appendLog.close();
+        database.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int popularityFromTables() {
+        FilmDbStorage storage = new FilmDbStorage(database.getJdbcTemplate());
+        storage.loadPopularityIndex();
+        return storage.getPopularFilmIds(1).size();
+    }
+
+    @Benchmark
+    public int popularityFromChangeLog() {
+        FilmDbStorage storage = filmStorage();
+        storage.flushLikes();
+        return storage.getPopularFilmIds(1).size();
+    }
+
+    @Benchmark
+    public int friendGraphFromTables() {
+        UserDbStorage storage = new UserDbStorage(database.getJdbcTemplate());
+        storage.loadFriendGraph();
+        return storage.getCommonFriends(1, 2).size();
+    }
+
+    @Benchmark
+    public int friendGraphFromChangeLog() {
+        UserDbStorage storage = userStorage();
+        storage.closeChangeLog();
+        return storage.getCommonFriends(1, 2).size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void append() {
+        appendLog.append(record);
+    }
+
+    private FilmDbStorage filmStorage() {
+        FilmDbStorage storage = new FilmDbStorage(database.getJdbcTemplate(), null, changeLogs,
+                false, 500, 10_000, 100);
+        storage.loadPopularityIndex();
+        return storage;
+    }
+
+    private UserDbStorage userStorage() {
+        UserDbStorage storage = new UserDbStorage(database.getJdbcTemplate(), changeLogs);
+        storage.loadFriendGraph();
+        return storage;
+    }
+
+    private static class Sum implements ChangeLog.State {
+        private long likes;
+
+        @Override
+        public void apply(ByteBuffer record) {
+            likes += record.getInt(5);
+        }
+
+        @Override
+        public void writeTo(Consumer<byte[]> out) {
+            out.accept(ByteBuffer.allocate(9).put((byte) 3).putInt(1).putInt((int) likes).array());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Поиск по синтетическому каталогу: название из 3 слов и описание из 12 слов словаря.
+// linearScan — то же, что LIKE '%q%': проверка подстроки в каждом фильме, для сравнения
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class FilmSearchBenchmark {
+
+    private static final String[] SYLLABLES = {"ка", "ро", "ми", "то", "ла", "не", "су", "да", "ви", "го",
+            "ре", "ну", "па", "ли", "зо", "бе", "ты", "ша", "мо", "ки"};
+
+    @Param({"1000000"})
+    private int films;
+
+    @Param({"20000"})
+    private int words;
+
+    private String[] dictionary;
+    private String[] texts;
+    private FilmSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        dictionary = new String[words];
+        for (int i = 0; i < words; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 0; s < 2 + i % 3; s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            dictionary[i] = word.toString();
+        }
+        index = new FilmSearchIndex();
+        texts = new String[films + 1];
+        for (int filmId = 1; filmId <= films; filmId++) {
+            String name = phrase(random, 3);
+            String description = phrase(random, 12);
+            index.put(filmId, name, description);
+            texts[filmId] = name + " " + description;
+        }
+    }
+
+    @Benchmark
+    public int[] searchWord() {
+        return index.search(randomWord(), 10);
+    }
+
+    // Начало слова, как при наборе: «кар» из «кароми»
+    @Benchmark
+    public int[] searchTypedPrefix() {
+        return index.search(randomWord().substring(0, 3), 10);
+    }
+
+    @Benchmark
+    public int[] searchTwoWords() {
+        return index.search(randomWord() + " " + randomWord(), 10);
+    }
+
+    @Benchmark
+    public void updateFilm() {
+        Random random = ThreadLocalRandom.current();
+        index.put(1 + random.nextInt(films), phrase(random, 3), phrase(random, 12));
+    }
+
+    @Benchmark
+    public int linearScan() {
+        String query = randomWord();
+        int found = 0;
+        for (int filmId = 1; filmId <= films; filmId++) {
+            if (texts[filmId].contains(query)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private String randomWord() {
+        return dictionary[ThreadLocalRandom.current().nextInt(words)];
+    }
+
+    private String phrase(Random random, int length) {
+        StringBuilder phrase = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                phrase.append(' ');
+            }
+            phrase.append(dictionary[random.nextInt(words)]);
+        }
+        return phrase.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.FriendSuggestions;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Рекомендации друзей на синтетическом графе: users × friendsPerUser рёбер (по умолчанию 1M).
+// Степени распределены неравномерно: каждый сотый пользователь — «популярный» с fan-out в 50 раз больше
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class FriendSuggestionBenchmark {
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"10"})
+    private int friendsPerUser;
+
+    @Param({"200"})
+    private int fanOut;
+
+    private FriendGraph graph;
+    private FriendSuggestions suggestions;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graph = new FriendGraph();
+        Random random = new Random(42);
+        for (int userId = 1; userId <= users; userId++) {
+            int degree = userId % 100 == 0 ? friendsPerUser * 50 : friendsPerUser;
+            int self = userId;
+            int[] friends = random.ints(1, users + 1)
+                    .filter(id -> id != self)
+                    .distinct()
+                    .limit(degree)
+                    .sorted()
+                    .toArray();
+            graph.putFriends(userId, friends);
+        }
+        suggestions = new FriendSuggestions(graph, fanOut, 100, users);
+    }
+
+    @Benchmark
+    public int[] rankUncached() {
+        return suggestions.rank(randomUser());
+    }
+
+    @Benchmark
+    public int[] suggestCached() {
+        return suggestions.suggest(randomUser(), 10);
+    }
+
+    // Ребро меняется и тут же возвращается: инвалидация вместе с пересчётом
+    @Benchmark
+    public int[] suggestAfterFriendshipChange() {
+        int userId = randomUser();
+        int[] friends = graph.friends(userId);
+        if (friends.length > 0) {
+            int friendId = friends[0];
+            graph.removeEdge(userId, friendId);
+            suggestions.invalidate(userId);
+            graph.addEdge(userId, friendId);
+            suggestions.invalidate(userId);
+        }
+        return suggestions.suggest(userId, 10);
+    }
+
+    private int randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Масштабирование лайков InMemoryFilmStorage по ядрам: один поток против потока на ядро.
+// Каждый поток лайкает свой фильм, чтобы мерить хранилище, а не спор за один фильм
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class InMemoryLikeBenchmark {
+
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage();
+    private final AtomicInteger nextFilm = new AtomicInteger(1);
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120);
+            storage.addFilm(film);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Liker {
+        private int filmId;
+        private int userId;
+
+        @Setup
+        public void setup(InMemoryLikeBenchmark benchmark) {
+            filmId = benchmark.nextFilm.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean likeSingleThread(Liker liker) {
+        return storage.addLike(liker.filmId, liker.userId++);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean likeThreadPerCore(Liker liker) {
+        return storage.addLike(liker.filmId, liker.userId++);
+    }
+}
@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Лайки фильма: HashSet<Integer> и конкурентный набор против IntSet.
+// Занимаемая память печатается при подготовке (JOL), скорость членства и пересечения меряет JMH.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class IntSetBenchmark {
+
+    @Param({"1000", "1000000"})
+    private int likes;
+
+    private Set<Integer> hashSet;
+    private IntSet intSet;
+    private Set<Integer> otherHashSet;
+    private IntSet otherIntSet;
+    private int probe;
+
+    @Setup
+    public void setup() {
+        hashSet = new HashSet<>();
+        Set<Integer> concurrentSet = ConcurrentHashMap.newKeySet();
+        intSet = new IntSet();
+        otherHashSet = new HashSet<>();
+        otherIntSet = new IntSet();
+        for (int userId = 1; userId <= likes; userId++) {
+            hashSet.add(userId);
+            concurrentSet.add(userId);
+            intSet.add(userId);
+            // Второй фильм лайкнула половина тех же пользователей и столько же других
+            int otherUserId = userId % 2 == 0 ? userId : likes + userId;
+            otherHashSet.add(otherUserId);
+            otherIntSet.add(otherUserId);
+        }
+        System.out.printf("%nЛайков: %d, байт на множество: HashSet=%d, ConcurrentHashMap.newKeySet=%d, IntSet=%d%n",
+                likes,
+                GraphLayout.parseInstance(hashSet).totalSize(),
+                GraphLayout.parseInstance(concurrentSet).totalSize(),
+                GraphLayout.parseInstance(intSet).totalSize());
+    }
+
+    @Benchmark
+    public boolean hashSetContains() {
+        probe = (probe + 7919) % (2 * likes);
+        return hashSet.contains(probe);
+    }
+
+    @Benchmark
+    public boolean intSetContains() {
+        probe = (probe + 7919) % (2 * likes);
+        return intSet.contains(probe);
+    }
+
+    @Benchmark
+    public int hashSetIntersection() {
+        Set<Integer> common = new HashSet<>(hashSet);
+        common.retainAll(otherHashSet);
+        return common.size();
+    }
+
+    @Benchmark
+    public int intSetIntersection() {
+        return intSet.intersection(otherIntSet).size();
+    }
+}
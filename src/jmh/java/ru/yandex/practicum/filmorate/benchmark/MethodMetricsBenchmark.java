@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import ru.yandex.practicum.filmorate.dao.DbGenreStorage;
+import ru.yandex.practicum.filmorate.dao.DbMpaStorage;
+import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.monitoring.MethodMetricsAspect;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
+import ru.yandex.practicum.filmorate.storage.CachedGenreStorage;
+import ru.yandex.practicum.filmorate.storage.CachedMpaStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Цена таймеров методов: тот же сервис и DAO напрямую (plain) и через прокси MethodMetricsAspect
+// с реестром Prometheus (instrumented). getFilm в памяти — худший случай, сам вызов почти ничего не стоит
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class MethodMetricsBenchmark {
+
+    private static final int FILMS = 1000;
+
+    @Param({"plain", "instrumented"})
+    private String mode;
+
+    private BenchmarkDatabase database;
+    private FilmService filmService;
+    private FilmDbStorage filmDbStorage;
+    private int filmId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        database = new BenchmarkDatabase();
+        database.seedFilms(FILMS);
+        database.seedUsers(FILMS);
+        database.seedLikes(FILMS, FILMS, 20);
+
+        CachedMpaStorage mpaStorage = new CachedMpaStorage(new DbMpaStorage(database.getJdbcTemplate()));
+        mpaStorage.refresh();
+        CachedGenreStorage genreStorage = new CachedGenreStorage(new DbGenreStorage(database.getJdbcTemplate()));
+        genreStorage.refresh();
+        InMemoryFilmStorage inMemoryFilmStorage = new InMemoryFilmStorage();
+        for (int i = 0; i < FILMS; i++) {
+            inMemoryFilmStorage.addFilm(film(i));
+        }
+        filmDbStorage = new FilmDbStorage(database.getJdbcTemplate());
+        filmDbStorage.loadPopularityIndex();
+        filmService = new FilmService("memory", inMemoryFilmStorage, filmDbStorage, mpaStorage, genreStorage,
+                new ResourceVersions());
+        if ("instrumented".equals(mode)) {
+            MethodMetricsAspect aspect = new MethodMetricsAspect(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+            filmService = proxy(filmService, aspect);
+            filmDbStorage = proxy(filmDbStorage, aspect);
+        }
+        filmId = FILMS / 2;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Film serviceGetFilm() {
+        return filmService.getFilm(filmId);
+    }
+
+    @Benchmark
+    public List<Film> serviceGetTopFilms() {
+        return filmService.getTopFilms(10);
+    }
+
+    @Benchmark
+    public Film storageGetFilm() {
+        return filmDbStorage.getFilm(filmId);
+    }
+
+    private static <T> T proxy(T target, MethodMetricsAspect aspect) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    private static Film film(int i) {
+        Film film = new Film();
+        film.setName("Film " + i);
+        film.setDescription("Description for film " + i);
+        film.setReleaseDate(LocalDate.of(1950 + i % 70, 1, 1));
+        film.setDuration(90 + i % 60);
+        film.setMpa(new Mpa(1 + i % BenchmarkDatabase.MPA_COUNT, null));
+        film.setGenres(List.of(new Genre(1, null), new Genre(2, null), new Genre(3, null)));
+        return film;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Топ-N популярных: прежняя сортировка всего каталога против поддерживаемого рейтинга.
+// Фильтры: жанр (один из BenchmarkDatabase.GENRE_COUNT) и год (один из YEARS) — отбор по каталогу против рейтингов
+// по жанрам и годам и их слияния
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopularityBenchmark {
+
+    @Param({"1000", "100000"})
+    private int films;
+
+    @Param({"10"})
+    private int count;
+
+    private static final int YEARS = 70;
+    private static final int GENRE = 1;
+    private static final int YEAR = 1980;
+
+    private List<Film> catalog;
+    private PopularityIndex index;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        random = new Random(42);
+        catalog = new ArrayList<>(films);
+        index = new PopularityIndex();
+        for (int id = 1; id <= films; id++) {
+            Film film = new Film();
+            film.setId(id);
+            film.setName("Film " + id);
+            film.setReleaseDate(LocalDate.of(1950 + id % YEARS, 1, 1));
+            film.setGenres(List.of(new Genre(1 + id % BenchmarkDatabase.GENRE_COUNT, null),
+                    new Genre(1 + id * 7 % BenchmarkDatabase.GENRE_COUNT, null)));
+            int likes = random.nextInt(50);
+            for (int userId = 0; userId < likes; userId++) {
+                film.getLikes().add(userId);
+            }
+            catalog.add(film);
+            index.put(film, likes);
+        }
+    }
+
+    @Benchmark
+    public List<Film> sortWholeCatalog() {
+        return catalog.stream()
+                .sorted(Comparator.comparingInt((Film f) -> -f.getLikes().size())
+                        .thenComparing(Film::getName))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> indexTop() {
+        return index.top(count);
+    }
+
+    @Benchmark
+    public List<Integer> indexLikeThenTop() {
+        index.adjustLikes(1 + random.nextInt(films), 1);
+        return index.top(count);
+    }
+
+    @Benchmark
+    public List<Film> filterWholeCatalogByGenreAndYear() {
+        return catalog.stream()
+                .filter(film -> film.getReleaseDate().getYear() == YEAR
+                        && film.getGenres().stream().anyMatch(genre -> genre.getId() == GENRE))
+                .sorted(Comparator.comparingInt((Film f) -> -f.getLikes().size())
+                        .thenComparing(Film::getName))
+                .limit(count)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Integer> indexTopByGenre() {
+        return index.top(count, GENRE, null);
+    }
+
+    @Benchmark
+    public List<Integer> indexTopByGenreAndYear() {
+        return index.top(count, GENRE, YEAR);
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.storage.FilmRecommender;
+import ru.yandex.practicum.filmorate.storage.LikeMatrix;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Рекомендации фильмов на синтетической матрице: users × likesPerUser лайков (по умолчанию 2M).
+// Популярность фильмов неравномерна: половина лайков приходится на первый процент каталога
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class RecommendationBenchmark {
+
+    @Param({"100000"})
+    private int users;
+
+    @Param({"100000"})
+    private int films;
+
+    @Param({"20"})
+    private int likesPerUser;
+
+    private LikeMatrix matrix;
+    private FilmRecommender recommender;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        matrix = new LikeMatrix();
+        Random random = new Random(42);
+        int popular = Math.max(1, films / 100);
+        matrix.load(likes -> {
+            for (int userId = 1; userId <= users; userId++) {
+                for (int i = 0; i < likesPerUser; i++) {
+                    int filmId = random.nextBoolean() ? 1 + random.nextInt(popular) : 1 + random.nextInt(films);
+                    likes.accept(filmId, userId);
+                }
+            }
+        });
+        recommender = new FilmRecommender(matrix, Runtime.getRuntime().availableProcessors(), 200, 500, 50);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        recommender.close();
+    }
+
+    @Benchmark
+    public int[] recommend() {
+        return recommender.recommend(1 + ThreadLocalRandom.current().nextInt(users), 10);
+    }
+
+    // Лайк ставится и снимается: точечное обновление матрицы вместо перестройки
+    @Benchmark
+    public boolean likeAndUnlike() {
+        int userId = 1 + ThreadLocalRandom.current().nextInt(users);
+        int filmId = 1 + ThreadLocalRandom.current().nextInt(films);
+        return matrix.add(userId, filmId) && matrix.remove(userId, filmId);
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.dao.DbGenreStorage;
+import ru.yandex.practicum.filmorate.dao.DbMpaStorage;
+import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
+import ru.yandex.practicum.filmorate.storage.CachedGenreStorage;
+import ru.yandex.practicum.filmorate.storage.CachedMpaStorage;
+import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.validator.FilmValidator;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Сервисный слой поверх хранилища в памяти или в H2 (параметр storage)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ServiceBenchmark {
+
+    @Param({"1000", "10000"})
+    private int films;
+
+    @Param({"memory", "db"})
+    private String storage;
+
+    @Param({"10"})
+    private int count;
+
+    private BenchmarkDatabase database;
+    private FilmService filmService;
+    private FilmValidator filmValidator;
+    private Film filmToValidate;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        database = new BenchmarkDatabase();
+        database.seedFilms(films);
+        database.seedUsers(films);
+        database.seedLikes(films, films, 20);
+
+        CachedMpaStorage mpaStorage = new CachedMpaStorage(new DbMpaStorage(database.getJdbcTemplate()));
+        mpaStorage.refresh();
+        CachedGenreStorage genreStorage = new CachedGenreStorage(new DbGenreStorage(database.getJdbcTemplate()));
+        genreStorage.refresh();
+
+        FilmDbStorage filmDbStorage = new FilmDbStorage(database.getJdbcTemplate());
+        filmDbStorage.loadPopularityIndex();
+        InMemoryFilmStorage inMemoryFilmStorage = new InMemoryFilmStorage();
+        if ("memory".equals(storage)) {
+            // В памяти тот же каталог, что и в БД: фильмы уже с лайками
+            Random random = new Random(42);
+            for (int i = 0; i < films; i++) {
+                Film film = inMemoryFilmStorage.addFilm(film(i));
+                random.ints(1, films + 1).distinct().limit(random.nextInt(21))
+                        .forEach(userId -> inMemoryFilmStorage.addLike(film.getId(), userId));
+            }
+        }
+        filmService = new FilmService(storage, inMemoryFilmStorage, filmDbStorage, mpaStorage, genreStorage,
+                new ResourceVersions());
+        filmValidator = new FilmValidator(genreStorage, mpaStorage);
+        filmToValidate = film(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Film> getTopFilms() {
+        return filmService.getTopFilms(count);
+    }
+
+    @Benchmark
+    public Film validate() {
+        filmValidator.validate(filmToValidate);
+        return filmToValidate;
+    }
+
+    private static Film film(int i) {
+        Film film = new Film();
+        film.setName("Film " + i);
+        film.setDescription("Description for film " + i);
+        film.setReleaseDate(LocalDate.of(1950 + i % 70, 1, 1));
+        film.setDuration(90 + i % 60);
+        film.setMpa(new Mpa(1 + i % BenchmarkDatabase.MPA_COUNT, null));
+        film.setGenres(List.of(new Genre(1, null), new Genre(2, null), new Genre(3, null)));
+        return film;
+    }
+}
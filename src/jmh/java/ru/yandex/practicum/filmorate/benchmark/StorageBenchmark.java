@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Горячие пути хранилищ на H2 с каталогом заданного размера
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class StorageBenchmark {
+
+    @Param({"1000", "10000"})
+    private int films;
+
+    @Param({"20"})
+    private int friendsPerUser;
+
+    @Param({"50"})
+    private int idsPerLookup;
+
+    private BenchmarkDatabase database;
+    private FilmDbStorage filmStorage;
+    private UserDbStorage userStorage;
+    private int users;
+    private Set<Integer>[] idSets;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        users = films;
+        database = new BenchmarkDatabase();
+        database.seedFilms(films);
+        database.seedUsers(users);
+        database.seedFriendships(users, friendsPerUser);
+        database.seedLikes(films, users, 20);
+        filmStorage = new FilmDbStorage(database.getJdbcTemplate());
+        filmStorage.loadPopularityIndex();
+        userStorage = new UserDbStorage(database.getJdbcTemplate());
+
+        // Наборы id готовим заранее, чтобы не мерить их сборку
+        idSets = new Set[64];
+        for (int i = 0; i < idSets.length; i++) {
+            idSets[i] = new HashSet<>();
+            while (idSets[i].size() < idsPerLookup) {
+                idSets[i].add(randomId(users));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Film> getAllFilms() {
+        return filmStorage.getAllFilms();
+    }
+
+    @Benchmark
+    public Film getFilm() {
+        return filmStorage.getFilm(randomId(films));
+    }
+
+    @Benchmark
+    public List<Integer> getCommonFriends() {
+        return userStorage.getCommonFriends(randomId(users), randomId(users));
+    }
+
+    @Benchmark
+    public List<User> getUsersByIds() {
+        return userStorage.getUsersByIds(idSets[ThreadLocalRandom.current().nextInt(idSets.length)]);
+    }
+
+    private static int randomId(int max) {
+        return 1 + ThreadLocalRandom.current().nextInt(max);
+    }
+}
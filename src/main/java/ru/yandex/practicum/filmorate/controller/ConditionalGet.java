@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.service.ResourceVersions.Version;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+// Условный GET по версии ресурса: если у клиента текущая версия, сразу 304 — без обращения к базе
+// и без сериализации. Версия берётся до загрузки: изменение между ними даст новое тело со старым ETag,
+// и клиент просто запросит его ещё раз. Ответы кроме 200 (например, 404) уходят без ETag.
+// У отдельного ресурса версия ничего не говорит о его существовании: неизвестный id тоже имеет версию 0,
+// поэтому перед 304 для такой версии проверяется exists, а удалённый ресурс 304 не получает вовсе
+final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    // Для списков: они существуют всегда
+    static <T> ResponseEntity<T> respond(WebRequest request, Version version, Supplier<ResponseEntity<T>> load) {
+        return respond(request, version, () -> true, load);
+    }
+
+    static <T> ResponseEntity<T> respond(WebRequest request, Version version, BooleanSupplier exists,
+                                         Supplier<ResponseEntity<T>> load) {
+        if (!version.deleted() && isCurrent(request, version)
+                && (version.number() != 0 || exists.getAsBoolean())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(version.etag())
+                    .lastModified(version.lastModified())
+                    .build();
+        }
+        ResponseEntity<T> response = load.get();
+        if (response.getStatusCode() != HttpStatus.OK) {
+            return response;
+        }
+        return ResponseEntity.ok()
+                .headers(response.getHeaders())
+                .eTag(version.etag())
+                .lastModified(version.lastModified())
+                .body(response.getBody());
+    }
+
+    // If-None-Match главнее If-Modified-Since; Last-Modified сравнивается с точностью до секунды, как в HTTP
+    private static boolean isCurrent(WebRequest request, Version version) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String etag = tag.trim();
+                if (etag.startsWith("W/")) {
+                    etag = etag.substring(2);
+                }
+                if (etag.equals("*") || etag.equals(version.etag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null) {
+            return false;
+        }
+        try {
+            long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return version.lastModified() / 1000 <= since;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchReport;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.BulkIngestionService;
 import ru.yandex.practicum.filmorate.service.FilmService;
-import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
 import ru.yandex.practicum.filmorate.validator.FilmValidator;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -19,15 +29,26 @@ import java.util.Map;
 @RequestMapping("/films")
 public class FilmController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_IDS = 10_000;
+
     private final FilmService filmService;
     private final FilmValidator filmValidator;
-    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final BulkIngestionService bulkIngestionService;
+    private final ResourceVersions versions;
+    private final FilmJsonCache jsonCache;
 
     @Autowired
-    public FilmController(FilmService filmService, FilmValidator filmValidator, UserService userService) {
+    public FilmController(FilmService filmService, FilmValidator filmValidator, ObjectMapper objectMapper,
+                          BulkIngestionService bulkIngestionService, ResourceVersions versions,
+                          FilmJsonCache jsonCache) {
         this.filmService = filmService;
         this.filmValidator = filmValidator;
-        this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.bulkIngestionService = bulkIngestionService;
+        this.versions = versions;
+        this.jsonCache = jsonCache;
     }
 
     @PostMapping
@@ -37,12 +58,59 @@ public class FilmController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdFilm);
     }
 
-    @GetMapping
-    public ResponseEntity<List<Film>> getAllFilms() {
-        List<Film> films = filmService.getAllFilms();
-        if (films.isEmpty()) {
+    // Тело — NDJSON, по фильму на строку; в ответе итог по каждой строке
+    @PostMapping("/batch")
+    public ResponseEntity<BatchReport> createFilms(InputStream body) throws IOException {
+        return ResponseEntity.ok(bulkIngestionService.importFilms(body));
+    }
+
+    // Тело — NDJSON вида {"filmId":1,"userId":2}
+    @PostMapping("/likes/batch")
+    public ResponseEntity<BatchReport> addLikes(InputStream body) throws IOException {
+        return ResponseEntity.ok(bulkIngestionService.importLikes(body));
+    }
+
+    // Без параметров пагинации каталог отдаётся потоком, не собираясь в список
+    @GetMapping(params = {"!after", "!limit", "!ids"})
+    public ResponseEntity<StreamingResponseBody> getAllFilms() {
+        if (!filmService.hasFilms()) {
             return ResponseEntity.noContent().build();
         }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(jsonCache.isEnabled()
+                        ? jsonCache.array(filmService::forEachFilm)
+                        : JsonStreams.array(objectMapper, filmService::forEachFilm));
+    }
+
+    // Несколько фильмов одним запросом: /films?ids=3,1,2 — в порядке ids, несуществующие пропускаются,
+    // повторный id возвращается один раз
+    @GetMapping(params = "ids")
+    public ResponseEntity<Object> getFilmsByIds(@RequestParam List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_IDS) {
+            log.error("Некорректное число id фильмов: {}", ids.size());
+            return ResponseEntity.badRequest().body(Map.of("error", "Нужно от 1 до " + MAX_IDS + " id фильмов"));
+        }
+        List<Integer> uniqueIds = List.copyOf(new LinkedHashSet<>(ids));
+        if (jsonCache.isEnabled()) {
+            return cachedArray(jsonCache.fragments(uniqueIds, filmService::getFilmsByIds));
+        }
+        return ResponseEntity.ok(filmService.getFilmsByIds(uniqueIds));
+    }
+
+    @GetMapping
+    public ResponseEntity<Object> getFilmsPage(@RequestParam(defaultValue = "0") int after,
+                                               @RequestParam(defaultValue = "100") int limit) {
+        if (limit <= 0) {
+            log.error("Некорректное значение limit для страницы фильмов: {}", limit);
+            return ResponseEntity.badRequest().body(Map.of("error", "Limit должен быть положительным числом"));
+        }
+        long snapshot = jsonCache.snapshot();
+        List<Film> films = filmService.getFilmsPage(after, Math.min(limit, MAX_PAGE_SIZE));
+        if (jsonCache.isEnabled()) {
+            List<byte[]> fragments = films.stream().map(film -> jsonCache.toJson(film, snapshot)).toList();
+            return cachedArray(new JsonFragments(fragments));
+        }
         return ResponseEntity.ok(films);
     }
 
@@ -74,67 +142,95 @@ public class FilmController {
 
     @PutMapping("/{filmId}/like/{userId}")
     public ResponseEntity<Object> addLike(@PathVariable Integer filmId, @PathVariable Integer userId) {
-        ResponseEntity<Object> userCheck = checkUserExists(userId);
-        if (userCheck != null) return userCheck;
-
-        ResponseEntity<Object> filmCheck = checkFilmExists(filmId);
-        if (filmCheck != null) return filmCheck;
-
-        filmService.addLike(filmId, userId);
+        // Фильм и пользователь заранее не проверяются: отсутствие видно по самой вставке лайка
+        try {
+            filmService.addLike(filmId, userId);
+        } catch (UserNotFoundException | FilmNotFoundException e) {
+            return notFound(e);
+        }
         Film updatedFilm = filmService.getFilm(filmId);
         return ResponseEntity.ok(updatedFilm);
     }
 
     @DeleteMapping("/{filmId}/like/{userId}")
     public ResponseEntity<Object> removeLike(@PathVariable Integer filmId, @PathVariable Integer userId) {
-        ResponseEntity<Object> userCheck = checkUserExists(userId);
-        if (userCheck != null) return userCheck;
-
-        ResponseEntity<Object> filmCheck = checkFilmExists(filmId);
-        if (filmCheck != null) return filmCheck;
-
-        filmService.removeLike(filmId, userId);
+        try {
+            filmService.removeLike(filmId, userId);
+        } catch (UserNotFoundException | FilmNotFoundException e) {
+            return notFound(e);
+        }
         return ResponseEntity.noContent().build();
     }
 
+    // Поиск по названию и описанию: /films/search?q=матр — найдёт и «Матрицу», и «Аниматрицу»
+    @GetMapping("/search")
+    public ResponseEntity<Object> searchFilms(@RequestParam String q,
+                                              @RequestParam(defaultValue = "10") int limit) {
+        if (q.isBlank()) {
+            log.error("Пустой поисковый запрос");
+            return ResponseEntity.badRequest().body(Map.of("error", "Поисковый запрос не может быть пустым"));
+        }
+        if (limit <= 0) {
+            log.error("Некорректное значение limit для поиска: {}", limit);
+            return ResponseEntity.badRequest().body(Map.of("error", "Limit должен быть положительным числом"));
+        }
+        log.info("Поиск фильмов по запросу '{}', limit {}", q, limit);
+        return ResponseEntity.ok(filmService.searchFilms(q, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    // genreId и year необязательны: без них — общий рейтинг
     @GetMapping("/popular")
-    public ResponseEntity<Object> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
+    public ResponseEntity<Object> getPopularFilms(@RequestParam(defaultValue = "10") int count,
+                                                  @RequestParam(required = false) Integer genreId,
+                                                  @RequestParam(required = false) Integer year) {
         if (count <= 0) {
             log.error("Некорректное значение count для популярных фильмов: {}", count);
             return ResponseEntity.badRequest().body(Map.of("error", "Count должен быть положительным числом"));
         }
-        List<Film> popularFilms = filmService.getTopFilms(count);
+        if (genreId != null && genreId <= 0 || year != null && year <= 0) {
+            log.error("Некорректный фильтр популярных фильмов: genreId={}, year={}", genreId, year);
+            return ResponseEntity.badRequest().body(Map.of("error", "genreId и year должны быть положительными числами"));
+        }
+        if (jsonCache.isEnabled()) {
+            return cachedArray(jsonCache.fragments(filmService.getTopFilmIds(count, genreId, year),
+                    filmService::getFilmsByIds));
+        }
+        List<Film> popularFilms = filmService.getTopFilms(count, genreId, year);
         return ResponseEntity.ok(popularFilms);
     }
 
+    // С If-None-Match текущей версии — 304 без чтения фильма
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getFilmById(@PathVariable Integer id) {
-        try {
-            Film film = filmService.getFilm(id);
-            return ResponseEntity.ok(film);
-        } catch (FilmNotFoundException e) {
-            log.error("Фильм с ID {} не найден", id);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
-        }
+    public ResponseEntity<Object> getFilmById(@PathVariable Integer id, WebRequest request) {
+        return ConditionalGet.respond(request, versions.film(id), () -> filmService.filmExists(id), () -> {
+            try {
+                if (jsonCache.isEnabled()) {
+                    byte[] json = jsonCache.cached(id);
+                    if (json == null) {
+                        long snapshot = jsonCache.snapshot();
+                        json = jsonCache.toJson(filmService.getFilm(id), snapshot);
+                    }
+                    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+                }
+                Film film = filmService.getFilm(id);
+                return ResponseEntity.ok(film);
+            } catch (FilmNotFoundException e) {
+                log.error("Фильм с ID {} не найден", id);
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+            }
+        });
     }
 
     // Вспомогательные методы проверки
 
-    private ResponseEntity<Object> checkUserExists(Integer userId) {
-        if (!userService.userExists(userId)) {
-            log.error("Пользователь с ID {} не найден", userId);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Пользователь с ID " + userId + " не найден"));
-        }
-        return null;
+    private static ResponseEntity<Object> cachedArray(JsonFragments fragments) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(fragments);
     }
 
-    private ResponseEntity<Object> checkFilmExists(Integer filmId) {
-        if (!filmService.filmExists(filmId)) {
-            log.error("Фильм с ID {} не найден", filmId);
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(Map.of("error", "Фильм с ID " + filmId + " не найден"));
-        }
-        return null;
+    private ResponseEntity<Object> notFound(RuntimeException e) {
+        log.error(e.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Готовый JSON фильмов (filmorate.films.json-cache.enabled=true): повторные GET не сериализуют тот же фильм
+// заново, а списки склеиваются из готовых фрагментов прямо в поток ответа (JsonFragmentsConverter). JSON хранится вместе с версией
+// фильма из ResourceVersions: изменение, лайк или удаление сдвигают версию, и прежний JSON больше не отдаётся.
+// В кэше не больше maxEntries фильмов. Попадания, промахи и размер — в метриках cache.gets и cache.size
+// с тегом cache=film-json
+@Component
+class FilmJsonCache implements MeterBinder {
+
+    // Фильмы, загруженные без снимка версий (потоковая выгрузка каталога), в кэш не попадают
+    static final long NO_SNAPSHOT = -1;
+
+    private final ObjectWriter writer;
+    private final ResourceVersions versions;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    FilmJsonCache(ObjectMapper objectMapper, ResourceVersions versions,
+                  @Value("${filmorate.films.json-cache.enabled:false}") boolean enabled,
+                  @Value("${filmorate.films.json-cache.max-entries:10000}") int maxEntries) {
+        this.writer = objectMapper.writerFor(Film.class);
+        this.versions = versions;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    // Берётся до загрузки фильмов: по нему видно, не менялся ли фильм, пока его читали
+    long snapshot() {
+        return versions.sequence();
+    }
+
+    // JSON текущей версии фильма, если он уже есть
+    byte[] cached(int filmId) {
+        Entry entry = entries.get(filmId);
+        if (entry != null && entry.version() == versions.film(filmId).number()) {
+            hits.increment();
+            return entry.json();
+        }
+        return null;
+    }
+
+    // JSON загруженного фильма. В кэш он попадает, только если последнее изменение фильма было
+    // до снимка: иначе неизвестно, какой версии соответствуют прочитанные данные
+    byte[] toJson(Film film, long snapshot) {
+        long version = versions.film(film.getId()).number();
+        Entry entry = entries.get(film.getId());
+        if (entry != null && entry.version() == version) {
+            hits.increment();
+            return entry.json();
+        }
+        misses.increment();
+        byte[] json = serialize(film);
+        if (version <= snapshot) {
+            if (entries.size() >= maxEntries) {
+                evictOne();
+            }
+            entries.put(film.getId(), new Entry(version, json));
+        }
+        return json;
+    }
+
+    // Фильмы в порядке ids: найденные в кэше берутся как есть, остальные загружаются одним вызовом loader.
+    // Несуществующие id пропускаются
+    JsonFragments fragments(List<Integer> ids, Function<List<Integer>, List<Film>> loader) {
+        long snapshot = snapshot();
+        List<byte[]> fragments = new ArrayList<>(ids.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            byte[] json = cached(id);
+            fragments.add(json);
+            if (json == null) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Integer, byte[]> loaded = new HashMap<>(missing.size());
+            for (Film film : loader.apply(missing)) {
+                loaded.put(film.getId(), toJson(film, snapshot));
+            }
+            for (int i = 0; i < fragments.size(); i++) {
+                if (fragments.get(i) == null) {
+                    fragments.set(i, loaded.get(ids.get(i)));
+                }
+            }
+        }
+        fragments.removeIf(json -> json == null);
+        return new JsonFragments(fragments);
+    }
+
+    // Потоковая выгрузка каталога: готовый JSON берётся из кэша, но новые фильмы в него не добавляются,
+    // чтобы полный обход не вытеснял часто запрашиваемые фильмы
+    StreamingResponseBody array(Consumer<Consumer<Film>> source) {
+        return out -> {
+            out.write('[');
+            boolean[] first = {true};
+            try {
+                source.accept(film -> {
+                    try {
+                        if (!first[0]) {
+                            out.write(',');
+                        }
+                        first[0] = false;
+                        out.write(toJson(film, NO_SNAPSHOT));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.write(']');
+        };
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", "film-json", "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", "film-json", "result", "miss")
+                .register(registry);
+        Gauge.builder("cache.size", entries, Map::size)
+                .tag("cache", "film-json")
+                .register(registry);
+    }
+
+    private byte[] serialize(Film film) {
+        try {
+            return writer.writeValueAsBytes(film);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void evictOne() {
+        Iterator<Integer> iterator = entries.keySet().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record Entry(long version, byte[] json) {
+    }
+}
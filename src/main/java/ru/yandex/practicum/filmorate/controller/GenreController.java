@@ -5,8 +5,10 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
 
 import java.util.List;
 
@@ -15,27 +17,34 @@ import java.util.List;
 public class GenreController {
 
     private final GenreService genreService;
+    private final ResourceVersions versions;
 
-    public GenreController(GenreService genreService) {
+    public GenreController(GenreService genreService, ResourceVersions versions) {
         this.genreService = genreService;
+        this.versions = versions;
     }
 
     @GetMapping
-    public ResponseEntity<List<Genre>> getAllGenres() {
-        List<Genre> genres = genreService.getAllGenres();
-        if (genres.isEmpty()) {
-            return ResponseEntity.noContent().build();
-        }
-        return ResponseEntity.ok(genres);
+    public ResponseEntity<List<Genre>> getAllGenres(WebRequest request) {
+        return ConditionalGet.respond(request, versions.referenceData(), () -> {
+            List<Genre> genres = genreService.getAllGenres();
+            if (genres.isEmpty()) {
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok(genres);
+        });
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Genre> getGenre(@PathVariable Integer id) {
-        Genre genre = genreService.getGenre(id);
-        if (genre == null) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok(genre);
+    public ResponseEntity<Genre> getGenre(@PathVariable Integer id, WebRequest request) {
+        return ConditionalGet.respond(request, versions.referenceData(),
+                () -> genreService.getGenre(id) != null, () -> {
+            Genre genre = genreService.getGenre(id);
+            if (genre == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(genre);
+        });
     }
 }
 
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import java.util.List;
+
+// Готовые JSON-значения, которые уходят в ответ массивом как есть, без повторной сериализации
+record JsonFragments(List<byte[]> items) {
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+// Пишет JsonFragments прямо в поток ответа: '[', фрагменты через запятую, ']'
+@Component
+class JsonFragmentsConverter extends AbstractHttpMessageConverter<JsonFragments> {
+
+    JsonFragmentsConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return JsonFragments.class == clazz;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected JsonFragments readInternal(Class<? extends JsonFragments> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("JsonFragments только для ответов", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(JsonFragments fragments, MediaType contentType) {
+        List<byte[]> items = fragments.items();
+        long length = 2 + Math.max(0, items.size() - 1);
+        for (byte[] item : items) {
+            length += item.length;
+        }
+        return length;
+    }
+
+    @Override
+    protected void writeInternal(JsonFragments fragments, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        out.write('[');
+        List<byte[]> items = fragments.items();
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(items.get(i));
+        }
+        out.write(']');
+    }
+}
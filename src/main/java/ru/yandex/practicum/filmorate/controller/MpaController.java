@@ -5,8 +5,10 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
 
 import java.util.List;
 
@@ -15,22 +17,27 @@ import java.util.List;
 public class MpaController {
 
     private final MpaService mpaService;
+    private final ResourceVersions versions;
 
-    public MpaController(MpaService mpaService) {
+    public MpaController(MpaService mpaService, ResourceVersions versions) {
         this.mpaService = mpaService;
+        this.versions = versions;
     }
 
     @GetMapping
-    public List<Mpa> getAllMpa() {
-        return mpaService.getAllMpa();
+    public ResponseEntity<List<Mpa>> getAllMpa(WebRequest request) {
+        return ConditionalGet.respond(request, versions.referenceData(),
+                () -> ResponseEntity.ok(mpaService.getAllMpa()));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Mpa> getMpa(@PathVariable Integer id) {
-        Mpa mpa = mpaService.getMpa(id);
-        if (mpa == null) {
-            return ResponseEntity.notFound().build();
-        }
-        return ResponseEntity.ok(mpa);
+    public ResponseEntity<Mpa> getMpa(@PathVariable Integer id, WebRequest request) {
+        return ConditionalGet.respond(request, versions.referenceData(), () -> mpaService.getMpa(id) != null, () -> {
+            Mpa mpa = mpaService.getMpa(id);
+            if (mpa == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(mpa);
+        });
     }
 }
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.EndpointQueryStats;
+import ru.yandex.practicum.filmorate.monitoring.QueryMetrics;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/metrics/sql")
+@ConditionalOnProperty(name = "filmorate.sql-accounting.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryMetricsController {
+
+    private final QueryMetrics queryMetrics;
+
+    public QueryMetricsController(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    @GetMapping
+    public List<EndpointQueryStats> getQueryMetrics() {
+        return queryMetrics.snapshot();
+    }
+}
@@ -1,16 +1,30 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exception.FutureBirthdayException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchReport;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BulkIngestionService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.ResourceVersions;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -18,16 +32,28 @@ import java.util.Set;
 @RestController
 @RequestMapping("/users")
 public class UserController {
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_IDS = 10_000;
+
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final BulkIngestionService bulkIngestionService;
+    private final FilmService filmService;
+    private final ResourceVersions versions;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper, BulkIngestionService bulkIngestionService,
+                          FilmService filmService, ResourceVersions versions) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
+        this.bulkIngestionService = bulkIngestionService;
+        this.filmService = filmService;
+        this.versions = versions;
     }
 
     @PostMapping
     public ResponseEntity<User> createUser(@Valid @RequestBody User user) {
-        log.info("Creating user: {}", user);
+        log.info("Creating user with login {}", user.getLogin());
 
         if (user.getBirthday() != null && user.getBirthday().isAfter(LocalDate.now())) {
             throw new FutureBirthdayException("Дата рождения не может быть в будущем.");
@@ -38,27 +64,65 @@ public class UserController {
         return ResponseEntity.status(201).body(createdUser);
     }
 
+    // Тело — NDJSON, по пользователю на строку; в ответе итог по каждой строке
+    @PostMapping("/batch")
+    public ResponseEntity<BatchReport> createUsers(InputStream body) throws IOException {
+        log.info("Bulk import of users");
+        return ResponseEntity.ok(bulkIngestionService.importUsers(body));
+    }
+
+    // Тело — NDJSON вида {"userId":1,"friendId":2}
+    @PostMapping("/friends/batch")
+    public ResponseEntity<BatchReport> addFriends(InputStream body) throws IOException {
+        log.info("Bulk import of friendships");
+        return ResponseEntity.ok(bulkIngestionService.importFriendships(body));
+    }
+
     @PutMapping
     public ResponseEntity<User> updateUser(@Valid @RequestBody User user) {
         log.info("Updating user with ID: {}", user.getId());
         User updatedUser = userService.updateUser(user);
-        log.info("User updated: {}", updatedUser);
+        log.info("User updated: ID {}", updatedUser.getId());
         return ResponseEntity.ok(updatedUser);
     }
 
+    // С If-None-Match текущей версии — 304 без чтения пользователя
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUser(@PathVariable @Positive Integer id) {
+    public ResponseEntity<User> getUser(@PathVariable @Positive Integer id, WebRequest request) {
         log.info("Getting user with ID {}", id);
-        User user = userService.getUser(id);
-        log.info("User found: {}", user);
-        return ResponseEntity.ok(user);
+        return ConditionalGet.respond(request, versions.user(id), () -> userService.userExists(id),
+                () -> ResponseEntity.ok(userService.getUser(id)));
     }
 
-    @GetMapping
-    public ResponseEntity<List<User>> getUsers() {
+    // Без параметров пагинации пользователи отдаются потоком прямо из курсора БД
+    @GetMapping(params = {"!after", "!limit", "!ids"})
+    public ResponseEntity<StreamingResponseBody> getUsers() {
         log.info("Getting all users");
-        List<User> users = userService.getUsers();
-        log.info("Total users found: {}", users.size());
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(JsonStreams.array(objectMapper, userService::forEachUser));
+    }
+
+    // Несколько пользователей одним запросом: /users?ids=3,1,2 — в порядке ids, несуществующие пропускаются,
+    // повторный id возвращается один раз
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<User>> getUsersByIds(@RequestParam List<Integer> ids) {
+        log.info("Getting {} users by IDs", ids.size());
+        if (ids.isEmpty() || ids.size() > MAX_IDS) {
+            throw new ValidationException("Нужно от 1 до " + MAX_IDS + " id пользователей");
+        }
+        return ResponseEntity.ok(userService.getUsersByIds(new LinkedHashSet<>(ids)));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<User>> getUsersPage(@RequestParam(defaultValue = "0") int after,
+                                                   @RequestParam(defaultValue = "100") int limit) {
+        log.info("Getting users after ID {}, limit {}", after, limit);
+        if (limit <= 0) {
+            throw new ValidationException("Limit должен быть положительным числом");
+        }
+        List<User> users = userService.getUsersPage(after, Math.min(limit, MAX_PAGE_SIZE));
+        log.info("Users found on page: {}", users.size());
         return ResponseEntity.ok(users);
     }
 
@@ -84,6 +148,42 @@ public class UserController {
         return ResponseEntity.ok(friends);
     }
 
+    // Друзья друзей по убыванию числа общих друзей; больше 100 рекомендаций не отдаётся
+    @GetMapping("/{id}/friends/suggestions")
+    public ResponseEntity<List<User>> getFriendSuggestions(@PathVariable @Positive Integer id,
+                                                           @RequestParam(defaultValue = "10") int limit) {
+        log.info("Getting friend suggestions for user with ID {}, limit {}", id, limit);
+        if (limit <= 0) {
+            throw new ValidationException("Limit должен быть положительным числом");
+        }
+        return ResponseEntity.ok(userService.getFriendSuggestions(id, limit));
+    }
+
+    // Фильмы, которые лайкали пользователи с похожими вкусами
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<List<Film>> getRecommendations(@PathVariable @Positive Integer id,
+                                                         @RequestParam(defaultValue = "10") int limit) {
+        log.info("Getting film recommendations for user with ID {}, limit {}", id, limit);
+        if (limit <= 0) {
+            throw new ValidationException("Limit должен быть положительным числом");
+        }
+        if (!userService.userExists(id)) {
+            throw new UserNotFoundException("Пользователь с ID " + id + " не найден");
+        }
+        return ResponseEntity.ok(filmService.getRecommendations(id, limit));
+    }
+
+    // Общие друзья сразу нескольких пользователей: /users/1/friends/common?others=2,3,4
+    @GetMapping("/{id}/friends/common")
+    public ResponseEntity<Set<User>> getCommonFriends(@PathVariable @Positive Integer id,
+                                                      @RequestParam List<Integer> others) {
+        log.info("Getting common friends between user with ID {} and users {}", id, others);
+        if (others.isEmpty()) {
+            throw new ValidationException("Нужен хотя бы один пользователь в others");
+        }
+        return ResponseEntity.ok(userService.getCommonFriendsAsUsers(id, others));
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
     public ResponseEntity<Set<User>> getCommonFriends(
             @PathVariable @Positive Integer id,
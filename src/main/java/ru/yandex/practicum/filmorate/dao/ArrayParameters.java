@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Набор значений передаётся в запрос одним параметром-массивом (col = ANY(?)) вместо IN (?, ?, ...):
+// текст выражения не зависит от числа значений, и в кэше выражений он один на все размеры.
+// Очень длинные наборы делятся на части по CHUNK_SIZE, по запросу на часть
+final class ArrayParameters {
+
+    static final int CHUNK_SIZE = 1000;
+
+    private ArrayParameters() {
+    }
+
+    static <T> List<List<T>> chunks(Collection<T> values) {
+        List<T> list = new ArrayList<>(values);
+        List<List<T>> chunks = new ArrayList<>((list.size() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+        for (int from = 0; from < list.size(); from += CHUNK_SIZE) {
+            chunks.add(list.subList(from, Math.min(from + CHUNK_SIZE, list.size())));
+        }
+        return chunks;
+    }
+
+    // Привязывает значения к первому параметру выражения; sqlType — тип элементов массива
+    static void bind(PreparedStatement ps, String sqlType, Collection<?> values) throws SQLException {
+        ps.setArray(1, ps.getConnection().createArrayOf(sqlType, values.toArray()));
+    }
+}
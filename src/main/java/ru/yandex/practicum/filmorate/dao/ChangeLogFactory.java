@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Журналы изменений DAO (filmorate.changelog.enabled=true): у каждого DAO свой каталог внутри dir
+// и своя последовательность номеров в базе
+@Slf4j
+@Component
+public class ChangeLogFactory {
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentSize;
+    private final int compactAfterSegments;
+
+    public ChangeLogFactory(@Value("${filmorate.changelog.enabled:false}") boolean enabled,
+                            @Value("${filmorate.changelog.dir:./db/changelog}") String directory,
+                            @Value("${filmorate.changelog.segment-size:16777216}") int segmentSize,
+                            @Value("${filmorate.changelog.compact-after-segments:4}") int compactAfterSegments) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.compactAfterSegments = compactAfterSegments;
+    }
+
+    // null, если журналы выключены. Без журнала изменения номеров не берут, поэтому оставшийся с прошлого
+    // включения журнал удаляется: иначе после повторного включения он сошёлся бы с базой, не зная этих изменений
+    NumberedChangeLog open(String name, String sequence, JdbcTemplate jdbcTemplate,
+                           Supplier<ChangeLog.State> stateFactory) {
+        Path logDirectory = directory.resolve(name);
+        if (!enabled) {
+            if (Files.isDirectory(logDirectory)) {
+                delete(logDirectory);
+            }
+            return null;
+        }
+        return new NumberedChangeLog(logDirectory, segmentSize, compactAfterSegments, stateFactory,
+                jdbcTemplate, sequence);
+    }
+
+    private static void delete(Path logDirectory) {
+        try (Stream<Path> files = Files.walk(logDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+            log.info("Журналы выключены: устаревший журнал {} удалён", logDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось удалить устаревший журнал " + logDirectory, e);
+        }
+    }
+}
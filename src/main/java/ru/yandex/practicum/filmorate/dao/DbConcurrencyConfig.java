@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+// Запросы на виртуальных потоках (spring.threads.virtual.enabled=true): Tomcat больше не ограничивает
+// их число своим пулом, поэтому одновременные обращения к базе ограничиваются перед пулом соединений.
+// По умолчанию предел равен размеру пула Hikari
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class DbConcurrencyConfig {
+
+    @Bean
+    static BeanPostProcessor dbConcurrencyLimiter(Environment environment) {
+        int poolSize = environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10);
+        int maxConcurrency = environment.getProperty("filmorate.db.max-concurrency", Integer.class, poolSize);
+        long acquireTimeoutMs = environment.getProperty("filmorate.db.acquire-timeout-ms", Long.class, 5000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitingDataSource)
+                        ? new ConcurrencyLimitingDataSource(dataSource, maxConcurrency, acquireTimeoutMs)
+                        : bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,234 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
+import ru.yandex.practicum.filmorate.util.IntPairConsumer;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+// Записи журнала фильмов (ChangeLog) — всё, что нужно рейтингу PopularityIndex, матрице лайков и поиску:
+// FILM — новые название, описание, год и жанры существующего фильма (лайки не меняет), DELETED — удаление,
+// LIKED и UNLIKED — лайк поставлен или снят, SNAPSHOT — фильм вместе с числом лайков (так пишутся новый фильм
+// и контрольная точка), LIKE — лайк из контрольной точки: в числе лайков своего SNAPSHOT он уже учтён
+final class FilmChanges {
+
+    private static final byte FILM = 1;
+    private static final byte DELETED = 2;
+    private static final byte LIKED = 3;
+    private static final byte SNAPSHOT = 4;
+    private static final byte UNLIKED = 5;
+    private static final byte LIKE = 6;
+
+    // Год неизвестен
+    private static final int NO_YEAR = 0;
+    // Строка null
+    private static final int NO_TEXT = -1;
+
+    private FilmChanges() {
+    }
+
+    static byte[] film(Film film) {
+        return encode(FILM, film.getId(), 0, film.getName(), film.getDescription(), yearOf(film), genreIdsOf(film));
+    }
+
+    static byte[] snapshot(Film film, int likes) {
+        return encode(SNAPSHOT, film.getId(), likes, film.getName(), film.getDescription(), yearOf(film),
+                genreIdsOf(film));
+    }
+
+    static byte[] deleted(int filmId) {
+        return ByteBuffer.allocate(5).put(DELETED).putInt(filmId).array();
+    }
+
+    static byte[] liked(int filmId, int userId) {
+        return pair(LIKED, filmId, userId);
+    }
+
+    static byte[] unliked(int filmId, int userId) {
+        return pair(UNLIKED, filmId, userId);
+    }
+
+    static byte[] like(int filmId, int userId) {
+        return pair(LIKE, filmId, userId);
+    }
+
+    // Рейтингу не нужны ни описание, ни сами пары лайков — только их число
+    static void apply(ByteBuffer record, PopularityIndex index) {
+        byte type = record.get();
+        int filmId = record.getInt();
+        switch (type) {
+            case FILM -> {
+                int year = record.getInt();
+                int[] genreIds = readInts(record);
+                index.update(filmId, readText(record), year == NO_YEAR ? null : year, genreIds);
+            }
+            case SNAPSHOT -> {
+                int likes = record.getInt();
+                int year = record.getInt();
+                int[] genreIds = readInts(record);
+                index.put(filmId, readText(record), likes, year == NO_YEAR ? null : year, genreIds);
+            }
+            case DELETED -> index.remove(filmId);
+            case LIKED -> index.adjustLikes(filmId, 1);
+            case UNLIKED -> index.adjustLikes(filmId, -1);
+            case LIKE -> {
+            }
+            default -> throw new IllegalStateException("Неизвестная запись журнала фильмов: " + type);
+        }
+    }
+
+    // Полное состояние фильмов: свёртка для сжатия журнала и источник лайков и текстов для индексов сервиса
+    static Fold fold() {
+        return new Fold();
+    }
+
+    private static byte[] pair(byte type, int filmId, int userId) {
+        return ByteBuffer.allocate(9).put(type).putInt(filmId).putInt(userId).array();
+    }
+
+    // У SNAPSHOT после id идёт число лайков, дальше формат общий с FILM
+    private static byte[] encode(byte type, int filmId, int likes, String name, String description, int year,
+                                 int[] genreIds) {
+        byte[] nameBytes = bytesOf(name);
+        byte[] descriptionBytes = bytesOf(description);
+        int size = 21 + (type == SNAPSHOT ? 4 : 0) + 4 * genreIds.length
+                + (nameBytes == null ? 0 : nameBytes.length) + (descriptionBytes == null ? 0 : descriptionBytes.length);
+        ByteBuffer buffer = ByteBuffer.allocate(size).put(type).putInt(filmId);
+        if (type == SNAPSHOT) {
+            buffer.putInt(likes);
+        }
+        buffer.putInt(year).putInt(genreIds.length);
+        for (int genreId : genreIds) {
+            buffer.putInt(genreId);
+        }
+        putText(buffer, nameBytes);
+        putText(buffer, descriptionBytes);
+        return buffer.array();
+    }
+
+    private static int yearOf(Film film) {
+        return film.getReleaseDate() == null ? NO_YEAR : film.getReleaseDate().getYear();
+    }
+
+    private static int[] genreIdsOf(Film film) {
+        if (film.getGenres() == null) {
+            return new int[0];
+        }
+        return film.getGenres().stream()
+                .map(Genre::getId)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static byte[] bytesOf(String text) {
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putText(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NO_TEXT);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static int[] readInts(ByteBuffer record) {
+        int[] values = new int[record.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = record.getInt();
+        }
+        return values;
+    }
+
+    private static String readText(ByteBuffer record) {
+        int length = record.getInt();
+        if (length == NO_TEXT) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Повторяет правила PopularityIndex: FILM сохраняет лайки, FILM и лайки неизвестного фильма пропускаются
+    static final class Fold implements ChangeLog.State {
+        private final Map<Integer, FilmState> films = new HashMap<>();
+
+        private Fold() {
+        }
+
+        @Override
+        public void apply(ByteBuffer record) {
+            byte type = record.get();
+            int filmId = record.getInt();
+            switch (type) {
+                case FILM -> {
+                    int year = record.getInt();
+                    int[] genreIds = readInts(record);
+                    String name = readText(record);
+                    String description = readText(record);
+                    films.computeIfPresent(filmId, (id, state) ->
+                            new FilmState(name, description, year, genreIds, state.likes(), state.users()));
+                }
+                case SNAPSHOT -> {
+                    int likes = record.getInt();
+                    int year = record.getInt();
+                    int[] genreIds = readInts(record);
+                    String name = readText(record);
+                    films.put(filmId, new FilmState(name, readText(record), year, genreIds, likes, new IntSet()));
+                }
+                case DELETED -> films.remove(filmId);
+                case LIKED, UNLIKED, LIKE -> {
+                    int userId = record.getInt();
+                    int delta = type == LIKED ? 1 : type == UNLIKED ? -1 : 0;
+                    films.computeIfPresent(filmId, (id, state) -> {
+                        if (type == UNLIKED) {
+                            state.users().remove(userId);
+                        } else {
+                            state.users().add(userId);
+                        }
+                        return delta == 0 ? state : new FilmState(state.name(), state.description(), state.year(),
+                                state.genreIds(), state.likes() + delta, state.users());
+                    });
+                }
+                default -> throw new IllegalStateException("Неизвестная запись журнала фильмов: " + type);
+            }
+        }
+
+        @Override
+        public void writeTo(Consumer<byte[]> out) {
+            films.forEach((filmId, state) -> {
+                out.accept(encode(SNAPSHOT, filmId, state.likes(), state.name(), state.description(), state.year(),
+                        state.genreIds()));
+                state.users().forEachInt(userId -> out.accept(like(filmId, userId)));
+            });
+        }
+
+        void forEachLike(IntPairConsumer action) {
+            films.forEach((filmId, state) -> state.users().forEachInt(userId -> action.accept(filmId, userId)));
+        }
+
+        // У фильмов заполнены только id, название и описание
+        void forEachFilm(Consumer<Film> action) {
+            films.forEach((filmId, state) -> {
+                Film film = new Film();
+                film.setId(filmId);
+                film.setName(state.name());
+                film.setDescription(state.description());
+                action.accept(film);
+            });
+        }
+    }
+
+    private record FilmState(String name, String description, int year, int[] genreIds, int likes, IntSet users) {
+    }
+}
@@ -1,141 +1,403 @@
 package ru.yandex.practicum.filmorate.dao;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.PopularityIndex;
+import ru.yandex.practicum.filmorate.util.AfterCommit;
+import ru.yandex.practicum.filmorate.util.IntPairConsumer;
 
+import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+@Slf4j
 @Primary
 @Repository
 @Qualifier("filmDbStorage")
 public class FilmDbStorage implements FilmStorage {
 
+    // Фильм, его MPA и жанры одним запросом: по строке на жанр (или одна строка, если жанров нет)
+    private static final String FILM_COLUMNS = "SELECT f.id, f.name, f.description, f.release_date, f.duration, " +
+            "f.mpa_id, m.name AS mpa_name, g.id AS genre_id, g.name AS genre_name ";
+    private static final String FILM_JOINS = "JOIN mpa m ON f.mpa_id = m.id " +
+            "LEFT JOIN film_genres fg ON fg.film_id = f.id " +
+            "LEFT JOIN genres g ON g.id = fg.genre_id ";
+    private static final String FILM_SELECT = FILM_COLUMNS + "FROM films f " + FILM_JOINS;
+
+    // Рейтинг строится по сохранённому счётчику likes_count; описание нужно только контрольной точке журнала
+    static final String POPULARITY_SQL = "SELECT f.id, f.name, f.likes_count, f.release_date, fg.genre_id " +
+            "FROM films f LEFT JOIN film_genres fg ON fg.film_id = f.id ORDER BY f.id";
+    static final String POPULARITY_WITH_DESCRIPTION_SQL = "SELECT f.id, f.name, f.description, " +
+            "f.likes_count, f.release_date, fg.genre_id FROM films f LEFT JOIN film_genres fg ON fg.film_id = f.id " +
+            "ORDER BY f.id";
+
+    private static final String INSERT_FILM_SQL =
+            "INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)";
+
+    // Лайк вставляется, только если его ещё нет: по счётчику строки видно, был ли он добавлен,
+    // а дубликат не обрывает весь пакет ошибкой первичного ключа
+    private static final String INSERT_LIKE_IF_ABSENT_SQL = "INSERT INTO film_likes (film_id, user_id) " +
+            "SELECT CAST(? AS INT), CAST(? AS INT) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)";
+
+    // Сколько строк драйвер подтягивает за раз при потоковом чтении каталога
+    private static final int FETCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final PopularityIndex popularityIndex = new PopularityIndex();
+
+    // null — лайки пишутся сразу, каждый своим коммитом
+    private final LikeWriteBuffer likeBuffer;
+
+    // null — журнала нет, рейтинг и индексы сервиса при старте читаются из таблиц
+    private final NumberedChangeLog changeLog;
 
-    @Autowired
     public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, null);
+    }
+
+    FilmDbStorage(JdbcTemplate jdbcTemplate, NumberedChangeLog changeLog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.likeBuffer = null;
+        this.changeLog = changeLog;
+    }
+
+    // filmorate.likes.write-behind.enabled=true включает отложенную пакетную запись лайков
+    @Autowired
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                         ChangeLogFactory changeLogs,
+                         @Value("${filmorate.likes.write-behind.enabled:false}") boolean writeBehind,
+                         @Value("${filmorate.likes.write-behind.batch-size:500}") int batchSize,
+                         @Value("${filmorate.likes.write-behind.capacity:10000}") int capacity,
+                         @Value("${filmorate.likes.write-behind.flush-interval-ms:100}") long flushIntervalMs) {
         this.jdbcTemplate = jdbcTemplate;
+        this.likeBuffer = writeBehind
+                ? new LikeWriteBuffer(jdbcTemplate, transactionTemplate, batchSize, capacity, flushIntervalMs,
+                new BufferedLikes())
+                : null;
+        this.changeLog = changeLogs.open("films", "film_changes_seq", jdbcTemplate, FilmChanges::fold);
+    }
+
+    // При остановке приложения дописывает накопленные лайки и закрывает журнал
+    @PreDestroy
+    public void flushLikes() {
+        if (likeBuffer != null) {
+            likeBuffer.close();
+        }
+        if (changeLog != null) {
+            changeLog.close();
+        }
+    }
+
+    // С журналом рейтинг восстанавливается из его контрольной точки и хвоста, без чтения таблиц
+    @PostConstruct
+    public void loadPopularityIndex() {
+        if (!replayPopularityIndex()) {
+            rebuildPopularityIndex();
+        }
+    }
+
+    // Жанры для рейтингов по жанрам читаются тем же запросом. С журналом прочитанное из таблиц вместе
+    // с описаниями и лайками становится его новой контрольной точкой
+    private void rebuildPopularityIndex() {
+        if (changeLog == null) {
+            readPopularityIndex(null);
+        } else {
+            changeLog.rebase(this::readPopularityIndex);
+        }
+    }
+
+    // records — куда отдать фильмы и лайки записями журнала, null — никуда
+    private void readPopularityIndex(Consumer<byte[]> records) {
+        popularityIndex.clear();
+        PopularityLoader loader = new PopularityLoader(popularityIndex, records);
+        jdbcTemplate.query(records == null ? POPULARITY_SQL : POPULARITY_WITH_DESCRIPTION_SQL, loader);
+        loader.flush();
+        if (records != null) {
+            readLikes((filmId, userId) -> records.accept(FilmChanges.like(filmId, userId)));
+        }
+    }
+
+    // false, если журнала нет или он не сошёлся с базой: по номерам изменений, числу фильмов и сумме лайков
+    private boolean replayPopularityIndex() {
+        if (changeLog == null) {
+            return false;
+        }
+        popularityIndex.clear();
+        if (!changeLog.replay(record -> FilmChanges.apply(record, popularityIndex))) {
+            return false;
+        }
+        long[] stored = jdbcTemplate.queryForObject("SELECT COUNT(*), COALESCE(SUM(likes_count), 0) FROM films",
+                (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        if (stored[0] == popularityIndex.size() && stored[1] == popularityIndex.totalLikes()) {
+            log.info("Рейтинг фильмов восстановлен из журнала: {} фильмов", stored[0]);
+            return true;
+        }
+        log.warn("Журнал фильмов разошёлся с таблицей films ({} фильмов и {} лайков против {} и {}), "
+                        + "рейтинг читается заново", popularityIndex.size(), popularityIndex.totalLikes(),
+                stored[0], stored[1]);
+        return false;
+    }
+
+    // Запись собирается, только если журнал включён
+    private void record(Supplier<byte[]> change) {
+        if (changeLog != null) {
+            changeLog.record(change.get());
+        }
+    }
+
+    // Индексы сервиса читаются из журнала, сверенного с базой при загрузке рейтинга, а не из таблиц
+    @Override
+    public void forEachIndexed(IntPairConsumer likes, Consumer<Film> films) {
+        if (changeLog != null) {
+            FilmChanges.Fold state = FilmChanges.fold();
+            if (changeLog.replay(state::apply)) {
+                state.forEachLike(likes);
+                state.forEachFilm(films);
+                return;
+            }
+        }
+        FilmStorage.super.forEachIndexed(likes, films);
     }
 
     @Override
+    @Transactional
     public Film addFilm(Film film) {
-        String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setString(1, film.getName());
-            ps.setString(2, film.getDescription());
-            ps.setObject(3, film.getReleaseDate());
-            ps.setInt(4, film.getDuration());
-            ps.setInt(5, film.getMpa().getId());
+            PreparedStatement ps = connection.prepareStatement(INSERT_FILM_SQL, Statement.RETURN_GENERATED_KEYS);
+            setFilmParameters(ps, film);
             return ps;
         }, keyHolder);
 
         int filmId = keyHolder.getKey().intValue();
         film.setId(filmId);
         addGenresToFilm(filmId, film.getGenres());
+        AfterCommit.run(() -> popularityIndex.put(film, 0));
+        record(() -> FilmChanges.snapshot(film, 0));
 
         return film;
     }
 
     @Override
+    @Transactional
     public Film updateFilm(Film film) {
         String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? WHERE id = ?";
-        jdbcTemplate.update(sql,
+        int updatedRows = jdbcTemplate.update(sql,
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
                 film.getDuration(),
                 film.getMpa().getId(),
                 film.getId());
+        if (updatedRows == 0) {
+            throw new FilmNotFoundException(film.getId());
+        }
 
         // Удаляем старые жанры
         jdbcTemplate.update("DELETE FROM film_genres WHERE film_id = ?", film.getId());
 
         // Добавляем новые без дубликатов
         addGenresToFilm(film.getId(), film.getGenres());
+        AfterCommit.run(() -> popularityIndex.update(film));
+        record(() -> FilmChanges.film(film));
 
         return film;
     }
 
     @Override
+    @Transactional
     public void deleteFilm(Integer id) {
         String checkSql = "SELECT COUNT(*) FROM films WHERE id = ?";
         Integer count = jdbcTemplate.queryForObject(checkSql, Integer.class, id);
 
         if (count == 0) {
-            throw new RuntimeException("Film with id " + id + " not found");
+            throw new FilmNotFoundException(id);
         }
 
         String sql = "DELETE FROM films WHERE id = ?";
         jdbcTemplate.update(sql, id);
+        AfterCommit.run(() -> popularityIndex.remove(id));
+        record(() -> FilmChanges.deleted(id));
     }
 
     @Override
     public Film getFilm(Integer id) {
-        String sql = "SELECT f.*, m.name AS mpa_name " +
-                "FROM films f " +
-                "JOIN mpa m ON f.mpa_id = m.id " +
-                "WHERE f.id = ?";
-        Film film = jdbcTemplate.queryForObject(sql, new FilmRowMapper(), id);
+        List<Film> films = new ArrayList<>(1);
+        FilmAssembler assembler = new FilmAssembler(films::add);
+        jdbcTemplate.query(FILM_SELECT + "WHERE f.id = ? ORDER BY g.id", assembler, id);
+        assembler.flush();
+        if (films.isEmpty()) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        return films.get(0);
+    }
 
-        String genreSql = "SELECT g.id, g.name FROM genres g " +
-                "JOIN film_genres fg ON g.id = fg.genre_id WHERE fg.film_id = ?";
-        List<Genre> genres = jdbcTemplate.query(genreSql, new GenreRowMapper(), id);
-        film.setGenres(new ArrayList<>(new LinkedHashSet<>(genres)));
+    @Override
+    public List<Film> getAllFilms() {
+        List<Film> films = new ArrayList<>();
+        forEachFilm(films::add);
+        return films;
+    }
 
-        return film;
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        // LIMIT считаем по фильмам, а не по строкам с жанрами, поэтому страница выбирается подзапросом
+        String sql = FILM_COLUMNS +
+                "FROM (SELECT * FROM films WHERE id > ? ORDER BY id LIMIT ?) f " +
+                FILM_JOINS +
+                "ORDER BY f.id, g.id";
+        List<Film> films = new ArrayList<>(limit);
+        FilmAssembler assembler = new FilmAssembler(films::add);
+        jdbcTemplate.query(sql, assembler, afterId, limit);
+        assembler.flush();
+        return films;
     }
 
     @Override
-    public List<Film> getAllFilms() {
-        String sql = "SELECT f.*, m.name AS mpa_name " +
-                "FROM films f " +
-                "JOIN mpa m ON f.mpa_id = m.id";
-        List<Film> films = jdbcTemplate.query(sql, new FilmRowMapper());
+    public void forEachFilm(Consumer<Film> action) {
+        FilmAssembler assembler = new FilmAssembler(action);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(FILM_SELECT + "ORDER BY f.id, g.id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, assembler);
+        assembler.flush();
+    }
 
-        for (Film film : films) {
-            String genreSql = "SELECT g.id, g.name FROM genres g " +
-                    "JOIN film_genres fg ON g.id = fg.genre_id WHERE fg.film_id = ?";
-            List<Genre> genres = jdbcTemplate.query(genreSql, new GenreRowMapper(), film.getId());
-            film.setGenres(new ArrayList<>(new LinkedHashSet<>(genres)));
+    // Собирает фильмы из плоского результата films + mpa + genres, отсортированного по id фильма:
+    // строки одного фильма идут подряд, поэтому фильм отдаётся дальше, как только id сменился.
+    private static class FilmAssembler implements RowCallbackHandler {
+        private final Consumer<Film> sink;
+        private Film current;
+
+        FilmAssembler(Consumer<Film> sink) {
+            this.sink = sink;
         }
 
-        return films;
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int filmId = rs.getInt("id");
+            if (current == null || current.getId() != filmId) {
+                flush();
+                current = mapFilm(rs);
+            }
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                current.getGenres().add(new Genre(genreId, rs.getString("genre_name")));
+            }
+        }
+
+        void flush() {
+            if (current != null) {
+                sink.accept(current);
+                current = null;
+            }
+        }
     }
 
-    // Сделали НЕ static, чтобы можно было вызывать нестатические методы класса
-    private class FilmRowMapper implements RowMapper<Film> {
+    // Строки фильма с каждым его жанром идут подряд; фильм попадает в рейтинг, когда собраны все жанры
+    private static class PopularityLoader implements RowCallbackHandler {
+        private final PopularityIndex index;
+        private final Consumer<byte[]> records;
+        private Film current;
+        private int likes;
+
+        PopularityLoader(PopularityIndex index, Consumer<byte[]> records) {
+            this.index = index;
+            this.records = records;
+        }
+
         @Override
-        public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
-            Film film = new Film();
-            film.setId(rs.getInt("id"));
-            film.setName(rs.getString("name"));
-            film.setDescription(rs.getString("description"));
-            film.setReleaseDate(rs.getDate("release_date").toLocalDate());
-            film.setDuration(rs.getInt("duration"));
-            int mpaId = rs.getInt("mpa_id");
-            String mpaName = rs.getString("mpa_name");
-            film.setMpa(new Mpa(mpaId, mpaName));
-            return film;
+        public void processRow(ResultSet rs) throws SQLException {
+            int filmId = rs.getInt("id");
+            if (current == null || current.getId() != filmId) {
+                flush();
+                current = new Film();
+                current.setId(filmId);
+                current.setName(rs.getString("name"));
+                if (records != null) {
+                    current.setDescription(rs.getString("description"));
+                }
+                Date releaseDate = rs.getDate("release_date");
+                current.setReleaseDate(releaseDate == null ? null : releaseDate.toLocalDate());
+                likes = rs.getInt("likes_count");
+            }
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                current.getGenres().add(new Genre(genreId, null));
+            }
+        }
+
+        void flush() {
+            if (current != null) {
+                index.put(current, likes);
+                if (records != null) {
+                    records.accept(FilmChanges.snapshot(current, likes));
+                }
+                current = null;
+            }
+        }
+    }
+
+    // Чтение лайков из таблицы должно видеть и ещё не записанные
+    private void flushPendingLikes() {
+        if (likeBuffer != null) {
+            likeBuffer.flush();
         }
     }
 
+    private static Film mapFilm(ResultSet rs) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getInt("id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getDate("release_date").toLocalDate());
+        film.setDuration(rs.getInt("duration"));
+        int mpaId = rs.getInt("mpa_id");
+        String mpaName = rs.getString("mpa_name");
+        film.setMpa(new Mpa(mpaId, mpaName));
+        return film;
+    }
+
+    private static void setFilmParameters(PreparedStatement ps, Film film) throws SQLException {
+        ps.setString(1, film.getName());
+        ps.setString(2, film.getDescription());
+        ps.setObject(3, film.getReleaseDate());
+        ps.setObject(4, film.getDuration());
+        ps.setInt(5, film.getMpa().getId());
+    }
+
     private void addGenresToFilm(int filmId, List<Genre> genres) {
         String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
 
@@ -151,28 +413,231 @@ public class FilmDbStorage implements FilmStorage {
         });
     }
 
-    private static class GenreRowMapper implements RowMapper<Genre> {
+    @Override
+    @Transactional
+    public boolean addLike(int filmId, int userId) {
+        if (likeBuffer != null) {
+            if (!likeBuffer.like(filmId, userId)) {
+                return false;
+            }
+            // В журнал лайк попадёт, когда буфер запишет его в таблицу
+            AfterCommit.run(() -> popularityIndex.adjustLikes(filmId, 1));
+            return true;
+        }
+        // Существование фильма и пользователя проверяют ключи film_likes: отдельных запросов на каждый лайк нет
+        try {
+            jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmId, userId);
+        } catch (DuplicateKeyException e) {
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            checkReferences(filmId, userId);
+            throw e;
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", filmId);
+        AfterCommit.run(() -> popularityIndex.adjustLikes(filmId, 1));
+        record(() -> FilmChanges.liked(filmId, userId));
+        return true;
+    }
+
+    @Override
+    @Transactional
+    public boolean removeLike(int filmId, int userId) {
+        if (likeBuffer != null) {
+            if (!likeBuffer.unlike(filmId, userId)) {
+                return false;
+            }
+            AfterCommit.run(() -> popularityIndex.adjustLikes(filmId, -1));
+            return true;
+        }
+        int removed = jdbcTemplate.update("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?", filmId, userId);
+        if (removed == 0) {
+            checkReferences(filmId, userId); // лайка нет — возможно, нет фильма или пользователя
+            return false;
+        }
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", filmId);
+        AfterCommit.run(() -> popularityIndex.adjustLikes(filmId, -1));
+        record(() -> FilmChanges.unliked(filmId, userId));
+        return true;
+    }
+
+    // Рейтинг сдвигается при постановке лайка в буфер, журнал — при записи пакета в таблицу
+    private class BufferedLikes implements LikeWriteBuffer.Listener {
         @Override
-        public Genre mapRow(ResultSet rs, int rowNum) throws SQLException {
-            return new Genre(rs.getInt("id"), rs.getString("name"));
+        public void written(int filmId, int userId, boolean like) {
+            record(() -> like ? FilmChanges.liked(filmId, userId) : FilmChanges.unliked(filmId, userId));
+        }
+
+        // Лайк, который таблица не приняла, возвращает сдвиг рейтинга назад
+        @Override
+        public void skipped(int filmId, int userId, boolean like) {
+            popularityIndex.adjustLikes(filmId, like ? -1 : 1);
+        }
+    }
+
+    // Один запрос на обе проверки; выполняется только когда лайк не удалось поставить или снять
+    private void checkReferences(int filmId, int userId) {
+        jdbcTemplate.query("SELECT EXISTS (SELECT 1 FROM users WHERE id = ?), EXISTS (SELECT 1 FROM films WHERE id = ?)",
+                rs -> {
+                    requireReferences(rs.getBoolean(1), rs.getBoolean(2), filmId, userId);
+                }, userId, filmId);
+    }
+
+    static void requireReferences(boolean userExists, boolean filmExists, int filmId, int userId) {
+        if (!userExists) {
+            throw new UserNotFoundException("Пользователь с ID " + userId + " не найден");
+        }
+        if (!filmExists) {
+            throw new FilmNotFoundException(filmId);
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return getFilmsByIds(popularityIndex.top(count));
+    }
+
+    @Override
+    public List<Integer> getPopularFilmIds(int count) {
+        return popularityIndex.top(count);
+    }
+
+    @Override
+    public List<Integer> getPopularFilmIds(int count, Integer genreId, Integer year) {
+        return popularityIndex.top(count, genreId, year);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // Фильмы вместе с жанрами одним запросом на каждые ArrayParameters.CHUNK_SIZE id
+        Map<Integer, Film> filmsById = new HashMap<>(ids.size());
+        for (List<Integer> chunk : ArrayParameters.chunks(new LinkedHashSet<>(ids))) {
+            FilmAssembler assembler = new FilmAssembler(film -> filmsById.put(film.getId(), film));
+            jdbcTemplate.query(FILM_SELECT + "WHERE f.id = ANY(?) ORDER BY f.id, g.id",
+                    ps -> ArrayParameters.bind(ps, "INTEGER", chunk), assembler);
+            assembler.flush();
         }
+        return ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
-    public void addLike(int filmId, int userId) {
-        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", filmId, userId);
+    @Override
+    public void forEachLike(IntPairConsumer action) {
+        flushPendingLikes();
+        readLikes(action);
     }
 
-    public void removeLike(int filmId, int userId) {
-        jdbcTemplate.update("DELETE FROM film_likes WHERE film_id = ? AND user_id = ?", filmId, userId);
+    private void readLikes(IntPairConsumer action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT film_id, user_id FROM film_likes",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(rs.getInt(1), rs.getInt(2)));
+    }
+
+    // Фильмы и их жанры двумя пакетными запросами вместо двух запросов на каждый фильм
+    @Override
+    @Transactional
+    public List<Film> addFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_FILM_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setFilmParameters(ps, films.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<int[]> filmGenres = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).values().iterator().next()).intValue());
+            if (film.getGenres() == null) {
+                continue;
+            }
+            film.getGenres().stream()
+                    .map(Genre::getId)
+                    .distinct()
+                    .forEach(genreId -> filmGenres.add(new int[]{film.getId(), genreId}));
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)",
+                filmGenres, filmGenres.size(), (ps, pair) -> {
+                    ps.setInt(1, pair[0]);
+                    ps.setInt(2, pair[1]);
+                });
+
+        for (Film film : films) {
+            AfterCommit.run(() -> popularityIndex.put(film, 0));
+            record(() -> FilmChanges.snapshot(film, 0));
+        }
+        return films;
+    }
+
+    @Override
+    @Transactional
+    public boolean[] addLikes(List<FilmLike> likes) {
+        boolean[] added = new boolean[likes.size()];
+        if (likes.isEmpty()) {
+            return added;
+        }
+        flushPendingLikes(); // иначе отложенный лайк из пакета посчитался бы дважды
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_LIKE_IF_ABSENT_SQL, likes, likes.size(), (ps, like) -> {
+            ps.setInt(1, like.filmId());
+            ps.setInt(2, like.userId());
+            ps.setInt(3, like.filmId());
+            ps.setInt(4, like.userId());
+        });
+
+        // Счётчики likes_count сдвигаются одним пакетом, по строке на фильм
+        Map<Integer, Integer> deltas = new LinkedHashMap<>();
+        for (int i = 0; i < likes.size(); i++) {
+            added[i] = counts[0][i] > 0;
+            if (added[i]) {
+                FilmLike like = likes.get(i);
+                deltas.merge(like.filmId(), 1, Integer::sum);
+                record(() -> FilmChanges.liked(like.filmId(), like.userId()));
+            }
+        }
+        List<Map.Entry<Integer, Integer>> updates = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?",
+                updates, updates.size(), (ps, delta) -> {
+                    ps.setInt(1, delta.getValue());
+                    ps.setInt(2, delta.getKey());
+                });
+        deltas.forEach((filmId, delta) -> AfterCommit.run(() -> popularityIndex.adjustLikes(filmId, delta)));
+        return added;
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Integer> existing = new HashSet<>();
+        for (List<Integer> chunk : ArrayParameters.chunks(ids)) {
+            jdbcTemplate.query("SELECT id FROM films WHERE id = ANY(?)", ps -> ArrayParameters.bind(ps, "INTEGER", chunk),
+                    (RowCallbackHandler) rs -> existing.add(rs.getInt(1)));
+        }
+        return existing;
     }
 
     public List<Integer> getLikesForFilm(int filmId) {
+        flushPendingLikes();
         String sql = "SELECT user_id FROM film_likes WHERE film_id = ?";
         return jdbcTemplate.queryForList(sql, Integer.class, filmId);
     }
-
-    private String getMpaName(int id) {
-        String sql = "SELECT name FROM mpa WHERE id = ?";
-        return jdbcTemplate.queryForObject(sql, String.class, id);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+import ru.yandex.practicum.filmorate.storage.FriendGraph;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+
+// Записи журнала дружбы (ChangeLog): ADDED и REMOVED — одна связь,
+// FRIENDS — весь отсортированный список друзей пользователя (так пишется контрольная точка)
+final class FriendChanges {
+
+    private static final byte ADDED = 1;
+    private static final byte REMOVED = 2;
+    private static final byte FRIENDS = 3;
+
+    private FriendChanges() {
+    }
+
+    static byte[] added(int userId, int friendId) {
+        return ByteBuffer.allocate(9).put(ADDED).putInt(userId).putInt(friendId).array();
+    }
+
+    static byte[] removed(int userId, int friendId) {
+        return ByteBuffer.allocate(9).put(REMOVED).putInt(userId).putInt(friendId).array();
+    }
+
+    static byte[] friends(int userId, int[] friendIds) {
+        ByteBuffer buffer = ByteBuffer.allocate(9 + 4 * friendIds.length)
+                .put(FRIENDS).putInt(userId).putInt(friendIds.length);
+        for (int friendId : friendIds) {
+            buffer.putInt(friendId);
+        }
+        return buffer.array();
+    }
+
+    // Возвращает, на сколько изменилось число связей в графе
+    static int apply(ByteBuffer record, FriendGraph graph) {
+        byte type = record.get();
+        int userId = record.getInt();
+        return switch (type) {
+            case ADDED -> graph.addEdge(userId, record.getInt()) ? 1 : 0;
+            case REMOVED -> graph.removeEdge(userId, record.getInt()) ? -1 : 0;
+            case FRIENDS -> {
+                int previous = graph.friends(userId).length;
+                int[] friendIds = readInts(record);
+                graph.putFriends(userId, friendIds);
+                yield friendIds.length - previous;
+            }
+            default -> throw new IllegalStateException("Неизвестная запись журнала дружбы: " + type);
+        };
+    }
+
+    // Свёртка для сжатия журнала: на пользователя остаётся одна запись FRIENDS
+    static ChangeLog.State fold() {
+        return new Fold();
+    }
+
+    private static int[] readInts(ByteBuffer record) {
+        int[] values = new int[record.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = record.getInt();
+        }
+        return values;
+    }
+
+    private static class Fold implements ChangeLog.State {
+        private final Map<Integer, TreeSet<Integer>> friends = new HashMap<>();
+
+        @Override
+        public void apply(ByteBuffer record) {
+            byte type = record.get();
+            int userId = record.getInt();
+            switch (type) {
+                case ADDED -> friends.computeIfAbsent(userId, id -> new TreeSet<>()).add(record.getInt());
+                case REMOVED -> {
+                    TreeSet<Integer> list = friends.get(userId);
+                    if (list != null && list.remove(record.getInt()) && list.isEmpty()) {
+                        friends.remove(userId);
+                    }
+                }
+                case FRIENDS -> {
+                    TreeSet<Integer> list = new TreeSet<>();
+                    for (int friendId : readInts(record)) {
+                        list.add(friendId);
+                    }
+                    if (list.isEmpty()) {
+                        friends.remove(userId);
+                    } else {
+                        friends.put(userId, list);
+                    }
+                }
+                default -> throw new IllegalStateException("Неизвестная запись журнала дружбы: " + type);
+            }
+        }
+
+        @Override
+        public void writeTo(Consumer<byte[]> out) {
+            friends.forEach((userId, list) ->
+                    out.accept(friends(userId, list.stream().mapToInt(Integer::intValue).toArray())));
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.util.AfterCommit;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Отложенная запись лайков: вместо INSERT/DELETE с коммитом на каждый лайк изменения копятся в памяти
+// и пишутся пакетом в одной транзакции — по размеру буфера или раз в flushInterval.
+// Для пары (фильм, пользователь) хранится только итог: лайк и следующая за ним отмена взаимно уничтожаются.
+// Переполненный буфер записывает сам вызывающий поток — это и есть обратное давление на запросы.
+// Пока пакет пишется, он остаётся виден проверкам «есть ли лайк» до коммита; пакет, который не удалось
+// записать, возвращается в буфер и пишется следующим.
+@Slf4j
+class LikeWriteBuffer implements AutoCloseable {
+
+    // Итог записи пакета по каждой паре
+    interface Listener {
+        // Таблица приняла изменение; вызывается внутри транзакции пакета
+        void written(int filmId, int userId, boolean like);
+
+        // Таблица не приняла изменение: фильм или пользователь удалён; вызывается после коммита пакета
+        void skipped(int filmId, int userId, boolean like);
+    }
+
+    // Вставка пропускает уже существующий лайк и лайк к удалённому за время ожидания фильму или пользователю
+    private static final String INSERT_LIKE_SQL = "INSERT INTO film_likes (film_id, user_id) " +
+            "SELECT CAST(? AS INT), CAST(? AS INT) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?) " +
+            "AND EXISTS (SELECT 1 FROM films WHERE id = ?) AND EXISTS (SELECT 1 FROM users WHERE id = ?)";
+    private static final String DELETE_LIKE_SQL = "DELETE FROM film_likes WHERE film_id = ? AND user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int capacity;
+    private final Listener listener;
+    private final ScheduledExecutorService flusher;
+
+    // true — лайк поставлен, false — снят; ключ — пара (filmId, userId)
+    private volatile ConcurrentMap<Long, Boolean> pending = new ConcurrentHashMap<>();
+    private volatile Map<Long, Boolean> inFlight = Map.of();
+    // Растёт при каждом снятии пакета из inFlight: по нему видно, что прочитанное из таблицы могло устареть
+    private volatile long flushes;
+
+    // Изменения берут его на чтение, подмена pending при записи — на запись
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    LikeWriteBuffer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                    int batchSize, int capacity, long flushIntervalMs, Listener listener) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.capacity = Math.max(capacity, batchSize);
+        this.listener = listener;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "like-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // false, если пользователь уже ставил лайк
+    boolean like(int filmId, int userId) {
+        return change(filmId, userId, true);
+    }
+
+    // false, если лайка не было
+    boolean unlike(int filmId, int userId) {
+        return change(filmId, userId, false);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    // Записывает всё накопленное; вызывается и перед чтением лайков из таблицы
+    void flush() {
+        synchronized (flushLock) {
+            flushRequested.set(false);
+            Map<Long, Boolean> batch;
+            swapLock.writeLock().lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new ConcurrentHashMap<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            boolean written = false;
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+                written = true;
+            } catch (DataAccessException e) {
+                log.error("Не удалось записать {} отложенных изменений лайков, они вернутся в буфер", batch.size(), e);
+                throw e;
+            } finally {
+                finishFlush(batch, written);
+            }
+        }
+    }
+
+    // Останавливает фоновую запись и дописывает остаток
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    // Неудачный пакет возвращается в pending. Более новое изменение той же пары всегда обратно
+    // пакетному, то есть совпадает с тем, что лежит в таблице: тогда пару писать не нужно вовсе
+    private void finishFlush(Map<Long, Boolean> batch, boolean written) {
+        swapLock.writeLock().lock();
+        try {
+            if (!written) {
+                batch.forEach((key, like) -> pending.merge(key, like, (newer, failed) -> null));
+            }
+            inFlight = Map.of();
+            flushes++;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    private boolean change(int filmId, int userId, boolean like) {
+        if (pending.size() >= capacity) {
+            flush();
+        }
+        long key = key(filmId, userId);
+        boolean[] changed = new boolean[1];
+        boolean[] stale = new boolean[1];
+        do {
+            // Таблица читается до compute: запрос к базе не держит ни ячейку pending, ни блокировку подмены
+            long seenFlushes = flushes;
+            Boolean stored = pending.containsKey(key) || inFlight.containsKey(key) ? null : isStored(key);
+            stale[0] = false;
+            swapLock.readLock().lock();
+            try {
+                pending.compute(key, (k, buffered) -> {
+                    Boolean liked = buffered != null ? buffered : inFlight.get(k);
+                    if (liked == null) {
+                        // Пока шёл запрос, пара могла побывать в записанном пакете — тогда читаем заново
+                        if (stored == null || seenFlushes != flushes) {
+                            stale[0] = true;
+                            return null;
+                        }
+                        liked = stored;
+                    }
+                    if (liked == like) {
+                        return buffered;
+                    }
+                    changed[0] = true;
+                    // Обратное изменение к ещё не записанному возвращает таблицу в её текущее состояние
+                    return buffered != null ? null : like;
+                });
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        } while (stale[0]);
+        if (pending.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+        return changed[0];
+    }
+
+    // Одним запросом заодно проверяются фильм и пользователь
+    private boolean isStored(long key) {
+        Boolean stored = jdbcTemplate.query("SELECT EXISTS (SELECT 1 FROM users WHERE id = ?), " +
+                        "EXISTS (SELECT 1 FROM films WHERE id = ?), " +
+                        "EXISTS (SELECT 1 FROM film_likes WHERE film_id = ? AND user_id = ?)",
+                rs -> {
+                    rs.next();
+                    FilmDbStorage.requireReferences(rs.getBoolean(1), rs.getBoolean(2), filmId(key), userId(key));
+                    return rs.getBoolean(3);
+                }, userId(key), filmId(key), filmId(key), userId(key));
+        return Boolean.TRUE.equals(stored);
+    }
+
+    private void write(Map<Long, Boolean> batch) {
+        List<Long> added = new ArrayList<>();
+        List<Long> removed = new ArrayList<>();
+        batch.forEach((key, like) -> (like ? added : removed).add(key));
+
+        Map<Integer, Integer> deltas = new LinkedHashMap<>();
+        int[][] inserted = jdbcTemplate.batchUpdate(INSERT_LIKE_SQL, added, batchSize, (ps, key) -> {
+            ps.setInt(1, filmId(key));
+            ps.setInt(2, userId(key));
+            ps.setInt(3, filmId(key));
+            ps.setInt(4, userId(key));
+            ps.setInt(5, filmId(key));
+            ps.setInt(6, userId(key));
+        });
+        collectDeltas(inserted, added, 1, deltas);
+        int[][] deleted = jdbcTemplate.batchUpdate(DELETE_LIKE_SQL, removed, batchSize, (ps, key) -> {
+            ps.setInt(1, filmId(key));
+            ps.setInt(2, userId(key));
+        });
+        collectDeltas(deleted, removed, -1, deltas);
+
+        report(inserted, added, true);
+        report(deleted, removed, false);
+
+        List<Map.Entry<Integer, Integer>> updates = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE id = ?",
+                updates, batchSize, (ps, delta) -> {
+                    ps.setInt(1, delta.getValue());
+                    ps.setInt(2, delta.getKey());
+                });
+        log.debug("Записано изменений лайков: {}", batch.size());
+    }
+
+    // batchUpdate делит список на пакеты по batchSize: счётчики строк идут в том же порядке
+    private static void collectDeltas(int[][] counts, List<Long> keys, int sign, Map<Integer, Integer> deltas) {
+        int i = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                if (count > 0) {
+                    deltas.merge(filmId(keys.get(i)), sign, Integer::sum);
+                }
+                i++;
+            }
+        }
+    }
+
+    private void report(int[][] counts, List<Long> keys, boolean like) {
+        int i = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                int filmId = filmId(keys.get(i));
+                int userId = userId(keys.get(i));
+                if (count > 0) {
+                    listener.written(filmId, userId, like);
+                } else {
+                    AfterCommit.run(() -> listener.skipped(filmId, userId, like));
+                }
+                i++;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Уже записано в лог в flush; фоновая запись продолжится со следующими изменениями
+        }
+    }
+
+    private static long key(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static int filmId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int userId(long key) {
+        return (int) key;
+    }
+}
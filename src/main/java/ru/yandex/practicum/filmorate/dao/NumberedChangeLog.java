@@ -0,0 +1,237 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.storage.ChangeLog;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Журнал изменений DAO, сверяемый с базой по номерам. Транзакция, изменившая таблицы, берёт номер
+// из последовательности базы и после завершения дописывает одну запись с этим номером: после коммита —
+// со своими изменениями, после отката — пустую. Журнал полон, если в нём есть каждый номер от контрольной
+// точки до последнего выданного базой; иначе (сбой между коммитом и записью, база заменена или восстановлена
+// из копии) состояние читается из таблиц. Изменения таблиц в обход приложения номеров не берут и так не видны.
+// Записи: STATE — изменение из контрольной точки, CHANGES — номер транзакции и её изменения,
+// BASE — номер, на котором снята контрольная точка, и меньшие номера, которых в ней ещё нет
+@Slf4j
+final class NumberedChangeLog implements AutoCloseable {
+
+    private static final byte STATE = 1;
+    private static final byte CHANGES = 2;
+    private static final byte BASE = 3;
+
+    // Номера выдаются с 1: точка, ждущая номер 0, никогда не станет полной
+    private static final long NEVER = 0;
+
+    private final ChangeLog changeLog;
+    private final JdbcTemplate jdbcTemplate;
+    private final String sequence;
+
+    NumberedChangeLog(Path directory, int segmentSize, int compactAfter, Supplier<ChangeLog.State> stateFactory,
+                      JdbcTemplate jdbcTemplate, String sequence) {
+        this.changeLog = new ChangeLog(directory, segmentSize, compactAfter, () -> new Fold(stateFactory.get()));
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequence = sequence;
+    }
+
+    // Внутри транзакции изменения копятся и пишутся одной записью после её завершения; вне транзакции — сразу.
+    // Вне транзакции номер берётся уже после изменения таблиц, и сбой между ними не виден, поэтому DAO
+    // меняют таблицы и пишут журнал в транзакциях
+    void record(byte[] change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            changeLog.append(changes(nextNumber(), List.of(change)));
+            return;
+        }
+        Transaction transaction = (Transaction) TransactionSynchronizationManager.getResource(this);
+        if (transaction == null) {
+            transaction = new Transaction(nextNumber());
+            TransactionSynchronizationManager.bindResource(this, transaction);
+            TransactionSynchronizationManager.registerSynchronization(transaction);
+        }
+        transaction.changes.add(change);
+    }
+
+    // Отдаёт handler изменения контрольной точки и хвоста. false — журнала нет, он повреждён или в нём
+    // не хватает номеров: тогда handler мог получить часть изменений, и состояние нужно читать из таблиц
+    boolean replay(Consumer<ByteBuffer> handler) {
+        if (!changeLog.hasCheckpoint()) {
+            return false;
+        }
+        Numbering numbering = new Numbering();
+        try {
+            changeLog.replay(record -> numbering.apply(record, handler));
+        } catch (RuntimeException e) {
+            log.warn("Журнал {} не читается, состояние будет прочитано из таблиц", sequence, e);
+            return false;
+        }
+        long last = lastNumber();
+        if (numbering.isComplete(last)) {
+            return true;
+        }
+        log.warn("Журнал {} неполон: в нём номера до {}, в базе выдан {}; состояние будет прочитано из таблиц",
+                sequence, numbering.last(), last);
+        return false;
+    }
+
+    // Состояние из таблиц становится новой контрольной точкой. Последний номер читается после состояния:
+    // транзакция с меньшим номером, закоммиченная позже чтения, попадёт в журнал после точки и сделает его
+    // неполным, а не применится при старте второй раз
+    void rebase(Consumer<Consumer<byte[]>> state) {
+        changeLog.rebase(out -> {
+            state.accept(change -> out.accept(state(change)));
+            out.accept(base(lastNumber(), Set.of()));
+        });
+    }
+
+    @Override
+    public void close() {
+        changeLog.close();
+    }
+
+    private long nextNumber() {
+        return jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+    }
+
+    // BASE_VALUE — номер, который будет выдан следующим
+    private long lastNumber() {
+        return jdbcTemplate.queryForObject("SELECT BASE_VALUE - 1 FROM INFORMATION_SCHEMA.SEQUENCES " +
+                "WHERE SEQUENCE_NAME = ?", Long.class, sequence.toUpperCase());
+    }
+
+    private static byte[] state(byte[] change) {
+        return ByteBuffer.allocate(1 + change.length).put(STATE).put(change).array();
+    }
+
+    private static byte[] changes(long number, List<byte[]> changes) {
+        int size = 13;
+        for (byte[] change : changes) {
+            size += 4 + change.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size).put(CHANGES).putLong(number).putInt(changes.size());
+        for (byte[] change : changes) {
+            buffer.putInt(change.length).put(change);
+        }
+        return buffer.array();
+    }
+
+    private static byte[] base(long number, Set<Long> missing) {
+        ByteBuffer buffer = ByteBuffer.allocate(13 + 8 * missing.size())
+                .put(BASE).putLong(number).putInt(missing.size());
+        missing.forEach(buffer::putLong);
+        return buffer.array();
+    }
+
+    // Какие номера встретились после контрольной точки
+    private static class Numbering {
+        private long base = -1; // -1 — контрольной точки не было
+        private final Set<Long> missing = new HashSet<>();
+        // Бит i — номер base + 1 + i
+        private final BitSet seen = new BitSet();
+        // Номер встретился дважды или не ожидался
+        private boolean broken;
+
+        void apply(ByteBuffer record, Consumer<ByteBuffer> handler) {
+            byte type = record.get();
+            switch (type) {
+                case STATE -> handler.accept(record.slice());
+                case BASE -> {
+                    base = record.getLong();
+                    missing.clear();
+                    for (int i = record.getInt(); i > 0; i--) {
+                        missing.add(record.getLong());
+                    }
+                    seen.clear();
+                }
+                case CHANGES -> {
+                    note(record.getLong());
+                    for (int i = record.getInt(); i > 0; i--) {
+                        int length = record.getInt();
+                        handler.accept(record.slice(record.position(), length));
+                        record.position(record.position() + length);
+                    }
+                }
+                default -> throw new IllegalStateException("Неизвестная запись журнала: " + type);
+            }
+        }
+
+        // Номера идут в порядке коммитов, а не выдачи, поэтому меньший номер может прийти после большего
+        private void note(long number) {
+            if (base < 0 || number - base > Integer.MAX_VALUE) {
+                broken = true;
+            } else if (number <= base) {
+                broken |= !missing.remove(number);
+            } else {
+                int bit = (int) (number - base - 1);
+                broken |= seen.get(bit);
+                seen.set(bit);
+            }
+        }
+
+        long last() {
+            return base + seen.length();
+        }
+
+        boolean isComplete(long lastNumber) {
+            return !broken && base >= 0 && missing.isEmpty()
+                    && seen.length() == lastNumber - base && seen.cardinality() == seen.length();
+        }
+
+        // Номера не больше last(), которых пока нет
+        Set<Long> gaps() {
+            if (broken || base < 0) {
+                return Set.of(NEVER);
+            }
+            Set<Long> gaps = new HashSet<>(missing);
+            for (int bit = seen.nextClearBit(0); bit < seen.length(); bit = seen.nextClearBit(bit + 1)) {
+                gaps.add(base + 1 + bit);
+            }
+            return gaps;
+        }
+    }
+
+    // Свёртка для сжатия: состояние DAO и номер, до которого оно дошло, вместе с ещё не пришедшими номерами
+    private static class Fold implements ChangeLog.State {
+        private final ChangeLog.State state;
+        private final Numbering numbering = new Numbering();
+
+        Fold(ChangeLog.State state) {
+            this.state = state;
+        }
+
+        @Override
+        public void apply(ByteBuffer record) {
+            numbering.apply(record, state::apply);
+        }
+
+        @Override
+        public void writeTo(Consumer<byte[]> out) {
+            state.writeTo(change -> out.accept(state(change)));
+            out.accept(base(numbering.last(), numbering.gaps()));
+        }
+    }
+
+    private final class Transaction implements TransactionSynchronization {
+        private final long number;
+        private final List<byte[]> changes = new ArrayList<>();
+
+        Transaction(long number) {
+            this.number = number;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(NumberedChangeLog.this);
+            changeLog.append(changes(number, status == STATUS_COMMITTED ? changes : List.of()));
+        }
+    }
+}
@@ -1,21 +1,33 @@
 package ru.yandex.practicum.filmorate.dao;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FriendGraph;
+import ru.yandex.practicum.filmorate.storage.FriendSuggestions;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.util.AfterCommit;
+import ru.yandex.practicum.filmorate.util.IntSet;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Primary
 @Repository
@@ -23,23 +35,112 @@ public class UserDbStorage implements UserStorage {
 
     private static final Logger log = LoggerFactory.getLogger(UserDbStorage.class);
 
+    private static final String INSERT_USER_SQL = "INSERT INTO users (name, email, login, birthday) VALUES (?, ?, ?, ?)";
+
+    // Пара вставляется, только если её ещё нет, чтобы дубликат не обрывал весь пакет
+    private static final String INSERT_FRIEND_IF_ABSENT_SQL = "INSERT INTO user_friends (user_id, friend_id) " +
+            "SELECT CAST(? AS INT), CAST(? AS INT) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM user_friends WHERE user_id = ? AND friend_id = ?)";
+
+    // Сколько строк драйвер подтягивает за раз при потоковом чтении пользователей
+    private static final int FETCH_SIZE = 500;
+
+    // Обход для рекомендаций: не больше 200 друзей на узел, не больше 100 рекомендаций,
+    // готовые списки хранятся для 10 000 пользователей
+    private static final int SUGGESTION_FAN_OUT = 200;
+    private static final int MAX_SUGGESTIONS = 100;
+    private static final int SUGGESTION_CACHE_SIZE = 10_000;
+
     private final JdbcTemplate jdbcTemplate;
+    private final FriendGraph friendGraph = new FriendGraph();
+    private final FriendSuggestions friendSuggestions =
+            new FriendSuggestions(friendGraph, SUGGESTION_FAN_OUT, MAX_SUGGESTIONS, SUGGESTION_CACHE_SIZE);
+
+    // null — журнала нет, граф при старте читается из таблицы
+    private final NumberedChangeLog changeLog;
 
     public UserDbStorage(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, (NumberedChangeLog) null);
+    }
+
+    UserDbStorage(JdbcTemplate jdbcTemplate, NumberedChangeLog changeLog) {
         this.jdbcTemplate = jdbcTemplate;
+        this.changeLog = changeLog;
+    }
+
+    @Autowired
+    public UserDbStorage(JdbcTemplate jdbcTemplate, ChangeLogFactory changeLogs) {
+        this(jdbcTemplate, changeLogs.open("users", "friend_changes_seq", jdbcTemplate, FriendChanges::fold));
+    }
+
+    @PreDestroy
+    public void closeChangeLog() {
+        if (changeLog != null) {
+            changeLog.close();
+        }
+    }
+
+    // Списки друзей читаются из графа в памяти; таблица user_friends читается целиком только здесь,
+    // а с журналом — лишь когда он разошёлся с таблицей
+    @PostConstruct
+    public void loadFriendGraph() {
+        if (!replayFriendGraph()) {
+            if (changeLog == null) {
+                readFriendGraph(null);
+            } else {
+                changeLog.rebase(this::readFriendGraph);
+            }
+        }
+        friendSuggestions.invalidateAll();
+        log.info("Граф дружбы загружен: {} пользователей с друзьями", friendGraph.size());
+    }
+
+    // records — куда отдать списки друзей записями журнала, null — никуда
+    private void readFriendGraph(Consumer<byte[]> records) {
+        friendGraph.clear();
+        AdjacencyLoader loader = new AdjacencyLoader(friendGraph, records);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "SELECT user_id, friend_id FROM user_friends ORDER BY user_id, friend_id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, loader);
+        loader.flush();
+    }
+
+    // false, если журнала нет или он не сошёлся с базой: по номерам изменений и числу связей
+    private boolean replayFriendGraph() {
+        if (changeLog == null) {
+            return false;
+        }
+        friendGraph.clear();
+        long[] edges = new long[1];
+        if (!changeLog.replay(record -> edges[0] += FriendChanges.apply(record, friendGraph))) {
+            return false;
+        }
+        Long stored = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM user_friends", Long.class);
+        if (stored != null && stored == edges[0]) {
+            return true;
+        }
+        log.warn("Журнал дружбы разошёлся с таблицей user_friends ({} связей против {}), граф читается заново",
+                edges[0], stored);
+        return false;
+    }
+
+    private void record(byte[] change) {
+        if (changeLog != null) {
+            changeLog.record(change);
+        }
     }
 
     @Override
     public User addUser(User user) {
-        String sql = "INSERT INTO users (name, email, login, birthday) VALUES (?, ?, ?, ?)";
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql, new String[]{"id"});
-            ps.setString(1, user.getName());
-            ps.setString(2, user.getEmail());
-            ps.setString(3, user.getLogin());
-            ps.setObject(4, user.getBirthday());
+            PreparedStatement ps = connection.prepareStatement(INSERT_USER_SQL, new String[]{"id"});
+            setUserParameters(ps, user);
             return ps;
         }, keyHolder);
 
@@ -68,12 +169,7 @@ public class UserDbStorage implements UserStorage {
         String sql = "SELECT * FROM users WHERE id = ?";
         try {
             User user = jdbcTemplate.queryForObject(sql, new UserRowMapper(), id);
-
-            // Загружаем друзей (ID)
-            List<Integer> friendIds = jdbcTemplate.queryForList(
-                    "SELECT friend_id FROM user_friends WHERE user_id = ?", Integer.class, id);
-            user.setFriends(new HashSet<>(friendIds));
-
+            user.setFriends(IntSet.of(friendGraph.friends(id)));
             return user;
         } catch (EmptyResultDataAccessException e) {
             log.warn("User with id {} not found", id);
@@ -88,18 +184,53 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    public List<User> getUsersPage(int afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, new UserRowMapper(), afterId, limit);
+    }
+
+    @Override
+    public void forEachUser(Consumer<User> action) {
+        UserRowMapper rowMapper = new UserRowMapper();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement("SELECT * FROM users ORDER BY id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(rowMapper.mapRow(rs, rs.getRow())));
+    }
+
+    @Override
+    @Transactional
     public void addFriend(Integer userId, Integer friendId) {
         if (userId.equals(friendId)) {
             throw new IllegalArgumentException("Нельзя добавить себя в друзья");
         }
         String sql = "INSERT INTO user_friends (user_id, friend_id) VALUES (?, ?)";
         jdbcTemplate.update(sql, userId, friendId);
+        AfterCommit.run(() -> addEdge(userId, friendId));
+        record(FriendChanges.added(userId, friendId));
     }
 
     @Override
+    @Transactional
     public void removeFriend(Integer userId, Integer friendId) {
         String sql = "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sql, userId, friendId);
+        if (jdbcTemplate.update(sql, userId, friendId) > 0) {
+            AfterCommit.run(() -> {
+                if (friendGraph.removeEdge(userId, friendId)) {
+                    friendSuggestions.invalidate(userId);
+                }
+            });
+            record(FriendChanges.removed(userId, friendId));
+        }
+    }
+
+    // Граф и кэш подсказок меняются после коммита: после отката они не опережают таблицу
+    private void addEdge(int userId, int friendId) {
+        if (friendGraph.addEdge(userId, friendId)) {
+            friendSuggestions.invalidate(userId);
+        }
     }
 
     public List<User> getFriends(Integer userId) {
@@ -111,10 +242,21 @@ public class UserDbStorage implements UserStorage {
 
     @Override
     public List<Integer> getCommonFriends(Integer userId1, Integer userId2) {
-        String sql = "SELECT friend_id FROM user_friends WHERE user_id = ? " +
-                "INTERSECT " +
-                "SELECT friend_id FROM user_friends WHERE user_id = ?";
-        return jdbcTemplate.queryForList(sql, Integer.class, userId1, userId2);
+        return toList(friendGraph.commonFriends(userId1, userId2));
+    }
+
+    @Override
+    public List<Integer> getCommonFriends(List<Integer> userIds) {
+        return toList(friendGraph.commonFriends(userIds.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    @Override
+    public List<Integer> getFriendSuggestions(int userId, int limit) {
+        return toList(friendSuggestions.suggest(userId, limit));
+    }
+
+    private static List<Integer> toList(int[] ids) {
+        return Arrays.stream(ids).boxed().toList();
     }
 
     @Override
@@ -125,20 +267,156 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
-    public Set<User> getUsersByIds(Set<Integer> ids) {
+    public List<User> getUsersByIds(Collection<Integer> ids) {
         if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Integer, User> usersById = new HashMap<>(ids.size());
+        UserRowMapper mapper = new UserRowMapper();
+        for (List<Integer> chunk : ArrayParameters.chunks(new LinkedHashSet<>(ids))) {
+            jdbcTemplate.query("SELECT * FROM users WHERE id = ANY(?)", ps -> ArrayParameters.bind(ps, "INTEGER", chunk),
+                    (RowCallbackHandler) rs -> {
+                        User user = mapper.mapRow(rs, 0);
+                        usersById.put(user.getId(), user);
+                    });
+        }
+        return ids.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public List<User> addUsers(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_USER_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setUserParameters(ps, users.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return users.size();
+                    }
+                }, keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).setId(((Number) keys.get(i).values().iterator().next()).intValue());
+        }
+        return users;
+    }
+
+    @Override
+    @Transactional
+    public boolean[] addFriends(List<Friendship> friendships) {
+        boolean[] added = new boolean[friendships.size()];
+        if (friendships.isEmpty()) {
+            return added;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_FRIEND_IF_ABSENT_SQL, friendships, friendships.size(),
+                (ps, friendship) -> {
+                    ps.setInt(1, friendship.userId());
+                    ps.setInt(2, friendship.friendId());
+                    ps.setInt(3, friendship.userId());
+                    ps.setInt(4, friendship.friendId());
+                });
+        for (int i = 0; i < added.length; i++) {
+            added[i] = counts[0][i] > 0;
+            Friendship friendship = friendships.get(i);
+            if (added[i]) {
+                AfterCommit.run(() -> addEdge(friendship.userId(), friendship.friendId()));
+                record(FriendChanges.added(friendship.userId(), friendship.friendId()));
+            }
+        }
+        return added;
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
             return Collections.emptySet();
         }
+        Set<Integer> existing = new HashSet<>();
+        for (List<Integer> chunk : ArrayParameters.chunks(ids)) {
+            jdbcTemplate.query("SELECT id FROM users WHERE id = ANY(?)", ps -> ArrayParameters.bind(ps, "INTEGER", chunk),
+                    (RowCallbackHandler) rs -> existing.add(rs.getInt(1)));
+        }
+        return existing;
+    }
 
-        // Построение параметров IN с вопросиками
-        String inSql = String.join(",", Collections.nCopies(ids.size(), "?"));
-        String sql = "SELECT * FROM users WHERE id IN (" + inSql + ")";
+    @Override
+    public Set<String> getTakenEmails(Collection<String> emails) {
+        return findTaken("email", emails);
+    }
 
-        return new HashSet<>(jdbcTemplate.query(
-                sql,
-                ids.toArray(),
-                new UserRowMapper()
-        ));
+    @Override
+    public Set<String> getTakenLogins(Collection<String> logins) {
+        return findTaken("login", logins);
+    }
+
+    private Set<String> findTaken(String column, Collection<String> values) {
+        if (values.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> taken = new HashSet<>();
+        String sql = "SELECT " + column + " FROM users WHERE " + column + " = ANY(?)";
+        for (List<String> chunk : ArrayParameters.chunks(values)) {
+            jdbcTemplate.query(sql, ps -> ArrayParameters.bind(ps, "VARCHAR", chunk),
+                    (RowCallbackHandler) rs -> taken.add(rs.getString(1)));
+        }
+        return taken;
+    }
+
+    private static void setUserParameters(PreparedStatement ps, User user) throws SQLException {
+        ps.setString(1, user.getName());
+        ps.setString(2, user.getEmail());
+        ps.setString(3, user.getLogin());
+        ps.setObject(4, user.getBirthday());
+    }
+
+    // Собирает строки, упорядоченные по (user_id, friend_id), в отсортированные массивы друзей
+    private static class AdjacencyLoader implements RowCallbackHandler {
+        private final FriendGraph graph;
+        private final Consumer<byte[]> records;
+        private int userId;
+        private int[] friends = new int[16];
+        private int count;
+
+        private AdjacencyLoader(FriendGraph graph, Consumer<byte[]> records) {
+            this.graph = graph;
+            this.records = records;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int rowUserId = rs.getInt("user_id");
+            if (rowUserId != userId) {
+                flush();
+                userId = rowUserId;
+            }
+            if (count == friends.length) {
+                friends = Arrays.copyOf(friends, count * 2);
+            }
+            friends[count++] = rs.getInt("friend_id");
+        }
+
+        private void flush() {
+            if (count > 0) {
+                int[] friendIds = Arrays.copyOf(friends, count);
+                graph.putFriends(userId, friendIds);
+                if (records != null) {
+                    records.accept(FriendChanges.friends(userId, friendIds));
+                }
+                count = 0;
+            }
+        }
     }
 
     private static class UserRowMapper implements RowMapper<User> {
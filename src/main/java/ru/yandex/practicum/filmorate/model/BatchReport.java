@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.List;
+
+// Ответ пакетной загрузки: счётчики по статусам и результат каждой строки в порядке входного потока
+public record BatchReport(int created, int skipped, int failed, List<BatchRowResult> rows) {
+
+    public static BatchReport of(List<BatchRowResult> rows) {
+        int created = 0;
+        int skipped = 0;
+        int failed = 0;
+        for (BatchRowResult row : rows) {
+            switch (row.status()) {
+                case CREATED -> created++;
+                case SKIPPED -> skipped++;
+                case FAILED -> failed++;
+            }
+        }
+        return new BatchReport(created, skipped, failed, rows);
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Итог обработки одной строки NDJSON: номер строки, статус, id созданной записи или текст ошибки
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchRowResult(int line, Status status, Integer id, String error) {
+
+    public enum Status {
+        CREATED, // запись добавлена
+        SKIPPED, // такая запись уже была
+        FAILED   // строка отклонена
+    }
+
+    public static BatchRowResult created(int line, Integer id) {
+        return new BatchRowResult(line, Status.CREATED, id, null);
+    }
+
+    public static BatchRowResult skipped(int line, String reason) {
+        return new BatchRowResult(line, Status.SKIPPED, null, reason);
+    }
+
+    public static BatchRowResult failed(int line, String error) {
+        return new BatchRowResult(line, Status.FAILED, null, error);
+    }
+}
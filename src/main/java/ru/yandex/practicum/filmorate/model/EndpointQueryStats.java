@@ -0,0 +1,6 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Накопленный SQL одного эндпоинта, например "GET /films/{id}"
+public record EndpointQueryStats(String endpoint, long requests, long statements, long rows, double dbTimeMs,
+                                 double statementsPerRequest, long maxStatements) {
+}
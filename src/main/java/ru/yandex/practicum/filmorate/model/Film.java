@@ -3,16 +3,16 @@ package ru.yandex.practicum.filmorate.model;
 import jakarta.validation.constraints.*;
 import lombok.Data;
 
+import ru.yandex.practicum.filmorate.util.IntSet;
+
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 @Data
 public class Film {
     private Integer id;
-    private Set<Integer> likes = new HashSet<>();
+    private IntSet likes = new IntSet();
 
     @NotNull(message = "Название не может быть пустым")
     private String name;
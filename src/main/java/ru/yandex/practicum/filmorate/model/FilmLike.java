@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Строка пакетной загрузки лайков: пользователь userId лайкнул фильм filmId
+public record FilmLike(Integer filmId, Integer userId) {
+}
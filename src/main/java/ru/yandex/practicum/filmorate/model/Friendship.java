@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Строка пакетной загрузки дружбы: userId добавил в друзья friendId
+public record Friendship(Integer userId, Integer friendId) {
+}
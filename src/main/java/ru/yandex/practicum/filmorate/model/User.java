@@ -5,17 +5,16 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Pattern;
 import lombok.Data;
+import ru.yandex.practicum.filmorate.util.IntSet;
 
 import java.time.LocalDate;
-import java.util.HashSet;
-import java.util.Set;
 
 @Data
 public class User {
     private Integer id;
     private String name;
 
-    private Set<Integer> friends = new HashSet<>();
+    private IntSet friends = new IntSet();
 
     @NotBlank
     @Email(message = "Некорректный формат адреса электронной почты")
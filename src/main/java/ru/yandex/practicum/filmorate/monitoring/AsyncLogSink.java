@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogFormatter;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+import org.zalando.logbook.Sink;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Запись журнала HTTP в фоновом потоке. Поток запроса только форматирует обмен (тела к этому моменту
+// уже обрезаны фильтром) и кладёт строку в ограниченную очередь; писать в журнал будет фоновый поток.
+// Форматирование нельзя перенести туда же: после ответа Tomcat переиспользует объекты запроса.
+// Переполненная очередь не задерживает запрос — запись отбрасывается и учитывается в dropped
+public class AsyncLogSink implements Sink, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncLogSink.class);
+
+    private final HttpLogFormatter formatter;
+    private final HttpLogWriter writer;
+    private final BlockingQueue<Entry> queue;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    public AsyncLogSink(HttpLogFormatter formatter, HttpLogWriter writer, int capacity) {
+        this.formatter = formatter;
+        this.writer = writer;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.drainer = new Thread(this::drain, "http-log-writer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @Override
+    public boolean isActive() {
+        return writer.isActive();
+    }
+
+    @Override
+    public void write(Precorrelation precorrelation, HttpRequest request) throws IOException {
+        offer(new Entry(precorrelation, null, formatter.format(precorrelation, request)));
+    }
+
+    @Override
+    public void write(Correlation correlation, HttpRequest request, HttpResponse response) throws IOException {
+        offer(new Entry(correlation, correlation, formatter.format(correlation, response)));
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    // Дописывает уже принятые записи и останавливает фоновый поток
+    @Override
+    public void close() {
+        running = false;
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void offer(Entry entry) {
+        if (!queue.offer(entry)) {
+            dropped.increment();
+        }
+    }
+
+    private void drain() {
+        long reported = 0;
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry entry = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    write(entry);
+                } else {
+                    reported = reportDropped(reported);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        reportDropped(reported);
+    }
+
+    private void write(Entry entry) {
+        try {
+            if (entry.correlation() != null) {
+                writer.write(entry.correlation(), entry.message());
+            } else {
+                writer.write(entry.precorrelation(), entry.message());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Не удалось записать обмен в журнал HTTP", e);
+        }
+    }
+
+    // О потерях сообщается, когда очередь опустела, а не на каждую отброшенную запись
+    private long reportDropped(long reported) {
+        long total = dropped.sum();
+        if (total > reported) {
+            log.warn("Журнал HTTP не успевал за запросами: пропущено {} записей", total - reported);
+        }
+        return total;
+    }
+
+    private record Entry(Precorrelation precorrelation, Correlation correlation, String message) {
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import org.springframework.util.AntPathMatcher;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+// Решает, попадёт ли обмен в журнал: доля записываемых запросов задаётся по шаблону пути.
+// Правила вида "/films/popular=0.1,/users/**=0.5" проверяются по порядку, первое совпавшее выигрывает;
+// остальным путям достаётся defaultRate. Отброшенный запрос Logbook не буферизует вовсе
+public class EndpointSampler implements Predicate<HttpRequest> {
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final List<Rule> rules = new ArrayList<>();
+    private final double defaultRate;
+
+    public EndpointSampler(double defaultRate, String rates) {
+        this.defaultRate = defaultRate;
+        for (String rule : rates.split(",")) {
+            if (rule.isBlank()) {
+                continue;
+            }
+            int separator = rule.lastIndexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Правило выборки должно иметь вид путь=доля: " + rule);
+            }
+            rules.add(new Rule(rule.substring(0, separator).trim(),
+                    Double.parseDouble(rule.substring(separator + 1).trim())));
+        }
+    }
+
+    @Override
+    public boolean test(HttpRequest request) {
+        double rate = rate(request.getPath());
+        return rate >= 1 || rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    double rate(String path) {
+        for (Rule rule : rules) {
+            if (matcher.match(rule.pattern(), path)) {
+                return rule.rate();
+            }
+        }
+        return defaultRate;
+    }
+
+    private record Rule(String pattern, double rate) {
+    }
+}
@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+// Время каждого публичного метода сервисов и DAO фильмов и пользователей: таймер filmorate.method с тегами
+// layer (service/storage), class, method и exception (none, если вызов прошёл без ошибки); его _count — счётчик вызовов.
+// У методов, возвращающих коллекцию, Map или массив, пишется ещё размер результата: filmorate.method.result.size.
+// Метры создаются один раз на метод, вызов не ищет их в реестре. Вызовы внутри того же объекта не учитываются
+@Aspect
+public class MethodMetricsAspect {
+
+    static final String TIMER = "filmorate.method";
+    static final String RESULT_SIZE = "filmorate.method.result.size";
+
+    // Границы корзин размера результата: в Prometheus попадают счётчики «не больше N строк» (пустой — в «не больше 1»)
+    private static final double[] SIZE_BUCKETS = {1, 10, 100, 1_000, 10_000, 100_000};
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    public MethodMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * *(..)) && ("
+            + "within(ru.yandex.practicum.filmorate.service.FilmService) || "
+            + "within(ru.yandex.practicum.filmorate.service.UserService) || "
+            + "within(ru.yandex.practicum.filmorate.service.GenreService) || "
+            + "within(ru.yandex.practicum.filmorate.service.MpaService))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "service");
+    }
+
+    @Around("execution(public * *(..)) && ("
+            + "within(ru.yandex.practicum.filmorate.dao.FilmDbStorage) || "
+            + "within(ru.yandex.practicum.filmorate.dao.UserDbStorage))")
+    public Object timeStorage(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "storage");
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String layer) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodMeters methodMeters = meters.computeIfAbsent(method, m -> new MethodMeters(registry, layer, m));
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            methodMeters.failed(e, System.nanoTime() - start);
+            throw e;
+        }
+        methodMeters.succeeded(result, System.nanoTime() - start);
+        return result;
+    }
+
+    private static final class MethodMeters {
+        private final MeterRegistry registry;
+        private final Tags tags;
+        private final Timer success;
+        private final DistributionSummary resultSize;
+        private final ConcurrentMap<Class<?>, Timer> failures = new ConcurrentHashMap<>();
+
+        private MethodMeters(MeterRegistry registry, String layer, Method method) {
+            this.registry = registry;
+            this.tags = Tags.of("layer", layer, "class", method.getDeclaringClass().getSimpleName(),
+                    "method", method.getName());
+            this.success = timer("none");
+            Class<?> returnType = method.getReturnType();
+            this.resultSize = Collection.class.isAssignableFrom(returnType) || Map.class.isAssignableFrom(returnType)
+                    || returnType.isArray()
+                    ? DistributionSummary.builder(RESULT_SIZE)
+                    .tags(tags)
+                    .serviceLevelObjectives(SIZE_BUCKETS)
+                    .register(registry)
+                    : null;
+        }
+
+        private void succeeded(Object result, long nanos) {
+            success.record(nanos, TimeUnit.NANOSECONDS);
+            if (resultSize != null && result != null) {
+                resultSize.record(size(result));
+            }
+        }
+
+        private void failed(Throwable error, long nanos) {
+            failures.computeIfAbsent(error.getClass(), type -> timer(type.getSimpleName()))
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        private Timer timer(String exception) {
+            return Timer.builder(TIMER)
+                    .tags(tags)
+                    .tag("exception", exception)
+                    .register(registry);
+        }
+
+        private static int size(Object result) {
+            if (result instanceof Collection<?> collection) {
+                return collection.size();
+            }
+            if (result instanceof Map<?, ?> map) {
+                return map.size();
+            }
+            return Array.getLength(result);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Таймеры методов сервисов и DAO; filmorate.metrics.methods.enabled=false убирает прокси целиком
+@Configuration
+@ConditionalOnProperty(name = "filmorate.metrics.methods.enabled", havingValue = "true", matchIfMissing = true)
+public class MethodMetricsConfig {
+
+    @Bean
+    public MethodMetricsAspect methodMetricsAspect(MeterRegistry meterRegistry) {
+        return new MethodMetricsAspect(meterRegistry);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// Учёт SQL по HTTP-запросам; filmorate.sql-accounting.enabled=false отключает его целиком
+@Configuration
+@ConditionalOnProperty(name = "filmorate.sql-accounting.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryAccountingConfig {
+
+    // Пул соединений оборачивается после настройки: JdbcTemplate, Flyway и JPA получают уже учитывающий
+    @Bean
+    static BeanPostProcessor queryAccountingDataSource() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof QueryAccountingDataSource)
+                        ? new QueryAccountingDataSource(dataSource)
+                        : bean;
+            }
+        };
+    }
+
+    @Bean
+    public QueryMetrics queryMetrics() {
+        return new QueryMetrics();
+    }
+
+    @Bean
+    public QueryAccountingFilter queryAccountingFilter(QueryMetrics queryMetrics) {
+        return new QueryAccountingFilter(queryMetrics);
+    }
+}
@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+// Пул соединений, учитывающий каждое выполненное выражение в QueryStats текущего запроса.
+// Выражение считается при выполнении, а не при подготовке: пакет executeBatch — одно выражение.
+// Строки: число обновлённых для изменений и число прочитанных через next() для выборок
+public class QueryAccountingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    public QueryAccountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxyConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxyConnection(super.getConnection(username, password));
+    }
+
+    private static Connection proxyConnection(Connection connection) {
+        return proxy(Connection.class, connection, (method, args) -> {
+            Object result = invoke(method, connection, args);
+            if (result instanceof CallableStatement statement) {
+                return proxyStatement(CallableStatement.class, statement);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return proxyStatement(PreparedStatement.class, statement);
+            }
+            if (result instanceof Statement statement) {
+                return proxyStatement(Statement.class, statement);
+            }
+            return result;
+        });
+    }
+
+    private static <S extends Statement> S proxyStatement(Class<S> type, S statement) {
+        return proxy(type, statement, (method, args) -> {
+            String name = method.getName();
+            if (EXECUTE_METHODS.contains(name)) {
+                return execute(method, statement, args);
+            }
+            Object result = invoke(method, statement, args);
+            if (name.equals("getResultSet") && result instanceof ResultSet resultSet) {
+                return proxyResultSet(resultSet);
+            }
+            return result;
+        });
+    }
+
+    private static Object execute(Method method, Statement statement, Object[] args) throws Throwable {
+        QueryStats stats = QueryStats.current();
+        if (stats == null) {
+            return invoke(method, statement, args);
+        }
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = invoke(method, statement, args);
+            return result instanceof ResultSet resultSet ? proxyResultSet(resultSet) : result;
+        } finally {
+            stats.recordStatement(System.nanoTime() - start, affectedRows(result));
+        }
+    }
+
+    private static long affectedRows(Object result) {
+        if (result instanceof Integer count) {
+            return Math.max(count, 0);
+        }
+        if (result instanceof Long count) {
+            return Math.max(count, 0);
+        }
+        long total = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) {
+                total += Math.max(count, 0); // SUCCESS_NO_INFO = -2 не учитываем
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                total += Math.max(count, 0);
+            }
+        }
+        return total;
+    }
+
+    private static ResultSet proxyResultSet(ResultSet resultSet) {
+        return proxy(ResultSet.class, resultSet, (method, args) -> {
+            QueryStats stats = QueryStats.current();
+            if (stats == null || !method.getName().equals("next")) {
+                return invoke(method, resultSet, args);
+            }
+            long start = System.nanoTime();
+            Object hasRow = invoke(method, resultSet, args);
+            stats.recordFetch(System.nanoTime() - start, Boolean.TRUE.equals(hasRow));
+            return hasRow;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        return (T) Proxy.newProxyInstance(QueryAccountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.handle(method, args));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+}
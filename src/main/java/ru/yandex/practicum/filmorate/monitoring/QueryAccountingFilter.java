@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+// Считает SQL каждого HTTP-запроса: отдаёт итог в заголовке Server-Timing и копит по эндпоинтам в QueryMetrics.
+// Заголовок ставится в момент, когда ответ начинает писаться: все запросы к базе обычного эндпоинта
+// к этому времени выполнены. Потоковые выгрузки читают базу уже во время записи ответа,
+// поэтому в их заголовке и в сводке учтено только то, что выполнилось до первого байта
+public class QueryAccountingFilter extends OncePerRequestFilter {
+
+    public static final String STATS_ATTRIBUTE = QueryStats.class.getName();
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    private final QueryMetrics metrics;
+
+    public QueryAccountingFilter(QueryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        QueryStats stats = QueryStats.start();
+        request.setAttribute(STATS_ATTRIBUTE, stats);
+        TimingResponse timingResponse = new TimingResponse(response, stats);
+        try {
+            chain.doFilter(request, timingResponse);
+        } finally {
+            QueryStats.finish();
+            timingResponse.writeHeader();
+            metrics.record(endpoint(request), stats);
+        }
+    }
+
+    // Шаблон пути, а не сам путь: /films/{id}, а не /films/1, /films/2, ...
+    private static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "(unmapped)");
+    }
+
+    private static final class TimingResponse extends HttpServletResponseWrapper {
+        private final QueryStats stats;
+        private boolean headerWritten;
+
+        private TimingResponse(HttpServletResponse response, QueryStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        void writeHeader() {
+            if (!headerWritten && !isCommitted()) {
+                headerWritten = true;
+                setHeader(SERVER_TIMING, stats.toServerTiming());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeader();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeader();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeader();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeader();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeader();
+            super.sendError(sc, msg);
+        }
+    }
+}
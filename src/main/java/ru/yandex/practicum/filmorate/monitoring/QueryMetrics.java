@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import ru.yandex.practicum.filmorate.model.EndpointQueryStats;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Сводка SQL по эндпоинтам с момента запуска: на каком эндпоинте выражений на запрос больше всего
+public class QueryMetrics {
+
+    private final ConcurrentMap<String, Totals> endpoints = new ConcurrentHashMap<>();
+
+    void record(String endpoint, QueryStats stats) {
+        Totals totals = endpoints.computeIfAbsent(endpoint, e -> new Totals());
+        totals.requests.increment();
+        totals.statements.add(stats.statements());
+        totals.rows.add(stats.rows());
+        totals.nanos.add(stats.dbNanos());
+        totals.maxStatements.accumulate(stats.statements());
+    }
+
+    // По убыванию среднего числа выражений на запрос: кандидаты в N+1 — первыми
+    public List<EndpointQueryStats> snapshot() {
+        return endpoints.entrySet().stream()
+                .map(entry -> entry.getValue().toStats(entry.getKey()))
+                .sorted(Comparator.comparingDouble(EndpointQueryStats::statementsPerRequest).reversed()
+                        .thenComparing(EndpointQueryStats::endpoint))
+                .toList();
+    }
+
+    private static final class Totals {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxStatements = new LongAccumulator(Math::max, 0);
+
+        private EndpointQueryStats toStats(String endpoint) {
+            long count = requests.sum();
+            long totalStatements = statements.sum();
+            return new EndpointQueryStats(endpoint, count, totalStatements, rows.sum(), nanos.sum() / 1_000_000.0,
+                    count == 0 ? 0 : (double) totalStatements / count, maxStatements.get());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// SQL одного HTTP-запроса: сколько выражений выполнено, сколько строк прочитано или изменено
+// и сколько времени ушло на базу. Привязывается к потоку запроса фильтром QueryAccountingFilter
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger statements = new AtomicInteger();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+
+    static QueryStats start() {
+        QueryStats stats = new QueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void finish() {
+        CURRENT.remove();
+    }
+
+    // null вне HTTP-запроса: миграции при старте, фоновые задачи
+    static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    void recordStatement(long elapsedNanos, long affectedRows) {
+        statements.incrementAndGet();
+        rows.addAndGet(affectedRows);
+        nanos.addAndGet(elapsedNanos);
+    }
+
+    // Чтение строки результата тоже идёт в базу: драйвер подтягивает их порциями
+    void recordFetch(long elapsedNanos, boolean hasRow) {
+        if (hasRow) {
+            rows.incrementAndGet();
+        }
+        nanos.addAndGet(elapsedNanos);
+    }
+
+    public int statements() {
+        return statements.get();
+    }
+
+    public long rows() {
+        return rows.get();
+    }
+
+    public long dbNanos() {
+        return nanos.get();
+    }
+
+    // Значение заголовка Server-Timing: видно во вкладке Timing инструментов разработчика
+    String toServerTiming() {
+        return String.format(Locale.ROOT, "db;dur=%.3f;desc=\"%d statements, %d rows\"",
+                dbNanos() / 1_000_000.0, statements(), rows());
+    }
+}
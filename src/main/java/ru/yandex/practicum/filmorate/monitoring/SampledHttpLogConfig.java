@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.BodyFilter;
+import org.zalando.logbook.HttpLogFormatter;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.core.BodyFilters;
+
+import java.util.function.Predicate;
+
+// Облегчённый журнал HTTP (filmorate.http-log.mode=async-sampled): пишется лишь выборка запросов,
+// тела обрезаются до max-body-size символов, а в журнал пишет фоновый поток.
+// Бины заменяют одноимённые из автоконфигурации Logbook; формат и writer остаются от неё
+@Configuration
+@ConditionalOnProperty(name = "filmorate.http-log.mode", havingValue = "async-sampled")
+public class SampledHttpLogConfig {
+
+    // Logbook ищет условие именно под этим именем
+    @Bean
+    public Predicate<HttpRequest> requestCondition(
+            @Value("${filmorate.http-log.sample-rate:0.01}") double defaultRate,
+            @Value("${filmorate.http-log.sample-rates:}") String rates) {
+        return new EndpointSampler(defaultRate, rates);
+    }
+
+    @Bean
+    public BodyFilter bodyFilter(@Value("${filmorate.http-log.max-body-size:1024}") int maxBodySize) {
+        return BodyFilter.merge(BodyFilters.defaultValue(), BodyFilters.truncate(maxBodySize));
+    }
+
+    @Bean(destroyMethod = "close")
+    public AsyncLogSink sink(HttpLogFormatter formatter, HttpLogWriter writer,
+                             @Value("${filmorate.http-log.queue-capacity:1024}") int capacity) {
+        return new AsyncLogSink(formatter, writer, capacity);
+    }
+}
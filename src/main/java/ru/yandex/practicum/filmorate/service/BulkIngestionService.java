@@ -0,0 +1,313 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.BatchReport;
+import ru.yandex.practicum.filmorate.model.BatchRowResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.validator.FilmValidator;
+import ru.yandex.practicum.filmorate.validator.UserValidator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Пакетная загрузка из NDJSON (один JSON-объект на строку). Строки читаются потоком и копятся
+// в чанки; ссылки в чанке проверяются парой запросов на весь чанк, а запись идёт пакетными
+// вставками в одной транзакции на чанк. Ошибка одной строки не мешает остальным.
+@Slf4j
+@Service
+public class BulkIngestionService {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmValidator filmValidator;
+    private final UserValidator userValidator;
+    private final Validator beanValidator;
+    private final MpaStorage mpaStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+
+    public BulkIngestionService(FilmService filmService, UserService userService,
+                                FilmValidator filmValidator, UserValidator userValidator,
+                                Validator beanValidator, MpaStorage mpaStorage, TransactionTemplate transactionTemplate,
+                                ObjectMapper objectMapper,
+                                @Value("${filmorate.bulk.chunk-size:1000}") int chunkSize) {
+        this.filmService = filmService;
+        this.userService = userService;
+        this.filmValidator = filmValidator;
+        this.userValidator = userValidator;
+        this.beanValidator = beanValidator;
+        this.mpaStorage = mpaStorage;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    public BatchReport importFilms(InputStream body) throws IOException {
+        return ingest(body, Film.class, this::importFilms);
+    }
+
+    public BatchReport importUsers(InputStream body) throws IOException {
+        return ingest(body, User.class, this::importUsers);
+    }
+
+    public BatchReport importLikes(InputStream body) throws IOException {
+        return ingest(body, FilmLike.class, this::importLikes);
+    }
+
+    public BatchReport importFriendships(InputStream body) throws IOException {
+        return ingest(body, Friendship.class, this::importFriendships);
+    }
+
+    private <T> BatchReport ingest(InputStream body, Class<T> type,
+                                   Function<Chunk<T>, List<BatchRowResult>> importer) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(type);
+        List<BatchRowResult> results = new ArrayList<>();
+        Chunk<T> chunk = new Chunk<>(chunkSize);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                chunk.add(lineNumber, reader.readValue(line));
+            } catch (JsonProcessingException e) {
+                results.add(BatchRowResult.failed(lineNumber, "Некорректный JSON: " + e.getOriginalMessage()));
+                continue;
+            }
+            if (chunk.size() == chunkSize) {
+                results.addAll(importer.apply(chunk));
+                chunk = new Chunk<>(chunkSize);
+            }
+        }
+        if (chunk.size() > 0) {
+            results.addAll(importer.apply(chunk));
+        }
+
+        // Строки с битым JSON попадают в результат раньше своего чанка, поэтому восстанавливаем порядок
+        results.sort(Comparator.comparingInt(BatchRowResult::line));
+        BatchReport report = BatchReport.of(results);
+        log.info("Пакетная загрузка {}: добавлено {}, пропущено {}, отклонено {}",
+                type.getSimpleName(), report.created(), report.skipped(), report.failed());
+        return report;
+    }
+
+    private List<BatchRowResult> importFilms(Chunk<Film> chunk) {
+        List<BatchRowResult> results = new ArrayList<>(chunk.size());
+        Chunk<Film> valid = new Chunk<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Film film = chunk.item(i);
+            try {
+                // Валидатор и MPA работают по справочникам в памяти, поэтому здесь нет запросов к БД
+                filmValidator.validate(film);
+                if (!mpaStorage.existsById(film.getMpa().getId())) {
+                    throw new IllegalArgumentException("MPA с ID " + film.getMpa().getId() + " не существует");
+                }
+            } catch (RuntimeException e) {
+                results.add(BatchRowResult.failed(chunk.line(i), e.getMessage()));
+                continue;
+            }
+            valid.add(chunk.line(i), film);
+        }
+
+        try {
+            List<Film> created = transactionTemplate.execute(status -> filmService.addFilms(valid.items));
+            for (int i = 0; i < created.size(); i++) {
+                results.add(BatchRowResult.created(valid.line(i), created.get(i).getId()));
+            }
+        } catch (DataAccessException e) {
+            reject(valid, results, e);
+        }
+        return results;
+    }
+
+    private List<BatchRowResult> importUsers(Chunk<User> chunk) {
+        List<BatchRowResult> results = new ArrayList<>(chunk.size());
+        Chunk<User> checked = new Chunk<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            User user = chunk.item(i);
+            // Сначала ограничения модели, как @Valid у POST /users, затем тот же валидатор, что у сервиса
+            Set<ConstraintViolation<User>> violations = beanValidator.validate(user);
+            if (!violations.isEmpty()) {
+                results.add(BatchRowResult.failed(chunk.line(i), "Ошибки валидации: " + violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(", "))));
+                continue;
+            }
+            try {
+                userValidator.validate(user);
+            } catch (RuntimeException e) {
+                results.add(BatchRowResult.failed(chunk.line(i), e.getMessage()));
+                continue;
+            }
+            checked.add(chunk.line(i), user);
+        }
+
+        // Уникальность email и логина: два запроса на чанк плюс повторы внутри самого чанка
+        Set<String> emails = new HashSet<>(userService.getTakenEmails(checked.items.stream().map(User::getEmail).toList()));
+        Set<String> logins = new HashSet<>(userService.getTakenLogins(checked.items.stream().map(User::getLogin).toList()));
+        Chunk<User> valid = new Chunk<>(checked.size());
+        for (int i = 0; i < checked.size(); i++) {
+            User user = checked.item(i);
+            if (!emails.add(user.getEmail())) {
+                results.add(BatchRowResult.failed(checked.line(i), "Email " + user.getEmail() + " уже занят"));
+            } else if (!logins.add(user.getLogin())) {
+                results.add(BatchRowResult.failed(checked.line(i), "Логин " + user.getLogin() + " уже занят"));
+            } else {
+                valid.add(checked.line(i), user);
+            }
+        }
+
+        try {
+            List<User> created = transactionTemplate.execute(status -> userService.addUsers(valid.items));
+            for (int i = 0; i < created.size(); i++) {
+                results.add(BatchRowResult.created(valid.line(i), created.get(i).getId()));
+            }
+        } catch (DataAccessException e) {
+            reject(valid, results, e);
+        }
+        return results;
+    }
+
+    private List<BatchRowResult> importLikes(Chunk<FilmLike> chunk) {
+        List<BatchRowResult> results = new ArrayList<>(chunk.size());
+        Set<Integer> filmIds = new HashSet<>();
+        Set<Integer> userIds = new HashSet<>();
+        for (FilmLike like : chunk.items) {
+            filmIds.add(like.filmId());
+            userIds.add(like.userId());
+        }
+        filmIds.remove(null);
+        userIds.remove(null);
+        Set<Integer> existingFilms = filmService.getExistingFilmIds(filmIds);
+        Set<Integer> existingUsers = userService.getExistingUserIds(userIds);
+
+        Chunk<FilmLike> valid = new Chunk<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            FilmLike like = chunk.item(i);
+            if (like.filmId() == null || like.userId() == null) {
+                results.add(BatchRowResult.failed(chunk.line(i), "Поля filmId и userId обязательны"));
+            } else if (!existingFilms.contains(like.filmId())) {
+                results.add(BatchRowResult.failed(chunk.line(i), "Фильм с ID " + like.filmId() + " не найден"));
+            } else if (!existingUsers.contains(like.userId())) {
+                results.add(BatchRowResult.failed(chunk.line(i), "Пользователь с ID " + like.userId() + " не найден"));
+            } else {
+                valid.add(chunk.line(i), like);
+            }
+        }
+
+        try {
+            boolean[] added = transactionTemplate.execute(status -> filmService.addLikes(valid.items));
+            for (int i = 0; i < added.length; i++) {
+                results.add(added[i]
+                        ? BatchRowResult.created(valid.line(i), null)
+                        : BatchRowResult.skipped(valid.line(i), "Лайк уже поставлен"));
+            }
+        } catch (DataAccessException e) {
+            reject(valid, results, e);
+        }
+        return results;
+    }
+
+    private List<BatchRowResult> importFriendships(Chunk<Friendship> chunk) {
+        List<BatchRowResult> results = new ArrayList<>(chunk.size());
+        Set<Integer> userIds = new HashSet<>();
+        for (Friendship friendship : chunk.items) {
+            userIds.add(friendship.userId());
+            userIds.add(friendship.friendId());
+        }
+        userIds.remove(null);
+        Set<Integer> existingUsers = userService.getExistingUserIds(userIds);
+
+        Chunk<Friendship> valid = new Chunk<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Friendship friendship = chunk.item(i);
+            if (friendship.userId() == null || friendship.friendId() == null) {
+                results.add(BatchRowResult.failed(chunk.line(i), "Поля userId и friendId обязательны"));
+            } else if (friendship.userId().equals(friendship.friendId())) {
+                results.add(BatchRowResult.failed(chunk.line(i), "Нельзя добавить себя в друзья"));
+            } else if (!existingUsers.contains(friendship.userId())) {
+                results.add(BatchRowResult.failed(chunk.line(i), "Пользователь с ID " + friendship.userId() + " не найден"));
+            } else if (!existingUsers.contains(friendship.friendId())) {
+                results.add(BatchRowResult.failed(chunk.line(i), "Пользователь с ID " + friendship.friendId() + " не найден"));
+            } else {
+                valid.add(chunk.line(i), friendship);
+            }
+        }
+
+        try {
+            boolean[] added = transactionTemplate.execute(status -> userService.addFriends(valid.items));
+            for (int i = 0; i < added.length; i++) {
+                results.add(added[i]
+                        ? BatchRowResult.created(valid.line(i), null)
+                        : BatchRowResult.skipped(valid.line(i), "Пользователи уже друзья"));
+            }
+        } catch (DataAccessException e) {
+            reject(valid, results, e);
+        }
+        return results;
+    }
+
+    // Транзакция чанка откатилась целиком, поэтому ни одна его строка не записана
+    private static void reject(Chunk<?> chunk, List<BatchRowResult> results, DataAccessException e) {
+        log.warn("Чанк из {} строк отклонён: {}", chunk.size(), e.getMostSpecificCause().getMessage());
+        for (int i = 0; i < chunk.size(); i++) {
+            results.add(BatchRowResult.failed(chunk.line(i), "Ошибка записи чанка: " + e.getMostSpecificCause().getMessage()));
+        }
+    }
+
+    // Строки чанка вместе с их номерами во входном потоке
+    private static final class Chunk<T> {
+        private final List<T> items;
+        private final List<Integer> lines;
+
+        private Chunk(int capacity) {
+            items = new ArrayList<>(capacity);
+            lines = new ArrayList<>(capacity);
+        }
+
+        private void add(int line, T item) {
+            lines.add(line);
+            items.add(item);
+        }
+
+        private T item(int i) {
+            return items.get(i);
+        }
+
+        private int line(int i) {
+            return lines.get(i);
+        }
+
+        private int size() {
+            return items.size();
+        }
+    }
+}
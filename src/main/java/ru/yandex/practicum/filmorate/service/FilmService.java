@@ -1,35 +1,80 @@
 package ru.yandex.practicum.filmorate.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.LikeAlreadyExistsException;
 import ru.yandex.practicum.filmorate.exception.LikeNotFoundException;
 import ru.yandex.practicum.filmorate.exception.MpaNotFoundException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.FilmRecommender;
+import ru.yandex.practicum.filmorate.storage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
-import ru.yandex.practicum.filmorate.storage.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.LikeMatrix;
 import ru.yandex.practicum.filmorate.storage.MpaStorage;
+import ru.yandex.practicum.filmorate.util.AfterCommit;
 
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class FilmService {
-    private final InMemoryFilmStorage filmStorage;
+    private final FilmStorage filmStorage;
     private final MpaStorage mpaStorage;
     private final GenreStorage genreStorage;
+    private final ResourceVersions versions;
 
-    public FilmService(InMemoryFilmStorage filmStorage, MpaStorage mpaStorage, GenreStorage genreStorage) {
-        this.filmStorage = filmStorage;
+    // Ограничения выборок рекомендаций: время ответа не растёт вместе с числом лайков
+    private static final int RECOMMENDATION_SEED_FILMS = 200;
+    private static final int RECOMMENDATION_LIKERS_PER_FILM = 500;
+    private static final int RECOMMENDATION_NEIGHBOURS = 50;
+
+    // Матрица лайков строится один раз при старте и дальше меняется вместе с лайками
+    private final LikeMatrix likeMatrix = new LikeMatrix();
+    private final FilmRecommender recommender = new FilmRecommender(likeMatrix,
+            Runtime.getRuntime().availableProcessors(), RECOMMENDATION_SEED_FILMS,
+            RECOMMENDATION_LIKERS_PER_FILM, RECOMMENDATION_NEIGHBOURS);
+
+    // Поиск по названию и описанию без LIKE '%q%' по таблице
+    private final FilmSearchIndex searchIndex = new FilmSearchIndex();
+
+    // По умолчанию фильмы хранятся в памяти; filmorate.storage.films=db переключает сервис на таблицы БД
+    public FilmService(@Value("${filmorate.storage.films:memory}") String filmStorageType,
+                       @Qualifier("inMemoryFilmStorage") FilmStorage inMemoryFilmStorage,
+                       @Qualifier("filmDbStorage") FilmStorage filmDbStorage,
+                       MpaStorage mpaStorage, GenreStorage genreStorage, ResourceVersions versions) {
+        this.filmStorage = "db".equals(filmStorageType) ? filmDbStorage : inMemoryFilmStorage;
         this.mpaStorage = mpaStorage;
         this.genreStorage = genreStorage;
+        this.versions = versions;
+        log.info("Фильмы хранятся в {}", filmStorage.getClass().getSimpleName());
+    }
+
+    @PostConstruct
+    public void loadIndexes() {
+        // Лайки и фильмы приходят одним обходом: с журналом изменений это одно его чтение
+        searchIndex.clear();
+        likeMatrix.load(likes -> filmStorage.forEachIndexed(likes, this::index));
+    }
+
+    @PreDestroy
+    public void shutdownRecommender() {
+        recommender.close();
     }
 
     public Film addFilm(Film film) {
@@ -38,67 +83,123 @@ public class FilmService {
         if (!mpaStorage.existsById(mpaId)) {
             throw new MpaNotFoundException("MPA с ID " + mpaId + " не существует");
         }
-        return filmStorage.addFilm(film);
+        Film created = filmStorage.addFilm(film);
+        versions.filmChanged(created.getId());
+        index(created);
+        return created;
+    }
+
+    // Фильмы должны быть уже проверены: пакетная загрузка сверяет MPA и жанры до вставки.
+    // Пакет пишется в транзакции чанка, поэтому индексы и версии меняются только после её коммита
+    public List<Film> addFilms(List<Film> films) {
+        List<Film> created = filmStorage.addFilms(films);
+        AfterCommit.run(() -> created.forEach(film -> {
+            versions.filmChanged(film.getId());
+            index(film);
+        }));
+        return created;
+    }
+
+    public boolean[] addLikes(List<FilmLike> likes) {
+        boolean[] added = filmStorage.addLikes(likes);
+        AfterCommit.run(() -> {
+            for (int i = 0; i < added.length; i++) {
+                if (added[i]) {
+                    likeMatrix.add(likes.get(i).userId(), likes.get(i).filmId());
+                    versions.filmChanged(likes.get(i).filmId());
+                }
+            }
+        });
+        return added;
+    }
+
+    public Set<Integer> getExistingFilmIds(Collection<Integer> ids) {
+        return filmStorage.getExistingIds(ids);
     }
 
     public Film updateFilm(Film film) {
-        return filmStorage.updateFilm(film);
+        Film updated = filmStorage.updateFilm(film);
+        versions.filmChanged(updated.getId());
+        index(updated);
+        return updated;
     }
 
     public void deleteFilm(Integer id) {
         filmStorage.deleteFilm(id);
+        versions.filmDeleted(id);
+        likeMatrix.removeFilm(id);
+        searchIndex.remove(id);
     }
 
     public List<Film> getAllFilms() {
         List<Film> films = filmStorage.getAllFilms();
         for (Film film : films) {
-            film.setMpa(mpaStorage.getMpa(film.getMpa().getId()));
-            Set<Genre> fullGenres = film.getGenres().stream()
-                    .map(g -> genreStorage.getGenre(g.getId()))
-                    .collect(Collectors.toCollection(LinkedHashSet::new));
-            film.setGenres(new ArrayList<>(fullGenres));
+            hydrate(film);
+        }
+        return films;
+    }
+
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        List<Film> films = filmStorage.getFilmsPage(afterId, limit);
+        for (Film film : films) {
+            hydrate(film);
         }
         return films;
     }
 
+    public void forEachFilm(Consumer<Film> action) {
+        filmStorage.forEachFilm(film -> {
+            hydrate(film);
+            action.accept(film);
+        });
+    }
+
+    public boolean hasFilms() {
+        return !filmStorage.getFilmsPage(0, 1).isEmpty();
+    }
+
     private Film findFilmById(Integer filmId) {
-        Film film = filmStorage.getFilm(filmId);
+        Film film;
+        try {
+            film = filmStorage.getFilm(filmId);
+        } catch (EmptyResultDataAccessException e) {
+            throw new FilmNotFoundException(filmId);
+        }
         if (film == null) {
             throw new FilmNotFoundException(filmId);
         }
+        hydrate(film);
+        return film;
+    }
+
+    // Подставляет полные MPA и жанры вместо ссылок по id
+    private void hydrate(Film film) {
         film.setMpa(mpaStorage.getMpa(film.getMpa().getId()));
         Set<Genre> fullGenres = film.getGenres().stream()
                 .map(g -> genreStorage.getGenre(g.getId()))
                 .collect(Collectors.toCollection(LinkedHashSet::new));
         film.setGenres(new ArrayList<>(fullGenres));
-        return film;
     }
 
+    // Только проверка id, без загрузки фильма с жанрами и лайками
     public boolean filmExists(Integer filmId) {
-        try {
-            findFilmById(filmId); // Проверяем, существует ли фильм
-            return true; // Если найден, возвращаем true
-        } catch (FilmNotFoundException e) {
-            return false; // Если не найден, возвращаем false
-        }
+        return filmStorage.getExistingIds(List.of(filmId)).contains(filmId);
     }
 
+    // Хранилище само проверяет фильм, пользователя и повторный лайк — без отдельных запросов заранее
     public void addLike(Integer filmId, Integer userId) {
-        Film film = findFilmById(filmId); // Найти фильм или выбросить исключение
-
-        // Проверяем, ставил ли пользователь лайк ранее
-        if (film.getLikes().contains(userId)) {
+        if (!filmStorage.addLike(filmId, userId)) {
             throw new LikeAlreadyExistsException("Пользователь с ID " + userId + " уже поставил лайк фильму с ID " + filmId); // 400 Bad Request
         }
-        film.getLikes().add(userId); // Добавляем лайк
+        likeMatrix.add(userId, filmId);
+        versions.filmChanged(filmId);
         log.info("Пользователь с ID {} поставил лайк фильму с ID {}", userId, filmId);
     }
 
     public boolean removeLike(Integer filmId, Integer userId) {
-        Film film = findFilmById(filmId); // Найти фильм или выбросить исключение
-
-        // Проверяем, ставил ли пользователь лайк
-        if (film.getLikes().remove(userId)) {
+        if (filmStorage.removeLike(filmId, userId)) {
+            likeMatrix.remove(userId, filmId);
+            versions.filmChanged(filmId);
             log.info("Пользователь с ID {} удалил лайк у фильма с ID {}", userId, filmId);
             return true; // Успешно удалено
         } else {
@@ -106,12 +207,60 @@ public class FilmService {
         }
     }
 
+    // Рейтинг поддерживается хранилищем при каждом лайке, поэтому каталог здесь не сортируется
     public List<Film> getTopFilms(int count) {
-        return filmStorage.getAllFilms().stream()
-                .sorted(Comparator.comparingInt((Film f) -> -f.getLikes().size())
-                        .thenComparing(Film::getName))  // Дополнительная сортировка по названию
-                .limit(count)
-                .collect(Collectors.toList());
+        List<Film> films = filmStorage.getPopularFilms(count);
+        for (Film film : films) {
+            hydrate(film);
+        }
+        return films;
+    }
+
+    public List<Integer> getTopFilmIds(int count) {
+        return filmStorage.getPopularFilmIds(count);
+    }
+
+    // Популярные фильмы жанра genreId и (или) года выпуска year; null — без этого фильтра.
+    // Рейтинги по жанрам и годам хранилище ведёт так же, как общий
+    public List<Film> getTopFilms(int count, Integer genreId, Integer year) {
+        return getFilmsByIds(filmStorage.getPopularFilmIds(count, genreId, year));
+    }
+
+    public List<Integer> getTopFilmIds(int count, Integer genreId, Integer year) {
+        return filmStorage.getPopularFilmIds(count, genreId, year);
+    }
+
+    // Несколько фильмов одним обращением к хранилищу, в порядке запрошенных id; несуществующие пропускаются
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        List<Film> films = filmStorage.getFilmsByIds(ids);
+        for (Film film : films) {
+            hydrate(film);
+        }
+        return films;
+    }
+
+    // Фильмы, которые лайкали пользователи с похожими лайками; уже лайкнутые пользователем не предлагаются
+    public List<Film> getRecommendations(int userId, int limit) {
+        List<Integer> filmIds = Arrays.stream(recommender.recommend(userId, limit)).boxed().toList();
+        List<Film> films = filmStorage.getFilmsByIds(filmIds);
+        for (Film film : films) {
+            hydrate(film);
+        }
+        return films;
+    }
+
+    // Фильмы, в названии или описании которых встречаются все слова запроса (в том числе как части слов)
+    public List<Film> searchFilms(String query, int limit) {
+        List<Integer> filmIds = Arrays.stream(searchIndex.search(query, limit)).boxed().toList();
+        List<Film> films = filmStorage.getFilmsByIds(filmIds);
+        for (Film film : films) {
+            hydrate(film);
+        }
+        return films;
+    }
+
+    private void index(Film film) {
+        searchIndex.put(film.getId(), film.getName(), film.getDescription());
     }
 
     public Film getFilm(Integer id) {
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Версии ресурсов для условных GET (ETag и Last-Modified). Запись через сервисы сдвигает версию
+// изменённого фильма или пользователя; всё, что не менялось с запуска, имеет версию 0 — в том числе
+// несуществующие id. Удаление тоже сдвигает версию и помечает её deleted.
+// Счётчики живут в памяти, поэтому в ETag входит эпоха запуска: после перезапуска старые ETag не совпадут,
+// а Last-Modified неизменённого ресурса — момент запуска
+@Component
+public class ResourceVersions {
+
+    private final long startedAt = System.currentTimeMillis();
+    private final String epoch = Long.toString(startedAt, 36);
+    private final Version initial = new Version(0, "\"" + epoch + "-0\"", startedAt, false);
+    private final AtomicLong counter = new AtomicLong();
+
+    private final ConcurrentMap<Integer, Version> films = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Version> users = new ConcurrentHashMap<>();
+
+    public Version film(int id) {
+        return films.getOrDefault(id, initial);
+    }
+
+    public Version user(int id) {
+        return users.getOrDefault(id, initial);
+    }
+
+    // Жанры и рейтинги MPA меняются только миграциями, то есть между запусками
+    public Version referenceData() {
+        return initial;
+    }
+
+    // Номер последнего изменения любого ресурса: версия с номером не больше него записана до этого момента
+    public long sequence() {
+        return counter.get();
+    }
+
+    // Вызывается после записи: прочитавший новую версию запрос увидит и новые данные
+    public void filmChanged(int id) {
+        films.put(id, next(false));
+    }
+
+    public void userChanged(int id) {
+        users.put(id, next(false));
+    }
+
+    public void filmDeleted(int id) {
+        films.put(id, next(true));
+    }
+
+    private Version next(boolean deleted) {
+        long number = counter.incrementAndGet();
+        return new Version(number, "\"" + epoch + "-" + number + "\"", System.currentTimeMillis(), deleted);
+    }
+
+    public record Version(long number, String etag, long lastModified, boolean deleted) {
+    }
+}
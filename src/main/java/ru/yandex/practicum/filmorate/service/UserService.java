@@ -5,26 +5,34 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class UserService {
     private final UserStorage userStorage;
+    private final ResourceVersions versions;
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
 
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage, ResourceVersions versions) {
         this.userStorage = userStorage;
+        this.versions = versions;
     }
 
     public User addUser(User user) {
         validateUser(user);
-        return userStorage.addUser(user);
+        User created = userStorage.addUser(user);
+        versions.userChanged(created.getId());
+        return created;
     }
 
     public User getUser(Integer id) {
@@ -39,13 +47,23 @@ public class UserService {
         return userStorage.getUsers();
     }
 
+    public List<User> getUsersPage(int afterId, int limit) {
+        return userStorage.getUsersPage(afterId, limit);
+    }
+
+    public void forEachUser(Consumer<User> action) {
+        userStorage.forEachUser(action);
+    }
+
     public User updateUser(User user) {
         validateUser(user);
         User existingUser = userStorage.getUser(user.getId());
         if (existingUser == null) {
             throw new UserNotFoundException("Пользователь с ID " + user.getId() + " не найден");
         }
-        return userStorage.updateUser(user);
+        User updated = userStorage.updateUser(user);
+        versions.userChanged(updated.getId());
+        return updated;
     }
 
     public void addFriend(int userId, int friendId) {
@@ -69,6 +87,7 @@ public class UserService {
         }
 
         userStorage.addFriend(userId, friendId);
+        versions.userChanged(userId);
         log.info("Пользователь {} добавил друга {}", userId, friendId);
     }
 
@@ -84,6 +103,7 @@ public class UserService {
         }
 
         userStorage.removeFriend(userId, friendId);
+        versions.userChanged(userId);
         log.info("Пользователь {} удалил друга {}", userId, friendId);
     }
 
@@ -102,7 +122,7 @@ public class UserService {
             return Collections.emptySet();
         }
 
-        return userStorage.getUsersByIds(friendIds);
+        return new HashSet<>(userStorage.getUsersByIds(friendIds));
     }
 
     public Set<User> getCommonFriendsAsUsers(Integer userId1, Integer userId2) {
@@ -110,7 +130,61 @@ public class UserService {
         if (commonFriendIds.isEmpty()) {
             return Collections.emptySet();
         }
-        return userStorage.getUsersByIds(commonFriendIds);
+        return new HashSet<>(userStorage.getUsersByIds(commonFriendIds));
+    }
+
+    // Пользователи должны быть уже проверены, включая уникальность email и логина
+    public List<User> addUsers(List<User> users) {
+        return userStorage.addUsers(users);
+    }
+
+    public boolean[] addFriends(List<Friendship> friendships) {
+        boolean[] added = userStorage.addFriends(friendships);
+        for (int i = 0; i < added.length; i++) {
+            if (added[i]) {
+                versions.userChanged(friendships.get(i).userId());
+            }
+        }
+        return added;
+    }
+
+    public Set<Integer> getExistingUserIds(Collection<Integer> ids) {
+        return userStorage.getExistingIds(ids);
+    }
+
+    public Set<String> getTakenEmails(Collection<String> emails) {
+        return userStorage.getTakenEmails(emails);
+    }
+
+    public Set<String> getTakenLogins(Collection<String> logins) {
+        return userStorage.getTakenLogins(logins);
+    }
+
+    public Set<User> getCommonFriendsAsUsers(Integer userId, List<Integer> otherIds) {
+        List<Integer> userIds = new ArrayList<>(otherIds.size() + 1);
+        userIds.add(userId);
+        userIds.addAll(otherIds);
+        Set<Integer> commonFriendIds = new HashSet<>(userStorage.getCommonFriends(userIds));
+        if (commonFriendIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(userStorage.getUsersByIds(commonFriendIds));
+    }
+
+    public List<User> getFriendSuggestions(Integer userId, int limit) {
+        if (!userStorage.userExists(userId)) {
+            throw new UserNotFoundException("Пользователь с ID " + userId + " не найден");
+        }
+        List<Integer> suggestedIds = userStorage.getFriendSuggestions(userId, limit);
+        if (suggestedIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return userStorage.getUsersByIds(suggestedIds);
+    }
+
+    // Несколько пользователей одним обращением к хранилищу, в порядке запрошенных id
+    public List<User> getUsersByIds(Collection<Integer> ids) {
+        return userStorage.getUsersByIds(ids);
     }
 
     public boolean userExists(Integer userId) {
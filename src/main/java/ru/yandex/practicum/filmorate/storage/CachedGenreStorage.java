@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.DbGenreStorage;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.List;
+
+// Справочник жанров в памяти: таблица genres почти не меняется, поэтому читаем её один раз при старте
+@Primary
+@Component
+public class CachedGenreStorage implements GenreStorage {
+
+    private final CachedReference<Genre> reference;
+
+    public CachedGenreStorage(DbGenreStorage dbGenreStorage) {
+        this.reference = new CachedReference<>(dbGenreStorage::getAllGenres, Genre::getId);
+    }
+
+    @PostConstruct
+    public void refresh() {
+        reference.refresh();
+    }
+
+    // Снимок перечитается из БД при следующем обращении
+    public void invalidate() {
+        reference.invalidate();
+    }
+
+    @Override
+    public Genre getGenre(Integer id) {
+        return reference.get(id);
+    }
+
+    @Override
+    public List<Genre> getAllGenres() {
+        return reference.all();
+    }
+
+    @Override
+    public boolean existsById(int id) {
+        return reference.get(id) != null;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.DbMpaStorage;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.List;
+
+// Справочник MPA в памяти: таблица mpa почти не меняется, поэтому читаем её один раз при старте
+@Primary
+@Component
+public class CachedMpaStorage implements MpaStorage {
+
+    private final CachedReference<Mpa> reference;
+
+    public CachedMpaStorage(DbMpaStorage dbMpaStorage) {
+        this.reference = new CachedReference<>(dbMpaStorage::getAllMpa, Mpa::getId);
+    }
+
+    @PostConstruct
+    public void refresh() {
+        reference.refresh();
+    }
+
+    // Снимок перечитается из БД при следующем обращении
+    public void invalidate() {
+        reference.invalidate();
+    }
+
+    @Override
+    public Mpa getMpa(Integer id) {
+        return reference.get(id);
+    }
+
+    @Override
+    public List<Mpa> getAllMpa() {
+        return reference.all();
+    }
+
+    @Override
+    public boolean existsById(int id) {
+        return reference.get(id) != null;
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+// Справочник в памяти поверх загрузчика из БД: снимок читается при refresh или при первом
+// обращении после invalidate, чтение готового снимка не блокируется
+final class CachedReference<T> {
+
+    private final Supplier<List<T>> loader;
+    private final ToIntFunction<T> idGetter;
+    private volatile ReferenceSnapshot<T> snapshot;
+
+    CachedReference(Supplier<List<T>> loader, ToIntFunction<T> idGetter) {
+        this.loader = loader;
+        this.idGetter = idGetter;
+    }
+
+    synchronized void refresh() {
+        snapshot = new ReferenceSnapshot<>(loader.get(), idGetter);
+    }
+
+    void invalidate() {
+        snapshot = null;
+    }
+
+    T get(Integer id) {
+        return snapshot().get(id);
+    }
+
+    List<T> all() {
+        return snapshot().all();
+    }
+
+    private ReferenceSnapshot<T> snapshot() {
+        ReferenceSnapshot<T> current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    refresh();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,383 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Журнал изменений на диске. Записи дописываются в отображённые в память сегменты фиксированного размера;
+// файл сегмента создаётся заполненным нулями. Запись — длина тела, тело и CRC32 тела. Нулевая длина или
+// неверная сумма — конец данных: недописанный после сбоя хвост отбрасывается при открытии.
+// Позиция — смещение записи от начала журнала; сегмент называется позицией своей первой записи.
+// Контрольная точка — состояние на свою позицию в виде записей того же формата. Заполненные сегменты
+// в фоне сворачиваются вместе с прежней контрольной точкой в новую (через State) и удаляются.
+// После сбоя процесса записи не теряются: страницы отображения принадлежат ОС. На диск сегмент
+// принудительно сбрасывается при переходе к следующему и при закрытии журнала
+@Slf4j
+public class ChangeLog implements AutoCloseable {
+
+    // Состояние, в которое сворачиваются записи: из него пишется контрольная точка
+    public interface State {
+        void apply(ByteBuffer record);
+
+        void writeTo(Consumer<byte[]> out);
+    }
+
+    private static final String SEGMENT = "segment-";
+    private static final String CHECKPOINT = "checkpoint-";
+    private static final String SUFFIX = ".log";
+    private static final String TEMPORARY = ".tmp";
+    private static final String COMPACTED = ".compacted";
+
+    // Длина перед телом записи и CRC32 после него
+    private static final int OVERHEAD = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int compactAfter;
+    private final Supplier<State> stateFactory;
+    private final ExecutorService compactor;
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+
+    // Дальше всё под монитором журнала
+    private final TreeMap<Long, Path> sealed = new TreeMap<>();
+    private Path checkpoint; // null — контрольной точки ещё нет
+    private long checkpointPosition;
+    private long activeBase;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active; // null — журнал закрыт
+    private int writeOffset;
+
+    // Сжатие начинается, когда заполнено compactAfter сегментов
+    public ChangeLog(Path directory, int segmentSize, int compactAfter, Supplier<State> stateFactory) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.compactAfter = Math.max(compactAfter, 1);
+        this.stateFactory = stateFactory;
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "changelog-compactor-" + directory.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал " + directory, e);
+        }
+    }
+
+    public synchronized boolean hasCheckpoint() {
+        return checkpoint != null;
+    }
+
+    public synchronized void append(byte[] record) {
+        if (active == null) {
+            throw new IllegalStateException("Журнал " + directory + " закрыт");
+        }
+        int size = OVERHEAD + record.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Запись длиннее сегмента: " + record.length + " байт");
+        }
+        if (writeOffset + size > active.capacity()) {
+            roll();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        active.put(writeOffset + 4, record);
+        active.putInt(writeOffset + 4 + record.length, (int) crc.getValue());
+        // Длина пишется последней: до неё запись для читателя не существует
+        active.putInt(writeOffset, record.length);
+        writeOffset += size;
+    }
+
+    // Контрольная точка, затем записи всех сегментов по порядку
+    public synchronized void replay(Consumer<ByteBuffer> handler) {
+        if (checkpoint != null) {
+            readFile(checkpoint, handler);
+        }
+        for (Path segment : sealed.values()) {
+            readFile(segment, handler);
+        }
+        read(active, writeOffset, handler);
+    }
+
+    // Полное текущее состояние (например, прочитанное из таблиц) заменяет весь журнал.
+    // Записи, пришедшие во время записи состояния, ждут её окончания и попадают уже после контрольной точки
+    public synchronized void rebase(Consumer<Consumer<byte[]>> state) {
+        if (writeOffset > 0) {
+            roll();
+        }
+        Path written = publish(writeTemporary(temporaryPath(activeBase, TEMPORARY), state), activeBase);
+        install(written, activeBase, List.copyOf(sealed.keySet()));
+    }
+
+    @Override
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (active == null) {
+                return;
+            }
+            active.force();
+            closeQuietly(activeChannel);
+            active = null;
+        }
+    }
+
+    synchronized int sealedSegments() {
+        return sealed.size();
+    }
+
+    // Сворачивает заполненные сегменты; обычно вызывается в фоне после перехода к новому сегменту
+    void compact() {
+        List<Long> folded;
+        Path base;
+        long position;
+        synchronized (this) {
+            if (active == null || sealed.isEmpty()) {
+                return;
+            }
+            folded = List.copyOf(sealed.keySet());
+            base = checkpoint;
+            position = activeBase;
+        }
+        State state = stateFactory.get();
+        if (base != null) {
+            readFile(base, state::apply);
+        }
+        for (long segment : folded) {
+            readFile(segmentPath(segment), state::apply);
+        }
+        // Своё имя временного файла: rebase может в это же время писать точку на той же позиции
+        Path temporary = writeTemporary(temporaryPath(position, COMPACTED + TEMPORARY), state::writeTo);
+        synchronized (this) {
+            // Пока шло сжатие, rebase мог записать точку не старше этой
+            if (active == null || checkpoint != null && checkpointPosition >= position) {
+                delete(temporary);
+                return;
+            }
+            install(publish(temporary, position), position, folded);
+        }
+        log.info("Журнал {}: {} сегментов свёрнуто в контрольную точку на позиции {}",
+                directory, folded.size(), position);
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> checkpoints = new TreeMap<>();
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMPORARY)) {
+                    delete(file); // контрольная точка, не дописанная до сбоя
+                } else if (name.startsWith(CHECKPOINT) && name.endsWith(SUFFIX)) {
+                    checkpoints.put(position(name, CHECKPOINT), file);
+                } else if (name.startsWith(SEGMENT) && name.endsWith(SUFFIX)) {
+                    segments.put(position(name, SEGMENT), file);
+                }
+            }
+        }
+        if (!checkpoints.isEmpty()) {
+            checkpointPosition = checkpoints.lastKey();
+            checkpoint = checkpoints.pollLastEntry().getValue();
+            checkpoints.values().forEach(ChangeLog::delete);
+        }
+        // Сегменты до контрольной точки уже свёрнуты в неё, но не были удалены до остановки
+        segments.headMap(checkpointPosition).values().forEach(ChangeLog::delete);
+        segments = new TreeMap<>(segments.tailMap(checkpointPosition));
+        if (segments.isEmpty()) {
+            openActive(checkpointPosition);
+            return;
+        }
+        openActive(segments.pollLastEntry().getKey());
+        sealed.putAll(segments);
+        writeOffset = read(active, active.capacity(), record -> { });
+        // Обрывки после последней целой записи затираются, чтобы новые записи не склеились со старыми байтами.
+        // Проверка идёт по 8 байт: чистый хвост только читается
+        int i = writeOffset;
+        for (; i < active.capacity() && i % Long.BYTES != 0; i++) {
+            active.put(i, (byte) 0);
+        }
+        for (; i + Long.BYTES <= active.capacity(); i += Long.BYTES) {
+            if (active.getLong(i) != 0) {
+                active.putLong(i, 0);
+            }
+        }
+        for (; i < active.capacity(); i++) {
+            active.put(i, (byte) 0);
+        }
+    }
+
+    private void openActive(long base) throws IOException {
+        Path path = segmentPath(base);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        active = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), segmentSize));
+        activeChannel = channel;
+        activeBase = base;
+        writeOffset = 0;
+    }
+
+    private void roll() {
+        active.force();
+        closeQuietly(activeChannel);
+        sealed.put(activeBase, segmentPath(activeBase));
+        try {
+            openActive(activeBase + writeOffset);
+        } catch (IOException e) {
+            active = null;
+            throw new UncheckedIOException("Не удалось создать сегмент журнала " + directory, e);
+        }
+        if (sealed.size() >= compactAfter && compactionScheduled.compareAndSet(false, true)) {
+            compactor.execute(this::compactQuietly);
+        }
+    }
+
+    // Новая точка заменяет прежнюю; свёрнутые в неё сегменты удаляются
+    private void install(Path written, long position, List<Long> folded) {
+        Path previous = checkpoint;
+        checkpoint = written;
+        checkpointPosition = position;
+        if (previous != null && !previous.equals(written)) {
+            delete(previous);
+        }
+        for (long segment : folded) {
+            delete(sealed.remove(segment));
+        }
+    }
+
+    private Path temporaryPath(long position, String suffix) {
+        return directory.resolve(CHECKPOINT + name(position) + SUFFIX + suffix);
+    }
+
+    private Path writeTemporary(Path temporary, Consumer<Consumer<byte[]>> state) {
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel),
+                    1 << 16));
+            CRC32 crc = new CRC32();
+            state.accept(record -> {
+                crc.reset();
+                crc.update(record);
+                try {
+                    out.writeInt(record.length);
+                    out.write(record);
+                    out.writeInt((int) crc.getValue());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+            channel.force(true);
+            return temporary;
+        } catch (IOException e) {
+            delete(temporary);
+            throw new UncheckedIOException("Не удалось записать контрольную точку журнала " + directory, e);
+        }
+    }
+
+    // Точка появляется под своим именем только целиком
+    private Path publish(Path temporary, long position) {
+        Path target = directory.resolve(CHECKPOINT + name(position) + SUFFIX);
+        try {
+            return Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            delete(temporary);
+            throw new UncheckedIOException("Не удалось записать контрольную точку журнала " + directory, e);
+        }
+    }
+
+    private void compactQuietly() {
+        compactionScheduled.set(false);
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сжать журнал {}; сегменты останутся до следующей попытки", directory, e);
+        }
+    }
+
+    private static void readFile(Path file, Consumer<ByteBuffer> handler) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            read(buffer, buffer.capacity(), handler);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось прочитать " + file, e);
+        }
+    }
+
+    // Записи подряд с начала буфера; возвращает смещение за последней целой записью
+    private static int read(ByteBuffer buffer, int limit, Consumer<ByteBuffer> handler) {
+        CRC32 crc = new CRC32();
+        int offset = 0;
+        while (offset + OVERHEAD <= limit) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > limit - offset - OVERHEAD) {
+                break;
+            }
+            ByteBuffer record = buffer.slice(offset + 4, length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(offset + 4 + length)) {
+                break;
+            }
+            handler.accept(record.asReadOnlyBuffer());
+            offset += OVERHEAD + length;
+        }
+        return offset;
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(SEGMENT + name(base) + SUFFIX);
+    }
+
+    // Позиция с нулями впереди: файлы сортируются по имени в порядке журнала
+    private static String name(long position) {
+        return String.format("%020d", position);
+    }
+
+    private static long position(String fileName, String prefix) {
+        return Long.parseLong(fileName.substring(prefix.length(), fileName.length() - SUFFIX.length()));
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить {}", file, e);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть сегмент журнала", e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Рекомендации фильмов коллаборативной фильтрацией по матрице лайков:
+// 1) соседи — пользователи, лайкавшие те же фильмы; сходство — коэффициент Жаккара по лайкам;
+// 2) фильмы ближайших соседей, которые пользователь ещё не лайкал, набирают сумму сходств.
+// Сбор соседей по фильмам пользователя делится между задачами пула fork-join.
+// Время ответа ограничено выборками: учитывается не больше maxSeedFilms лайков пользователя и
+// не больше maxLikersPerFilm лайкнувших каждый фильм, поэтому сходство на популярных фильмах оценочное.
+public class FilmRecommender implements AutoCloseable {
+
+    // Сколько фильмов обрабатывает одна задача, прежде чем делиться дальше
+    private static final int FILMS_PER_TASK = 8;
+
+    private final LikeMatrix matrix;
+    private final ForkJoinPool pool;
+    private final int maxSeedFilms;
+    private final int maxLikersPerFilm;
+    private final int neighbours;
+
+    public FilmRecommender(LikeMatrix matrix, int parallelism, int maxSeedFilms, int maxLikersPerFilm,
+                           int neighbours) {
+        this.matrix = matrix;
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxSeedFilms = maxSeedFilms;
+        this.maxLikersPerFilm = maxLikersPerFilm;
+        this.neighbours = neighbours;
+    }
+
+    // id фильмов по убыванию оценки, при равенстве по возрастанию id
+    public int[] recommend(int userId, int limit) {
+        int[] liked = matrix.filmsLikedBy(userId);
+        if (liked.length == 0) {
+            return new int[0];
+        }
+        int[] seeds = sample(liked, maxSeedFilms);
+        int[] coLikers = pool.invoke(new CoLikerTask(seeds, 0, seeds.length, userId));
+        if (coLikers.length == 0) {
+            return new int[0];
+        }
+
+        // Серия одинаковых id в отсортированном массиве — число общих лайков с этим соседом.
+        // Ключ: старшие 32 бита — сходство (биты неотрицательного float упорядочены как числа), младшие — id
+        List<Long> keys = new ArrayList<>();
+        int runStart = 0;
+        for (int i = 1; i <= coLikers.length; i++) {
+            if (i == coLikers.length || coLikers[i] != coLikers[runStart]) {
+                int neighbour = coLikers[runStart];
+                int overlap = i - runStart;
+                float similarity = (float) overlap
+                        / (liked.length + matrix.filmsLikedBy(neighbour).length - overlap);
+                keys.add(((long) Float.floatToIntBits(similarity) << 32) | (neighbour & 0xFFFFFFFFL));
+                runStart = i;
+            }
+        }
+        keys.sort(null);
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (int i = keys.size() - 1; i >= Math.max(0, keys.size() - neighbours); i--) {
+            long key = keys.get(i);
+            double similarity = Float.intBitsToFloat((int) (key >>> 32));
+            for (int filmId : sample(matrix.filmsLikedBy((int) key), maxSeedFilms)) {
+                if (Arrays.binarySearch(liked, filmId) < 0) {
+                    scores.merge(filmId, similarity, Double::sum);
+                }
+            }
+        }
+
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // Равномерная выборка не больше max элементов; сам массив, если он короче
+    private static int[] sample(int[] values, int max) {
+        if (values.length <= max) {
+            return values;
+        }
+        int[] sampled = new int[max];
+        int step = values.length / max;
+        for (int i = 0; i < max; i++) {
+            sampled[i] = values[i * step];
+        }
+        return sampled;
+    }
+
+    // Собирает лайкнувших фильмы seeds[from, to) (кроме самого пользователя) в отсортированный
+    // массив с повторами; половины сливаются, как в сортировке слиянием
+    private final class CoLikerTask extends RecursiveTask<int[]> {
+        private final int[] seeds;
+        private final int from;
+        private final int to;
+        private final int userId;
+
+        private CoLikerTask(int[] seeds, int from, int to, int userId) {
+            this.seeds = seeds;
+            this.from = from;
+            this.to = to;
+            this.userId = userId;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= FILMS_PER_TASK) {
+                return collect();
+            }
+            int middle = (from + to) >>> 1;
+            CoLikerTask left = new CoLikerTask(seeds, from, middle, userId);
+            left.fork();
+            int[] right = new CoLikerTask(seeds, middle, to, userId).compute();
+            return merge(left.join(), right);
+        }
+
+        private int[] collect() {
+            int total = 0;
+            int[][] likers = new int[to - from][];
+            for (int i = from; i < to; i++) {
+                likers[i - from] = sample(matrix.usersWhoLiked(seeds[i]), maxLikersPerFilm);
+                total += likers[i - from].length;
+            }
+            int[] result = new int[total];
+            int count = 0;
+            for (int[] list : likers) {
+                for (int liker : list) {
+                    if (liker != userId) {
+                        result[count++] = liker;
+                    }
+                }
+            }
+            Arrays.sort(result, 0, count);
+            return count == total ? result : Arrays.copyOf(result, count);
+        }
+
+        private static int[] merge(int[] a, int[] b) {
+            int[] merged = new int[a.length + b.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < a.length && j < b.length) {
+                merged[k++] = a[i] <= b[j] ? a[i++] : b[j++];
+            }
+            while (i < a.length) {
+                merged[k++] = a[i++];
+            }
+            while (j < b.length) {
+                merged[k++] = b[j++];
+            }
+            return merged;
+        }
+    }
+}
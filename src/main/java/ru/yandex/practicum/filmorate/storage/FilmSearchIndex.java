@@ -0,0 +1,304 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.util.IntFloatMap;
+import ru.yandex.practicum.filmorate.util.IntSet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Полнотекстовый поиск по названию и описанию фильмов: обратный индекс «слово → фильмы».
+// Подстроки ищутся через триграммы словаря: триграммы запроса сужают до нескольких слов словарь,
+// а не каталог; слова запроса короче трёх символов ищутся как префиксы по отсортированному словарю.
+// Найтись должны все слова запроса. Оценка слова: точное совпадение > префикс > подстрока,
+// совпадение в названии вдвое весомее, чем в описании. Лучшие результаты отбираются кучей
+// размера limit, все совпадения целиком не сортируются.
+public class FilmSearchIndex {
+
+    private static final int GRAM = 3;
+
+    // Сколько слов словаря может раскрыть одно слово запроса: короткий префикс не обходит весь словарь.
+    // Лимит отсекает сначала подстроки, затем префиксы — точное совпадение остаётся всегда
+    private static final int MAX_EXPANSIONS = 1000;
+
+    private static final float EXACT = 3f;
+    private static final float PREFIX = 2f;
+    private static final float SUBSTRING = 1f;
+    private static final float NAME_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+
+    private final NavigableMap<String, Term> vocabulary = new TreeMap<>();
+    private final Map<String, Set<Term>> trigrams = new HashMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Добавляет фильм или заменяет его прежний текст
+    public void put(int filmId, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(filmId);
+            Term[] nameTerms = terms(name);
+            Term[] descriptionTerms = terms(description);
+            for (Term term : nameTerms) {
+                term.inName.add(filmId);
+            }
+            for (Term term : descriptionTerms) {
+                term.inDescription.add(filmId);
+            }
+            documents.put(filmId, new Document(nameTerms, descriptionTerms));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            vocabulary.clear();
+            trigrams.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // id фильмов по убыванию оценки, при равенстве по возрастанию id
+    public int[] search(String query, int limit) {
+        List<String> words = new ArrayList<>(tokenize(query));
+        if (words.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        lock.readLock().lock();
+        try {
+            List<Map<Term, Float>> matches = new ArrayList<>(words.size());
+            for (String word : words) {
+                Map<Term, Float> match = expand(word);
+                if (match.isEmpty()) {
+                    return new int[0];
+                }
+                matches.add(match);
+            }
+            // Начинаем с самого редкого слова: следующие слова проверяют только уже найденные фильмы
+            matches.sort(Comparator.comparingLong(FilmSearchIndex::postings));
+
+            IntFloatMap scores = null;
+            for (Map<Term, Float> match : matches) {
+                IntFloatMap previous = scores;
+                IntFloatMap wordScores = new IntFloatMap(previous == null ? 16 : previous.size());
+                match.forEach((term, kind) -> {
+                    collect(term.inName, kind * NAME_WEIGHT, previous, wordScores);
+                    collect(term.inDescription, kind * DESCRIPTION_WEIGHT, previous, wordScores);
+                });
+                if (previous != null) {
+                    wordScores.replaceAll((filmId, score) -> score + previous.get(filmId));
+                }
+                if (wordScores.isEmpty()) {
+                    return new int[0];
+                }
+                scores = wordScores;
+            }
+            return top(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Слова в нижнем регистре без повторов, в порядке появления
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean letter = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // Слова словаря, подходящие под слово запроса, с весом вида совпадения. Точное слово и префиксы
+    // берутся из отсортированного словаря, подстроки — из триграмм, и только на оставшиеся места
+    private Map<Term, Float> expand(String word) {
+        Map<Term, Float> matched = new HashMap<>();
+        Term exact = vocabulary.get(word);
+        if (exact != null) {
+            matched.put(exact, EXACT);
+        }
+        for (Term term : vocabulary.subMap(word, false, word + Character.MAX_VALUE, false).values()) {
+            if (matched.size() == MAX_EXPANSIONS) {
+                return matched;
+            }
+            matched.put(term, PREFIX);
+        }
+        if (word.length() < GRAM || matched.size() == MAX_EXPANSIONS) {
+            return matched;
+        }
+        // Слово, содержащее запрос, содержит и все его триграммы: достаточно проверить самый короткий список
+        Set<Term> candidates = null;
+        for (String gram : grams(word)) {
+            Set<Term> withGram = trigrams.get(gram);
+            if (withGram == null) {
+                return matched;
+            }
+            if (candidates == null || withGram.size() < candidates.size()) {
+                candidates = withGram;
+            }
+        }
+        List<Term> substrings = new ArrayList<>();
+        for (Term term : candidates) {
+            if (term.text.contains(word) && !term.text.startsWith(word)) {
+                substrings.add(term);
+            }
+        }
+        // Порядок множества триграмм случаен: при обрезке по лимиту подстроки берутся по алфавиту
+        int room = MAX_EXPANSIONS - matched.size();
+        if (substrings.size() > room) {
+            substrings.sort(Comparator.comparing(term -> term.text));
+            substrings = substrings.subList(0, room);
+        }
+        for (Term term : substrings) {
+            matched.put(term, SUBSTRING);
+        }
+        return matched;
+    }
+
+    private static long postings(Map<Term, Float> match) {
+        long total = 0;
+        for (Term term : match.keySet()) {
+            total += term.inName.size() + term.inDescription.size();
+        }
+        return total;
+    }
+
+    // Лучшее совпадение слова в фильме; после первого слова учитываются только уже найденные фильмы
+    private static void collect(IntSet films, float weight, IntFloatMap previous, IntFloatMap wordScores) {
+        films.forEachInt(filmId -> {
+            if (previous == null || previous.containsKey(filmId)) {
+                wordScores.putMax(filmId, weight);
+            }
+        });
+    }
+
+    // Ключ кучи: старшие 32 бита — оценка (биты неотрицательного float упорядочены как числа),
+    // младшие — дополнение id, чтобы при равной оценке выше был меньший id
+    private static int[] top(IntFloatMap scores, int limit) {
+        PriorityQueue<Long> heap = new PriorityQueue<>(Math.min(limit, scores.size()) + 1);
+        scores.forEach((filmId, score) -> {
+            long key = ((long) Float.floatToIntBits(score) << 32) | (Integer.MAX_VALUE - filmId);
+            if (heap.size() < limit) {
+                heap.add(key);
+            } else if (key > heap.peek()) {
+                heap.poll();
+                heap.add(key);
+            }
+        });
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = Integer.MAX_VALUE - (int) (long) heap.poll();
+        }
+        return result;
+    }
+
+    private Term[] terms(String text) {
+        Set<String> tokens = tokenize(text);
+        Term[] terms = new Term[tokens.size()];
+        int i = 0;
+        for (String token : tokens) {
+            terms[i++] = vocabulary.computeIfAbsent(token, this::newTerm);
+        }
+        return terms;
+    }
+
+    private Term newTerm(String text) {
+        Term term = new Term(text);
+        for (String gram : grams(text)) {
+            trigrams.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+        }
+        return term;
+    }
+
+    private void removeDocument(int filmId) {
+        Document document = documents.remove(filmId);
+        if (document == null) {
+            return;
+        }
+        for (Term term : document.name()) {
+            term.inName.remove(filmId);
+            dropIfUnused(term);
+        }
+        for (Term term : document.description()) {
+            term.inDescription.remove(filmId);
+            dropIfUnused(term);
+        }
+    }
+
+    private void dropIfUnused(Term term) {
+        if (!term.inName.isEmpty() || !term.inDescription.isEmpty() || vocabulary.remove(term.text) == null) {
+            return;
+        }
+        for (String gram : grams(term.text)) {
+            Set<Term> withGram = trigrams.get(gram);
+            withGram.remove(term);
+            if (withGram.isEmpty()) {
+                trigrams.remove(gram);
+            }
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static final class Term {
+        private final String text;
+        private final IntSet inName = new IntSet();
+        private final IntSet inDescription = new IntSet();
+
+        private Term(String text) {
+            this.text = text;
+        }
+    }
+
+    private record Document(Term[] name, Term[] description) {
+    }
+}
@@ -1,8 +1,13 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.util.IntPairConsumer;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film addFilm(Film film);
@@ -14,4 +19,49 @@ public interface FilmStorage {
     Film getFilm(Integer id);
 
     List<Film> getAllFilms();
+
+    // Страница каталога по возрастанию id: фильмы с id > afterId, не больше limit штук
+    List<Film> getFilmsPage(int afterId, int limit);
+
+    // Обходит весь каталог, не собирая его в память
+    void forEachFilm(Consumer<Film> action);
+
+    // false, если пользователь уже ставил лайк этому фильму.
+    // Несуществующие фильм или пользователь — FilmNotFoundException / UserNotFoundException
+    boolean addLike(int filmId, int userId);
+
+    // false, если лайка не было; исключения те же, что у addLike
+    boolean removeLike(int filmId, int userId);
+
+    // Самые популярные фильмы: по убыванию числа лайков, при равенстве по названию
+    List<Film> getPopularFilms(int count);
+
+    // id самых популярных фильмов без загрузки самих фильмов
+    List<Integer> getPopularFilmIds(int count);
+
+    // То же только среди фильмов жанра genreId и (или) года выпуска year; null — без этого фильтра
+    List<Integer> getPopularFilmIds(int count, Integer genreId, Integer year);
+
+    // Фильмы в порядке переданных id; несуществующие пропускаются
+    List<Film> getFilmsByIds(Collection<Integer> ids);
+
+    // Обходит все лайки парами (filmId, userId), не собирая их в память
+    void forEachLike(IntPairConsumer action);
+
+    // Лайки и фильмы для индексов сервиса при старте; у фильмов достаточно id, названия и описания.
+    // Хранилище с журналом изменений отдаёт их из журнала, не читая таблиц
+    default void forEachIndexed(IntPairConsumer likes, Consumer<Film> films) {
+        forEachLike(likes);
+        forEachFilm(films);
+    }
+
+    // Пакетная вставка уже проверенных фильмов; проставляет им id
+    List<Film> addFilms(List<Film> films);
+
+    // Пакетная вставка лайков: для каждого true, если он добавлен, и false, если уже был.
+    // Пользователи должны быть уже проверены: по одному они здесь не проверяются
+    boolean[] addLikes(List<FilmLike> likes);
+
+    // Какие из переданных id принадлежат существующим фильмам
+    Set<Integer> getExistingIds(Collection<Integer> ids);
 }
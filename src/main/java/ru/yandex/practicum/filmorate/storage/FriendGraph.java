@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.util.SortedIntLists;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Граф дружбы в памяти: для каждого пользователя отсортированный массив id его друзей
+// (см. SortedIntLists: чтение не блокируется и всегда видит целый снимок списка).
+// Пересечение списков — слиянием отсортированных массивов, без коллекций и упаковки в Integer.
+// Обратные списки (кто добавил пользователя в друзья) хранятся так же и нужны для инвалидации
+// рекомендаций, зависящих от чужих списков друзей.
+public class FriendGraph {
+
+    private static final int[] NO_FRIENDS = new int[0];
+
+    // Во сколько раз один список длиннее другого, чтобы искать в нём двоичным поиском, а не сливать
+    private static final int GALLOP_RATIO = 16;
+
+    private final SortedIntLists adjacency = new SortedIntLists();
+    private final SortedIntLists followers = new SortedIntLists();
+
+    // Возвращает false, если такое ребро уже было
+    public boolean addEdge(int userId, int friendId) {
+        if (!adjacency.add(userId, friendId)) {
+            return false;
+        }
+        followers.add(friendId, userId);
+        return true;
+    }
+
+    // Возвращает false, если такого ребра не было
+    public boolean removeEdge(int userId, int friendId) {
+        if (!adjacency.remove(userId, friendId)) {
+            return false;
+        }
+        followers.remove(friendId, userId);
+        return true;
+    }
+
+    // Заменяет список друзей пользователя целиком; friendIds должны быть отсортированы и без повторов
+    public void putFriends(int userId, int[] friendIds) {
+        for (int friendId : adjacency.put(userId, friendIds)) {
+            followers.remove(friendId, userId);
+        }
+        for (int friendId : friendIds) {
+            followers.add(friendId, userId);
+        }
+    }
+
+    // Отсортированный снимок друзей; изменять возвращённый массив нельзя
+    public int[] friends(int userId) {
+        return adjacency.get(userId);
+    }
+
+    // Кто добавил пользователя в друзья, по возрастанию id; изменять возвращённый массив нельзя
+    public int[] followers(int userId) {
+        return followers.get(userId);
+    }
+
+    // Общие друзья всех переданных пользователей по возрастанию id
+    public int[] commonFriends(int... userIds) {
+        if (userIds.length == 0) {
+            return NO_FRIENDS;
+        }
+        int[][] lists = new int[userIds.length][];
+        for (int i = 0; i < userIds.length; i++) {
+            lists[i] = friends(userIds[i]);
+        }
+        // Начинаем с самого короткого списка: результат не длиннее него и только сокращается
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+        int[] result = lists[0];
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            result = intersect(result, lists[i]);
+        }
+        return result == lists[0] ? result.clone() : result;
+    }
+
+    public int size() {
+        return adjacency.size();
+    }
+
+    public void clear() {
+        adjacency.clear();
+        followers.clear();
+    }
+
+    // small не длиннее large
+    static int[] intersect(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int count = 0;
+        if (large.length > small.length * GALLOP_RATIO) {
+            int from = 0;
+            for (int value : small) {
+                int position = Arrays.binarySearch(large, from, large.length, value);
+                if (position >= 0) {
+                    result[count++] = value;
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+                if (from == large.length) {
+                    break;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < small.length && j < large.length) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[count++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+}
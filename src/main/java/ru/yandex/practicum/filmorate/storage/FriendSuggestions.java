@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Рекомендации друзей: друзья друзей, упорядоченные по числу общих друзей (при равенстве по id).
+// Обход ограничен: у каждого узла берётся не больше maxFanOut друзей, равномерно по списку, так что
+// стоимость запроса не превышает maxFanOut² шагов даже у пользователей с огромным числом связей.
+// Кандидаты копятся в переиспользуемом буфере потока и считаются сортировкой, без Map и Integer.
+// Готовые списки кэшируются и сбрасываются точно: у того, кто сменил друзей, и у всех, кто его добавил.
+public class FriendSuggestions {
+
+    private final FriendGraph graph;
+    private final int maxFanOut;
+    private final int maxSuggestions;
+    private final int maxCachedUsers;
+
+    private final ConcurrentMap<Integer, int[]> cache = new ConcurrentHashMap<>();
+    // Растёт при каждом изменении графа: расчёт, заставший изменение, не попадает в кэш
+    private final AtomicLong version = new AtomicLong();
+    private final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[1024]);
+
+    public FriendSuggestions(FriendGraph graph, int maxFanOut, int maxSuggestions, int maxCachedUsers) {
+        this.graph = graph;
+        this.maxFanOut = maxFanOut;
+        this.maxSuggestions = maxSuggestions;
+        this.maxCachedUsers = maxCachedUsers;
+    }
+
+    // Не больше limit (и не больше maxSuggestions) id; изменять возвращённый массив нельзя
+    public int[] suggest(int userId, int limit) {
+        int[] ranked = cache.get(userId);
+        if (ranked == null) {
+            long before = version.get();
+            ranked = rank(userId);
+            if (cache.size() >= maxCachedUsers) {
+                evictOne();
+            }
+            cache.put(userId, ranked);
+            if (version.get() != before) {
+                cache.remove(userId, ranked);
+            }
+        }
+        return ranked.length <= limit ? ranked : Arrays.copyOf(ranked, limit);
+    }
+
+    // Вызывается после того, как userId добавил или убрал друга
+    public void invalidate(int userId) {
+        version.incrementAndGet();
+        cache.remove(userId);
+        for (int follower : graph.followers(userId)) {
+            cache.remove(follower);
+        }
+    }
+
+    public void invalidateAll() {
+        version.incrementAndGet();
+        cache.clear();
+    }
+
+    // Расчёт без кэша
+    public int[] rank(int userId) {
+        int[] friends = graph.friends(userId);
+        int[] candidates = scratch.get();
+        int count = 0;
+
+        int step = stride(friends.length);
+        for (int i = 0, taken = 0; i < friends.length && taken < maxFanOut; i += step, taken++) {
+            int[] secondDegree = graph.friends(friends[i]);
+            int secondStep = stride(secondDegree.length);
+            for (int j = 0, secondTaken = 0; j < secondDegree.length && secondTaken < maxFanOut;
+                 j += secondStep, secondTaken++) {
+                int candidate = secondDegree[j];
+                if (candidate == userId || Arrays.binarySearch(friends, candidate) >= 0) {
+                    continue;
+                }
+                if (count == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, count * 2);
+                    scratch.set(candidates);
+                }
+                candidates[count++] = candidate;
+            }
+        }
+        if (count == 0) {
+            return new int[0];
+        }
+
+        // После сортировки повторы стоят рядом: длина серии — число общих друзей
+        Arrays.sort(candidates, 0, count);
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            if (candidates[i] != candidates[i - 1]) {
+                distinct++;
+            }
+        }
+        // Ключ: старшие 32 бита — обратный счётчик, младшие — id; по возрастанию ключа идут лучшие
+        long[] keys = new long[distinct];
+        int k = 0;
+        int runStart = 0;
+        for (int i = 1; i <= count; i++) {
+            if (i == count || candidates[i] != candidates[runStart]) {
+                keys[k++] = ((long) (Integer.MAX_VALUE - (i - runStart)) << 32) | (candidates[runStart] & 0xFFFFFFFFL);
+                runStart = i;
+            }
+        }
+        Arrays.sort(keys);
+
+        int[] ranked = new int[Math.min(distinct, maxSuggestions)];
+        for (int i = 0; i < ranked.length; i++) {
+            ranked[i] = (int) keys[i];
+        }
+        return ranked;
+    }
+
+    public int cachedUsers() {
+        return cache.size();
+    }
+
+    // Шаг равномерной выборки из списка, который длиннее maxFanOut
+    private int stride(int length) {
+        return length <= maxFanOut ? 1 : length / maxFanOut;
+    }
+
+    private void evictOne() {
+        Iterator<Integer> iterator = cache.keySet().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
@@ -1,26 +1,57 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.util.IntPairConsumer;
+import ru.yandex.practicum.filmorate.util.IntSet;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+// Потокобезопасное хранилище: запросы Tomcat обращаются к нему параллельно. Каталог и выдача id
+// обходятся без блокировок, лайк ставится и снимается CAS в IntSet фильма.
 @Component
 public class InMemoryFilmStorage implements FilmStorage {
-    private final Map<Integer, Film> films = new HashMap<>();
-    private Integer currentId = 1;
+    private final ConcurrentNavigableMap<Integer, Film> films = new ConcurrentSkipListMap<>(); // упорядочены по id для постраничной выдачи
+    private final AtomicInteger currentId = new AtomicInteger(1);
+    private final PopularityIndex popularityIndex = new PopularityIndex();
+
+    // Пользователи живут в БД: лайк проверяет их так же, как внешний ключ film_likes. null — без проверки
+    private final UserStorage userStorage;
+
+    public InMemoryFilmStorage() {
+        this(null);
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(UserStorage userStorage) {
+        this.userStorage = userStorage;
+    }
 
     @Override
     public Film addFilm(Film film) {
         if (film == null) {
             throw new ValidationException("Фильм не может быть null"); // Проверка на null
         }
-        film.setId(currentId++);
+        if (film.getLikes() == null) {
+            film.setLikes(new IntSet());
+        }
+        film.setId(currentId.getAndIncrement());
+        // Сначала рейтинг: изменение и удаление фильма правят его запись только если она уже есть
+        popularityIndex.put(film, film.getLikes().size());
         films.put(film.getId(), film);
         return film;
     }
@@ -30,19 +61,26 @@ public class InMemoryFilmStorage implements FilmStorage {
         if (film == null) {
             throw new ValidationException("Фильм не может быть null"); // Проверка на null
         }
-        if (films.containsKey(film.getId())) {
-            films.put(film.getId(), film);
+        // Лайки меняются только через addLike/removeLike, поэтому новая версия фильма получает
+        // то же множество лайков: иначе лайк, поставленный во время обновления, потерялся бы
+        Film updated = films.computeIfPresent(film.getId(), (id, existing) -> {
+            film.setLikes(existing.getLikes());
             return film;
+        });
+        if (updated == null) {
+            throw new FilmNotFoundException(film.getId()); // Используем кастомное исключение
         }
-        throw new FilmNotFoundException(film.getId()); // Используем кастомное исключение
+        // Если фильм успели удалить, запись в рейтинге уже снята и не вернётся
+        popularityIndex.update(film);
+        return film;
     }
 
     @Override
     public void deleteFilm(Integer id) {
-        if (!films.containsKey(id)) {
+        if (films.remove(id) == null) {
             throw new FilmNotFoundException(id); // Если фильм не найден, выбрасываем исключение
         }
-        films.remove(id);
+        popularityIndex.remove(id);
     }
 
     @Override
@@ -58,4 +96,103 @@ public class InMemoryFilmStorage implements FilmStorage {
     public List<Film> getAllFilms() {
         return new ArrayList<>(films.values());
     }
+
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        return films.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void forEachFilm(Consumer<Film> action) {
+        films.values().forEach(action);
+    }
+
+    @Override
+    public boolean addLike(int filmId, int userId) {
+        checkUser(userId);
+        return like(filmId, userId);
+    }
+
+    // Лайк без проверки пользователя
+    private boolean like(int filmId, int userId) {
+        // add у IntSet атомарен: из двух одинаковых лайков пройдёт ровно один
+        if (!getFilm(filmId).getLikes().add(userId)) {
+            return false;
+        }
+        popularityIndex.adjustLikes(filmId, 1);
+        return true;
+    }
+
+    @Override
+    public boolean removeLike(int filmId, int userId) {
+        checkUser(userId);
+        if (!getFilm(filmId).getLikes().remove(userId)) {
+            return false;
+        }
+        popularityIndex.adjustLikes(filmId, -1);
+        return true;
+    }
+
+    private void checkUser(int userId) {
+        if (userStorage != null && !userStorage.userExists(userId)) {
+            throw new UserNotFoundException("Пользователь с ID " + userId + " не найден");
+        }
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return getFilmsByIds(popularityIndex.top(count)); // фильм могли удалить между чтением рейтинга и каталога
+    }
+
+    @Override
+    public List<Integer> getPopularFilmIds(int count) {
+        return popularityIndex.top(count);
+    }
+
+    @Override
+    public List<Integer> getPopularFilmIds(int count, Integer genreId, Integer year) {
+        return popularityIndex.top(count, genreId, year);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Integer> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    @Override
+    public void forEachLike(IntPairConsumer action) {
+        films.forEach((filmId, film) -> film.getLikes().forEachInt(userId -> action.accept(filmId, userId)));
+    }
+
+    @Override
+    public List<Film> addFilms(List<Film> films) {
+        films.forEach(this::addFilm);
+        return films;
+    }
+
+    @Override
+    public boolean[] addLikes(List<FilmLike> likes) {
+        boolean[] added = new boolean[likes.size()];
+        for (int i = 0; i < likes.size(); i++) {
+            // Пользователей пакета уже проверил вызывающий, одним запросом на чанк
+            added[i] = like(likes.get(i).filmId(), likes.get(i).userId());
+        }
+        return added;
+    }
+
+    @Override
+    public Set<Integer> getExistingIds(Collection<Integer> ids) {
+        Set<Integer> existing = new HashSet<>();
+        for (Integer id : ids) {
+            if (films.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
 }
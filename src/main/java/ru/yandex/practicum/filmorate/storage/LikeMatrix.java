@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.util.IntPairConsumer;
+import ru.yandex.practicum.filmorate.util.SortedIntLists;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+// Разреженная матрица «пользователь × фильм» из лайков: строки — отсортированные фильмы пользователя,
+// столбцы — отсортированные пользователи, лайкнувшие фильм. После загрузки меняется точечно.
+public class LikeMatrix {
+
+    private final SortedIntLists filmsByUser = new SortedIntLists();
+    private final SortedIntLists usersByFilm = new SortedIntLists();
+
+    // Полная перестройка из обхода всех лайков (filmId, userId). Списки строятся сортировкой
+    // упакованных пар, а не вставкой по одной: вставка в отсортированный массив стоила бы O(n²)
+    public void load(Consumer<IntPairConsumer> likes) {
+        long[][] pairs = {new long[1024]};
+        int[] count = {0};
+        likes.accept((filmId, userId) -> {
+            if (count[0] == pairs[0].length) {
+                pairs[0] = Arrays.copyOf(pairs[0], count[0] * 2);
+            }
+            pairs[0][count[0]++] = pack(filmId, userId);
+        });
+
+        filmsByUser.clear();
+        usersByFilm.clear();
+        long[] packed = pairs[0];
+        int n = count[0];
+        Arrays.sort(packed, 0, n);
+        fill(usersByFilm, packed, n);
+        for (int i = 0; i < n; i++) {
+            packed[i] = pack((int) packed[i], (int) (packed[i] >>> 32));
+        }
+        Arrays.sort(packed, 0, n);
+        fill(filmsByUser, packed, n);
+    }
+
+    public boolean add(int userId, int filmId) {
+        if (!filmsByUser.add(userId, filmId)) {
+            return false;
+        }
+        usersByFilm.add(filmId, userId);
+        return true;
+    }
+
+    public boolean remove(int userId, int filmId) {
+        if (!filmsByUser.remove(userId, filmId)) {
+            return false;
+        }
+        usersByFilm.remove(filmId, userId);
+        return true;
+    }
+
+    public void removeFilm(int filmId) {
+        for (int userId : usersByFilm.removeKey(filmId)) {
+            filmsByUser.remove(userId, filmId);
+        }
+    }
+
+    // Изменять возвращённые массивы нельзя
+    public int[] filmsLikedBy(int userId) {
+        return filmsByUser.get(userId);
+    }
+
+    public int[] usersWhoLiked(int filmId) {
+        return usersByFilm.get(filmId);
+    }
+
+    private static long pack(int key, int value) {
+        return ((long) key << 32) | (value & 0xFFFFFFFFL);
+    }
+
+    // Пары отсортированы по ключу (старшие 32 бита), внутри ключа — по значению
+    private static void fill(SortedIntLists lists, long[] packed, int n) {
+        int start = 0;
+        while (start < n) {
+            int key = (int) (packed[start] >>> 32);
+            int end = start;
+            while (end < n && (int) (packed[end] >>> 32) == key) {
+                end++;
+            }
+            int[] values = new int[end - start];
+            int distinct = 0;
+            for (int i = start; i < end; i++) {
+                int value = (int) packed[i];
+                if (distinct == 0 || values[distinct - 1] != value) {
+                    values[distinct++] = value;
+                }
+            }
+            lists.put(key, distinct == values.length ? values : Arrays.copyOf(values, distinct));
+            start = end;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Рейтинг фильмов по числу лайков, поддерживаемый на лету.
+// Лайк переставляет один фильм за O(log n), топ-N читается с начала списка за O(N).
+// Изменения одного фильма упорядочены блокировкой его ячейки в entries, разные фильмы
+// обновляются параллельно, а чтение топа не блокируется вовсе.
+// Такие же списки ведутся для каждого жанра и каждого года выпуска: топ с одним фильтром тоже читается
+// с начала своего списка. При фильтре и по жанру, и по году два списка обходятся слиянием.
+public class PopularityIndex {
+
+    // Больше лайков — выше; при равенстве по названию, затем по id, чтобы записи не совпадали
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt((Entry e) -> -e.likes())
+            .thenComparing(Entry::name, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(Entry::filmId);
+
+    // Год неизвестен: фильм есть только в общем рейтинге и в рейтингах своих жанров
+    private static final int NO_YEAR = 0;
+    private static final int[] NO_GENRES = new int[0];
+
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentMap<Integer, ConcurrentSkipListSet<Entry>> byGenre = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, ConcurrentSkipListSet<Entry>> byYear = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    public void put(int filmId, String name, int likes) {
+        put(filmId, name, likes, null, NO_GENRES);
+    }
+
+    // year — год выпуска, null, если дата неизвестна
+    public void put(int filmId, String name, int likes, Integer year, int[] genreIds) {
+        Entry next = new Entry(filmId, name, likes, year == null ? NO_YEAR : year, distinct(genreIds));
+        entries.compute(filmId, (id, previous) -> replace(previous, next));
+    }
+
+    // Год выпуска и жанры берутся из самого фильма
+    public void put(Film film, int likes) {
+        put(film.getId(), film.getName(), likes, yearOf(film), genreIdsOf(film));
+    }
+
+    // Обновляет название фильма, сохраняя число лайков. Как и adjustLikes, не возвращает удалённый фильм:
+    // обновление, опоздавшее за удалением, пропускается под той же блокировкой ячейки
+    public void rename(int filmId, String name) {
+        entries.computeIfPresent(filmId, (id, previous) -> replace(previous,
+                new Entry(filmId, name, previous.likes(), previous.year(), previous.genreIds())));
+    }
+
+    // Новые название, год и жанры после изменения фильма; число лайков сохраняется
+    public void update(Film film) {
+        update(film.getId(), film.getName(), yearOf(film), genreIdsOf(film));
+    }
+
+    public void update(int filmId, String name, Integer year, int[] genreIds) {
+        int[] distinctGenreIds = distinct(genreIds);
+        entries.computeIfPresent(filmId, (id, previous) -> replace(previous,
+                new Entry(id, name, previous.likes(), year == null ? NO_YEAR : year, distinctGenreIds)));
+    }
+
+    public void remove(int filmId) {
+        entries.computeIfPresent(filmId, (id, previous) -> {
+            removeEverywhere(previous);
+            return null;
+        });
+    }
+
+    public void adjustLikes(int filmId, int delta) {
+        entries.computeIfPresent(filmId, (id, previous) -> replace(previous, new Entry(filmId, previous.name(),
+                previous.likes() + delta, previous.year(), previous.genreIds())));
+    }
+
+    public List<Integer> top(int count) {
+        return collect(ranking.iterator(), count);
+    }
+
+    // genreId и year — фильтры, null — без фильтра. С одним фильтром читается его список, с двумя — слияние:
+    // оба списка упорядочены одинаково, поэтому общие фильмы встречаются в них в одном порядке
+    public List<Integer> top(int count, Integer genreId, Integer year) {
+        if (genreId == null && year == null) {
+            return top(count);
+        }
+        ConcurrentSkipListSet<Entry> genreRanking = genreId == null ? null : byGenre.get(genreId);
+        ConcurrentSkipListSet<Entry> yearRanking = year == null ? null : byYear.get(year);
+        if (genreId != null && genreRanking == null || year != null && yearRanking == null) {
+            return new ArrayList<>();
+        }
+        if (genreRanking == null || yearRanking == null) {
+            return collect((genreRanking != null ? genreRanking : yearRanking).iterator(), count);
+        }
+        return collectCommon(genreRanking.iterator(), yearRanking.iterator(), count);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Сумма лайков всех фильмов: сверяется с таблицей после восстановления из журнала
+    public long totalLikes() {
+        return entries.values().stream().mapToLong(Entry::likes).sum();
+    }
+
+    public void clear() {
+        entries.clear();
+        ranking.clear();
+        byGenre.clear();
+        byYear.clear();
+    }
+
+    // Пока фильм переставляется, в списке могут мелькнуть обе его записи — берём первую
+    private static List<Integer> collect(Iterator<Entry> iterator, int count) {
+        List<Integer> filmIds = new ArrayList<>(Math.min(count, 64));
+        Set<Integer> seen = new HashSet<>();
+        while (filmIds.size() < count && iterator.hasNext()) {
+            int filmId = iterator.next().filmId();
+            if (seen.add(filmId)) {
+                filmIds.add(filmId);
+            }
+        }
+        return filmIds;
+    }
+
+    // Шаг делается в том списке, чья текущая запись выше; совпавшие записи — фильмы, подходящие под оба фильтра
+    private static List<Integer> collectCommon(Iterator<Entry> left, Iterator<Entry> right, int count) {
+        List<Integer> filmIds = new ArrayList<>(Math.min(count, 64));
+        Set<Integer> seen = new HashSet<>();
+        Entry a = next(left);
+        Entry b = next(right);
+        while (filmIds.size() < count && a != null && b != null) {
+            int order = ORDER.compare(a, b);
+            if (order < 0) {
+                a = next(left);
+            } else if (order > 0) {
+                b = next(right);
+            } else {
+                if (seen.add(a.filmId())) {
+                    filmIds.add(a.filmId());
+                }
+                a = next(left);
+                b = next(right);
+            }
+        }
+        return filmIds;
+    }
+
+    private static Entry next(Iterator<Entry> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    // Новая запись вставляется раньше удаления старой, чтобы фильм не пропадал из топа
+    private Entry replace(Entry previous, Entry next) {
+        if (previous != null && ORDER.compare(previous, next) == 0) {
+            // Место в рейтингах не изменилось: меняются только сами списки жанров и года
+            moveFacets(previous, next);
+            return next;
+        }
+        addEverywhere(next);
+        if (previous != null) {
+            removeEverywhere(previous);
+        }
+        return next;
+    }
+
+    private void addEverywhere(Entry entry) {
+        ranking.add(entry);
+        for (int genreId : entry.genreIds()) {
+            facet(byGenre, genreId).add(entry);
+        }
+        if (entry.year() != NO_YEAR) {
+            facet(byYear, entry.year()).add(entry);
+        }
+    }
+
+    private void removeEverywhere(Entry entry) {
+        ranking.remove(entry);
+        for (int genreId : entry.genreIds()) {
+            facet(byGenre, genreId).remove(entry);
+        }
+        if (entry.year() != NO_YEAR) {
+            facet(byYear, entry.year()).remove(entry);
+        }
+    }
+
+    // Записи равны по порядку, поэтому в общих списках остаётся прежняя
+    private void moveFacets(Entry previous, Entry next) {
+        for (int genreId : previous.genreIds()) {
+            if (Arrays.binarySearch(next.genreIds(), genreId) < 0) {
+                facet(byGenre, genreId).remove(previous);
+            }
+        }
+        for (int genreId : next.genreIds()) {
+            if (Arrays.binarySearch(previous.genreIds(), genreId) < 0) {
+                facet(byGenre, genreId).add(next);
+            }
+        }
+        if (previous.year() != next.year()) {
+            if (previous.year() != NO_YEAR) {
+                facet(byYear, previous.year()).remove(previous);
+            }
+            if (next.year() != NO_YEAR) {
+                facet(byYear, next.year()).add(next);
+            }
+        }
+    }
+
+    private static ConcurrentSkipListSet<Entry> facet(ConcurrentMap<Integer, ConcurrentSkipListSet<Entry>> facets,
+                                                      int key) {
+        return facets.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>(ORDER));
+    }
+
+    private static Integer yearOf(Film film) {
+        return film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+    }
+
+    private static int[] genreIdsOf(Film film) {
+        if (film.getGenres() == null) {
+            return NO_GENRES;
+        }
+        return film.getGenres().stream()
+                .map(Genre::getId)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // Отсортированы и без повторов: принадлежность жанру проверяется двоичным поиском
+    private static int[] distinct(int[] genreIds) {
+        return genreIds.length == 0 ? NO_GENRES : Arrays.stream(genreIds).distinct().sorted().toArray();
+    }
+
+    private record Entry(int filmId, String name, int likes, int year, int[] genreIds) {
+    }
+}
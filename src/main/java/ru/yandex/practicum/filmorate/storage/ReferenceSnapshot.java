@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+// Неизменяемый снимок справочника: элементы разложены по массиву с индексом id,
+// поэтому поиск по id — одно обращение к массиву без запросов в БД
+final class ReferenceSnapshot<T> {
+
+    private final Object[] byId;
+    private final List<T> all;
+
+    ReferenceSnapshot(List<T> items, ToIntFunction<T> idGetter) {
+        int maxId = items.stream().mapToInt(idGetter).max().orElse(0);
+        this.byId = new Object[maxId + 1];
+        for (T item : items) {
+            byId[idGetter.applyAsInt(item)] = item;
+        }
+        this.all = List.copyOf(items);
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(Integer id) {
+        if (id == null || id < 0 || id >= byId.length) {
+            return null;
+        }
+        return (T) byId[id];
+    }
+
+    List<T> all() {
+        return all;
+    }
+}
@@ -1,9 +1,12 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     User addUser(User user);
@@ -14,15 +17,42 @@ public interface UserStorage {
 
     List<User> getUsers();
 
+    // Страница пользователей по возрастанию id: пользователи с id > afterId, не больше limit штук
+    List<User> getUsersPage(int afterId, int limit);
+
+    // Обходит всех пользователей, не собирая их в память
+    void forEachUser(Consumer<User> action);
+
     void addFriend(Integer userId, Integer friendId);
 
     void removeFriend(Integer userId, Integer friendId);
 
     List<Integer> getCommonFriends(Integer userId1, Integer userId2);
 
+    // Общие друзья всех переданных пользователей
+    List<Integer> getCommonFriends(List<Integer> userIds);
+
+    // Друзья друзей, которых пользователь ещё не добавил, по убыванию числа общих друзей
+    List<Integer> getFriendSuggestions(int userId, int limit);
+
     boolean userExists(Integer userId);
 
     List<User> getFriends(Integer userId);
 
-    Set<User> getUsersByIds(Set<Integer> ids);
+    // Пользователи в порядке переданных id; несуществующие id пропускаются
+    List<User> getUsersByIds(Collection<Integer> ids);
+
+    // Пакетная вставка уже проверенных пользователей; проставляет им id
+    List<User> addUsers(List<User> users);
+
+    // Пакетное добавление друзей: для каждой пары true, если она добавлена, и false, если уже была
+    boolean[] addFriends(List<Friendship> friendships);
+
+    // Какие из переданных id принадлежат существующим пользователям
+    Set<Integer> getExistingIds(Collection<Integer> ids);
+
+    // Какие из переданных email и логинов уже заняты
+    Set<String> getTakenEmails(Collection<String> emails);
+
+    Set<String> getTakenLogins(Collection<String> logins);
 }
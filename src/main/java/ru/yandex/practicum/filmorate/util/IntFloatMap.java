@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.util;
+
+// Отображение id → float на примитивных массивах с открытой адресацией, без упаковки в Integer/Float.
+// Рассчитано на положительные id (0 — пустая ячейка) и на один поток: это рабочий буфер одного запроса.
+public class IntFloatMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private float[] values;
+    private int size;
+
+    public IntFloatMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public IntFloatMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity *= 2;
+        }
+        keys = new int[capacity];
+        values = new float[capacity];
+    }
+
+    // Оставляет большее из старого и нового значения
+    public void putMax(int key, float value) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = Math.max(values[slot], value);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    // NaN, если ключа нет
+    public float get(int key) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return Float.NaN;
+    }
+
+    public boolean containsKey(int key) {
+        return !Float.isNaN(get(key));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(Entry action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    // Заменяет каждое значение результатом функции от ключа и значения
+    public void replaceAll(Update update) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                values[i] = update.apply(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        float[] oldValues = values;
+        keys = new int[capacity];
+        values = new float[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i], mask);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    @FunctionalInterface
+    public interface Entry {
+        void accept(int key, float value);
+    }
+
+    @FunctionalInterface
+    public interface Update {
+        float apply(int key, float value);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.util;
+
+// Получатель пары id без упаковки в Integer, например (filmId, userId) при обходе лайков
+@FunctionalInterface
+public interface IntPairConsumer {
+    void accept(int first, int second);
+}
@@ -0,0 +1,378 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntConsumer;
+
+// Множество id на примитивном int[] с открытой адресацией: около 8 байт на элемент вместо 50+
+// у HashSet<Integer>. Для совместимости это Set<Integer> и в JSON пишется отсортированным массивом.
+// Лайки и друзья меняются из разных запросов, поэтому ячейки занимаются и освобождаются через CAS:
+// чтение не блокируется, запись не ждёт других записей. Общая блокировка берётся только на перестройку таблицы.
+@JsonSerialize(using = IntSet.SortedArraySerializer.class)
+public class IntSet extends AbstractSet<Integer> {
+
+    private static final AtomicIntegerArray EMPTY = new AtomicIntegerArray(0);
+    private static final int MIN_CAPACITY = 4;
+
+    // Пустая ячейка и удалённый элемент («надгробие»). Сами эти значения хранятся флагами
+    private static final int FREE = 0;
+    private static final int REMOVED = Integer.MIN_VALUE;
+    private static final int HAS_FREE_VALUE = 1;
+    private static final int HAS_REMOVED_VALUE = 2;
+
+    private static final AtomicIntegerFieldUpdater<IntSet> SIZE =
+            AtomicIntegerFieldUpdater.newUpdater(IntSet.class, "size");
+    private static final AtomicIntegerFieldUpdater<IntSet> USED =
+            AtomicIntegerFieldUpdater.newUpdater(IntSet.class, "used");
+    private static final AtomicIntegerFieldUpdater<IntSet> FLAGS =
+            AtomicIntegerFieldUpdater.newUpdater(IntSet.class, "flags");
+
+    // Старая таблица после перестройки не меняется, поэтому читатель может дочитать её до конца
+    private volatile AtomicIntegerArray table = EMPTY;
+    private volatile int size;
+    // Занятые ячейки — элементы и надгробия, включая зарезервированные под идущие вставки
+    private volatile int used;
+    private volatile int flags;
+    // Вставка и удаление держат её на чтение, перестройка — на запись
+    private final StampedLock rebuildLock = new StampedLock();
+
+    public IntSet() {
+    }
+
+    public IntSet(Collection<Integer> values) {
+        for (Integer value : values) {
+            add(value.intValue());
+        }
+    }
+
+    public static IntSet of(int... values) {
+        IntSet set = new IntSet();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    public boolean add(int value) {
+        if (value == FREE || value == REMOVED) {
+            return setFlag(flagOf(value));
+        }
+        while (true) {
+            long stamp = rebuildLock.readLock();
+            try {
+                AtomicIntegerArray slots = table;
+                // Ячейка резервируется заранее: пока заполнено не больше 3/4, свободная ячейка в цепочке найдётся
+                if (USED.incrementAndGet(this) * 4L <= slots.length() * 3L) {
+                    return insert(slots, value);
+                }
+                USED.decrementAndGet(this);
+            } finally {
+                rebuildLock.unlockRead(stamp);
+            }
+            rebuild();
+        }
+    }
+
+    public boolean remove(int value) {
+        if (value == FREE || value == REMOVED) {
+            return clearFlag(flagOf(value));
+        }
+        long stamp = rebuildLock.readLock();
+        try {
+            AtomicIntegerArray slots = table;
+            int slot = find(slots, value);
+            // Из двух одновременных удалений CAS пропустит одно
+            if (slot < 0 || !slots.compareAndSet(slot, value, REMOVED)) {
+                return false;
+            }
+            SIZE.decrementAndGet(this);
+            return true;
+        } finally {
+            rebuildLock.unlockRead(stamp);
+        }
+    }
+
+    public boolean contains(int value) {
+        if (value == FREE || value == REMOVED) {
+            return (flags & flagOf(value)) != 0;
+        }
+        return find(table, value) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        long stamp = rebuildLock.writeLock();
+        try {
+            table = EMPTY;
+            size = 0;
+            used = 0;
+            flags = 0;
+        } finally {
+            rebuildLock.unlockWrite(stamp);
+        }
+    }
+
+    // Элементы в порядке хранения, без сортировки
+    public int[] toIntArray() {
+        int[][] values = {new int[size]};
+        int[] count = {0};
+        forEachInt(value -> {
+            if (count[0] == values[0].length) {
+                values[0] = Arrays.copyOf(values[0], Math.max(MIN_CAPACITY, count[0] * 2));
+            }
+            values[0][count[0]++] = value;
+        });
+        return count[0] == values[0].length ? values[0] : Arrays.copyOf(values[0], count[0]);
+    }
+
+    // Обходит таблицу без копирования; изменения, сделанные во время обхода, могут быть и не видны
+    public void forEachInt(IntConsumer action) {
+        int special = flags;
+        if ((special & HAS_FREE_VALUE) != 0) {
+            action.accept(FREE);
+        }
+        if ((special & HAS_REMOVED_VALUE) != 0) {
+            action.accept(REMOVED);
+        }
+        AtomicIntegerArray slots = table;
+        for (int slot = 0; slot < slots.length(); slot++) {
+            int value = slots.get(slot);
+            if (value != FREE && value != REMOVED) {
+                action.accept(value);
+            }
+        }
+    }
+
+    public IntSet union(IntSet other) {
+        IntSet result = new IntSet();
+        forEachInt(result::add);
+        other.forEachInt(result::add);
+        return result;
+    }
+
+    public IntSet intersection(IntSet other) {
+        // Перебираем меньшее множество и проверяем элементы по большему
+        IntSet smaller = size() <= other.size() ? this : other;
+        IntSet larger = smaller == this ? other : this;
+        IntSet result = new IntSet();
+        smaller.forEachInt(value -> {
+            if (larger.contains(value)) {
+                result.add(value);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public boolean add(Integer value) {
+        return add(value.intValue());
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        return value instanceof Integer && remove(((Integer) value).intValue());
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof Integer && contains(((Integer) value).intValue());
+    }
+
+    // Обходит таблицу на момент вызова, как forEachInt, в порядке хранения
+    @Override
+    public Iterator<Integer> iterator() {
+        int special = flags;
+        AtomicIntegerArray slots = table;
+        return new Iterator<>() {
+            // Сначала флаги (-2 и -1), затем ячейки таблицы
+            private int position = -3;
+            private int next = advance();
+            private int last;
+
+            @Override
+            public boolean hasNext() {
+                return position < slots.length();
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = advance();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                IntSet.this.remove(last);
+            }
+
+            private int advance() {
+                while (++position < slots.length()) {
+                    if (position == -2 && (special & HAS_FREE_VALUE) != 0) {
+                        return FREE;
+                    }
+                    if (position == -1 && (special & HAS_REMOVED_VALUE) != 0) {
+                        return REMOVED;
+                    }
+                    if (position >= 0) {
+                        int value = slots.get(position);
+                        if (value != FREE && value != REMOVED) {
+                            return value;
+                        }
+                    }
+                }
+                return FREE;
+            }
+        };
+    }
+
+    // Ячейка из пустой становится занятой ровно один раз, поэтому одинаковые вставки сходятся
+    // на первой пустой ячейке цепочки: проигравший CAS перечитывает её и видит своё значение
+    private boolean insert(AtomicIntegerArray slots, int value) {
+        int mask = slots.length() - 1;
+        int slot = slot(value, mask);
+        while (true) {
+            int current = slots.get(slot);
+            if (current == value) {
+                USED.decrementAndGet(this);
+                return false;
+            }
+            if (current == FREE) {
+                if (slots.compareAndSet(slot, FREE, value)) {
+                    SIZE.incrementAndGet(this);
+                    return true;
+                }
+                continue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int find(AtomicIntegerArray slots, int value) {
+        if (slots.length() == 0) {
+            return -1;
+        }
+        int mask = slots.length() - 1;
+        int slot = slot(value, mask);
+        int current;
+        while ((current = slots.get(slot)) != FREE) {
+            if (current == value) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // Новая таблица без надгробий, заполненная не больше чем наполовину; публикуется целиком
+    private void rebuild() {
+        long stamp = rebuildLock.writeLock();
+        try {
+            AtomicIntegerArray old = table;
+            if ((used + 1) * 4L <= old.length() * 3L) {
+                return; // таблицу уже перестроил другой поток
+            }
+            int live = 0;
+            for (int slot = 0; slot < old.length(); slot++) {
+                int value = old.get(slot);
+                if (value != FREE && value != REMOVED) {
+                    live++;
+                }
+            }
+            int capacity = MIN_CAPACITY;
+            while (capacity < (live + 1) * 2) {
+                capacity *= 2;
+            }
+            AtomicIntegerArray fresh = new AtomicIntegerArray(capacity);
+            int mask = capacity - 1;
+            for (int i = 0; i < old.length(); i++) {
+                int value = old.get(i);
+                if (value != FREE && value != REMOVED) {
+                    int slot = slot(value, mask);
+                    while (fresh.get(slot) != FREE) {
+                        slot = (slot + 1) & mask;
+                    }
+                    fresh.set(slot, value);
+                }
+            }
+            used = live;
+            table = fresh;
+        } finally {
+            rebuildLock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean setFlag(int flag) {
+        int current;
+        do {
+            current = flags;
+            if ((current & flag) != 0) {
+                return false;
+            }
+        } while (!FLAGS.compareAndSet(this, current, current | flag));
+        SIZE.incrementAndGet(this);
+        return true;
+    }
+
+    private boolean clearFlag(int flag) {
+        int current;
+        do {
+            current = flags;
+            if ((current & flag) == 0) {
+                return false;
+            }
+        } while (!FLAGS.compareAndSet(this, current, current & ~flag));
+        SIZE.decrementAndGet(this);
+        return true;
+    }
+
+    private static int flagOf(int value) {
+        return value == FREE ? HAS_FREE_VALUE : HAS_REMOVED_VALUE;
+    }
+
+    // Перемешиваем биты: id идут подряд и без этого легли бы длинными цепочками
+    private static int slot(int value, int mask) {
+        int h = value * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Порядок хранения зависит от хеша, поэтому сортируется только ответ, а не каждый обход
+    static class SortedArraySerializer extends StdSerializer<IntSet> {
+
+        SortedArraySerializer() {
+            super(IntSet.class);
+        }
+
+        @Override
+        public void serialize(IntSet set, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            int[] values = set.toIntArray();
+            Arrays.sort(values);
+            generator.writeArray(values, 0, values.length);
+        }
+
+        @Override
+        public boolean isEmpty(SerializerProvider provider, IntSet set) {
+            return set.isEmpty();
+        }
+    }
+}
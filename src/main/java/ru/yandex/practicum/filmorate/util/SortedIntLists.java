@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Отображение id → отсортированный массив id без повторов (списки смежности).
+// Массив не меняется после публикации: изменение строит новый под блокировкой ячейки ключа,
+// поэтому чтение не блокируется и всегда видит целый снимок. Изменять полученные массивы нельзя.
+public class SortedIntLists {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final ConcurrentMap<Integer, int[]> lists = new ConcurrentHashMap<>();
+
+    public int[] get(int key) {
+        return lists.getOrDefault(key, EMPTY);
+    }
+
+    // Возвращает false, если значение уже было в списке
+    public boolean add(int key, int value) {
+        boolean[] added = new boolean[1];
+        lists.compute(key, (id, list) -> {
+            int[] current = list == null ? EMPTY : list;
+            int position = Arrays.binarySearch(current, value);
+            if (position >= 0) {
+                return list;
+            }
+            int insertAt = -position - 1;
+            int[] updated = new int[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = value;
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            added[0] = true;
+            return updated;
+        });
+        return added[0];
+    }
+
+    // Возвращает false, если значения не было в списке
+    public boolean remove(int key, int value) {
+        boolean[] removed = new boolean[1];
+        lists.computeIfPresent(key, (id, list) -> {
+            int position = Arrays.binarySearch(list, value);
+            if (position < 0) {
+                return list;
+            }
+            removed[0] = true;
+            if (list.length == 1) {
+                return null;
+            }
+            int[] updated = new int[list.length - 1];
+            System.arraycopy(list, 0, updated, 0, position);
+            System.arraycopy(list, position + 1, updated, position, updated.length - position);
+            return updated;
+        });
+        return removed[0];
+    }
+
+    // Заменяет список целиком; values должны быть отсортированы и без повторов. Возвращает прежний список
+    public int[] put(int key, int[] values) {
+        int[] previous = values.length == 0 ? lists.remove(key) : lists.put(key, values);
+        return previous == null ? EMPTY : previous;
+    }
+
+    public int[] removeKey(int key) {
+        int[] previous = lists.remove(key);
+        return previous == null ? EMPTY : previous;
+    }
+
+    // Число непустых списков
+    public int size() {
+        return lists.size();
+    }
+
+    public void clear() {
+        lists.clear();
+    }
+}
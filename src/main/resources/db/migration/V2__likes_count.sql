@@ -0,0 +1,4 @@
+-- Счётчик лайков фильма для выборки популярных; для уже существующих лайков заполняется по film_likes
+ALTER TABLE films ADD COLUMN likes_count INT NOT NULL DEFAULT 0;
+
+UPDATE films f SET likes_count = (SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.id);
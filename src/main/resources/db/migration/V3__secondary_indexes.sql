@@ -0,0 +1,6 @@
+-- Обратные выборки и каскадные удаления идут по второй колонке составного ключа,
+-- которую первичный ключ не покрывает
+CREATE INDEX idx_user_friends_friend_id ON user_friends (friend_id);
+CREATE INDEX idx_film_likes_user_id ON film_likes (user_id);
+CREATE INDEX idx_film_genres_genre_id ON film_genres (genre_id);
+CREATE INDEX idx_films_mpa_id ON films (mpa_id);
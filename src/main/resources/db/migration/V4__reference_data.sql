@@ -0,0 +1,23 @@
+-- Справочники MPA и жанров: без них нельзя создать ни одного фильма. В базе, созданной прежними
+-- schema.sql и data.sql, они уже есть — тогда справочник не трогается
+
+-- Добавляем MPA рейтинги
+INSERT INTO mpa (name)
+SELECT * FROM (VALUES
+    ('G'),
+    ('PG'),
+    ('PG-13'),
+    ('R'),
+    ('NC-17'))
+WHERE NOT EXISTS (SELECT 1 FROM mpa);
+
+-- Добавляем жанры
+INSERT INTO genres (name)
+SELECT * FROM (VALUES
+    ('Комедия'),
+    ('Драма'),
+    ('Мультфильм'),
+    ('Триллер'),
+    ('Документальный'),
+    ('Боевик'))
+WHERE NOT EXISTS (SELECT 1 FROM genres);
@@ -0,0 +1,31 @@
+-- Демонстрационные пользователи и фильмы. Добавляются только в пустую базу, чтобы не
+-- смешиваться с уже загруженными данными
+
+-- Добавляем пользователей
+INSERT INTO users (name, email, login, birthday)
+SELECT * FROM (VALUES
+    ('John Doe', 'john@example.com', 'john_doe', DATE '1990-01-01'),
+    ('Jane Doe', 'jane@example.com', 'jane_doe', DATE '1992-02-02'))
+WHERE NOT EXISTS (SELECT 1 FROM users);
+
+-- Добавляем фильмы с mpa_id
+INSERT INTO films (name, description, release_date, duration, mpa_id)
+SELECT * FROM (VALUES
+    ('Film 1', 'Description for Film 1', DATE '2023-01-01', 120, 1),
+    ('Film 2', 'Description for Film 2', DATE '2023-02-01', 90, 2),
+    ('Film 3', 'Description for Film 3', DATE '2023-03-01', 150, 3))
+WHERE NOT EXISTS (SELECT 1 FROM films);
+
+-- Связываем фильмы и жанры
+INSERT INTO film_genres (film_id, genre_id)
+SELECT f.id, v.genre_id
+FROM (VALUES ('Film 1', 1), ('Film 1', 3), ('Film 2', 2), ('Film 3', 5)) AS v(film_name, genre_id)
+JOIN films f ON f.name = v.film_name
+WHERE NOT EXISTS (SELECT 1 FROM film_genres);
+
+-- Добавляем друзей (односторонняя дружба)
+INSERT INTO user_friends (user_id, friend_id)
+SELECT j.id, d.id
+FROM users j
+JOIN users d ON d.login = 'jane_doe'
+WHERE j.login = 'john_doe' AND NOT EXISTS (SELECT 1 FROM user_friends);
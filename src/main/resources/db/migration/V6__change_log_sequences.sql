@@ -0,0 +1,5 @@
+-- Номера изменений для журналов фильмов и дружбы (filmorate.changelog): каждая записанная транзакция
+-- берёт следующий номер, и при старте журнал сверяется с последним выданным. Без кэша номеров,
+-- чтобы последний выданный номер в базе был точным
+CREATE SEQUENCE film_changes_seq NOCACHE;
+CREATE SEQUENCE friend_changes_seq NOCACHE;
@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import ru.yandex.practicum.filmorate.dao.ConcurrencyLimitingDataSource;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Одна и та же нагрузка на приложение с потоками Tomcat и с виртуальными потоками: клиентов больше,
+// чем потоков в пуле Tomcat (200). Виртуальные потоки должны дать не меньшую пропускную способность и не больший p99,
+// ошибок не должно быть ни в одном режиме.
+// Запускается только профилем load: mvn test -Pload, длительность замера — -Dfilmorate.load.seconds
+@Slf4j
+@Tag("load")
+class FilmorateLoadTest {
+
+    private static final int CLIENTS = 400;
+    private static final int FILMS = 10_000;
+    private static final int USERS = 2_000;
+    private static final long SECONDS = Long.getLong("filmorate.load.seconds", 10);
+    private static final double MIN_THROUGHPUT_RATIO = 1.0;
+    private static final double MAX_P99_RATIO = 1.0;
+
+    @Test
+    void virtualThreadsServeSameLoadWithoutErrors() throws Exception {
+        String url = "jdbc:h2:mem:load" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url)) {
+            populate(context.getBean(JdbcTemplate.class));
+        }
+
+        Result platform;
+        try (ConfigurableApplicationContext context = start(url, false)) {
+            assertThat(isLimited(context.getBean(DataSource.class))).isFalse();
+            platform = run(context);
+        }
+        Result virtual;
+        double throughputRatio;
+        double p99Ratio;
+        try (ConfigurableApplicationContext context = start(url, true)) {
+            assertThat(isLimited(context.getBean(DataSource.class))).isTrue();
+            virtual = run(context);
+            throughputRatio = virtual.throughput() / platform.throughput();
+            p99Ratio = virtual.p99Millis() / platform.p99Millis();
+            // Пишем, пока контекст открыт: при закрытии Spring Boot останавливает логирование
+            log.info("Потоки Tomcat: {}; виртуальные потоки: {}; пропускная способность x{}, p99 x{}",
+                    platform, virtual, String.format("%.2f", throughputRatio), String.format("%.2f", p99Ratio));
+        }
+
+        assertThat(platform.errors()).as("ошибки с потоками Tomcat").isZero();
+        assertThat(virtual.errors()).as("ошибки на виртуальных потоках").isZero();
+        assertThat(platform.requests()).isPositive();
+        assertThat(virtual.requests()).isPositive();
+        // Виртуальные потоки не должны проигрывать пулу Tomcat при клиентах сверх его размера
+        assertThat(throughputRatio).as("пропускная способность виртуальных потоков к потокам Tomcat")
+                .isGreaterThanOrEqualTo(MIN_THROUGHPUT_RATIO);
+        assertThat(p99Ratio).as("p99 виртуальных потоков к потокам Tomcat").isLessThanOrEqualTo(MAX_P99_RATIO);
+    }
+
+    private static ConfigurableApplicationContext start(String url, boolean virtualThreads) {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .run("--spring.datasource.url=" + url,
+                        "--server.port=0",
+                        "--management.server.port=0",
+                        "--filmorate.storage.films=db",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.zalando.logbook=OFF",
+                        "--logging.level.ru.yandex.practicum.filmorate=WARN",
+                        "--logging.level.ru.yandex.practicum.filmorate.FilmorateLoadTest=INFO");
+    }
+
+    private static boolean isLimited(DataSource dataSource) {
+        while (true) {
+            if (dataSource instanceof ConcurrencyLimitingDataSource) {
+                return true;
+            }
+            if (!(dataSource instanceof DelegatingDataSource delegating)) {
+                return false;
+            }
+            dataSource = delegating.getTargetDataSource();
+        }
+    }
+
+    private static Result run(ConfigurableApplicationContext context) throws Exception {
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build()) {
+            // Прогрев: JIT, пул соединений, соединения клиента
+            drive(client, executor, base, 1);
+            AtomicInteger errors = new AtomicInteger();
+            long started = System.nanoTime();
+            long[] latencies = drive(client, executor, base, SECONDS, errors);
+            double seconds = (System.nanoTime() - started) / 1e9;
+            Arrays.sort(latencies);
+            long p99 = latencies.length == 0 ? 0 : latencies[(int) Math.min(latencies.length - 1, latencies.length * 0.99)];
+            return new Result(latencies.length, errors.get(), latencies.length / seconds, p99 / 1_000_000.0);
+        }
+    }
+
+    private static void drive(HttpClient client, ExecutorService executor, String base, long seconds) throws Exception {
+        drive(client, executor, base, seconds, new AtomicInteger());
+    }
+
+    // Каждый клиент шлёт запросы подряд до истечения времени; возвращаются задержки всех запросов в наносекундах
+    private static long[] drive(HttpClient client, ExecutorService executor, String base, long seconds,
+                                AtomicInteger errors) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Future<List<Long>>> clients = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            clients.add(executor.submit(() -> {
+                List<Long> latencies = new ArrayList<>();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create(base + path(random))).GET().build();
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies.add(System.nanoTime() - start);
+                }
+                return latencies;
+            }));
+        }
+        List<Long> all = new ArrayList<>();
+        for (Future<List<Long>> future : clients) {
+            all.addAll(future.get());
+        }
+        return all.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Смесь чтений, каждое из которых идёт в базу: фильм, пользователь, страница каталога
+    private static String path(ThreadLocalRandom random) {
+        return switch (random.nextInt(3)) {
+            case 0 -> "/films/" + (4 + random.nextInt(FILMS));
+            case 1 -> "/users/" + (1 + random.nextInt(USERS));
+            default -> "/films?limit=20&after=" + random.nextInt(FILMS);
+        };
+    }
+
+    private static void populate(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("INSERT INTO users (name, email, login, birthday) " +
+                "SELECT 'User ' || X, 'load' || X || '@example.com', 'load' || X, DATE '1990-01-01' " +
+                "FROM SYSTEM_RANGE(1, ?)", USERS);
+        jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, mpa_id, likes_count) " +
+                "SELECT 'Film ' || X, 'Description ' || X, DATE '2000-01-01', 90, 1 + MOD(X, 5), 0 " +
+                "FROM SYSTEM_RANGE(1, ?)", FILMS);
+        jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) " +
+                "SELECT id, 1 + MOD(id, 6) FROM films WHERE name LIKE 'Film %'");
+    }
+
+    private record Result(int requests, int errors, double throughput, double p99Millis) {
+        @Override
+        public String toString() {
+            return String.format("%d запросов, %d ошибок, %.0f запросов/с, p99 %.1f мс",
+                    requests, errors, throughput, p99Millis);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package ru.yandex.practicum.filmorate;
+
+import org.flywaydb.core.Flyway;
+import org.h2.Driver;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Перезапуск на большой базе: миграции не пересоздают схему, данные сохраняются,
+// а время старта почти не отличается от старта на пустой базе
+class FilmorateStartupTest {
+
+    private static final int USERS = 20_000;
+    private static final int FILMS = 100_000;
+    private static final int LIKES_PER_FILM = 3;
+
+    @Test
+    void restartOnLargeDatabaseKeepsDataAndStaysFast() {
+        String largeUrl = "jdbc:h2:mem:startup-large" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        try (ConfigurableApplicationContext context = start(largeUrl)) {
+            populate(context.getBean(JdbcTemplate.class));
+        }
+
+        // Эталон — перезапуск на пустой базе в уже прогретой JVM
+        String emptyUrl = "jdbc:h2:mem:startup-empty" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        start(emptyUrl).close();
+        long emptyStart = System.nanoTime();
+        start(emptyUrl).close();
+        long emptyMillis = (System.nanoTime() - emptyStart) / 1_000_000;
+
+        long largeStart = System.nanoTime();
+        try (ConfigurableApplicationContext context = start(largeUrl)) {
+            long largeMillis = (System.nanoTime() - largeStart) / 1_000_000;
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+            // Схема не пересоздавалась и демонстрационные данные не добавились повторно
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class))
+                    .isEqualTo(FILMS + 3);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_likes", Integer.class))
+                    .isEqualTo(FILMS * LIKES_PER_FILM);
+            Flyway flyway = context.getBean(Flyway.class);
+            assertThat(flyway.info().pending()).isEmpty();
+            assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("6");
+            assertThat(largeMillis).as("старт на пустой базе занял %d мс", emptyMillis)
+                    .isLessThan(emptyMillis * 2 + 1000);
+        }
+    }
+
+    @Test
+    void upgradesDatabaseCreatedByLegacySchemaScripts() {
+        // База в том виде, в каком её оставляли прежние schema.sql и data.sql: без likes_count,
+        // без вторичных индексов и без истории миграций
+        String url = "jdbc:h2:mem:startup-legacy" + System.nanoTime() + ";DB_CLOSE_DELAY=-1";
+        JdbcTemplate legacy = new JdbcTemplate(new SimpleDriverDataSource(new Driver(), url, "sa", "password"));
+        new ResourceDatabasePopulator(new ClassPathResource("legacy/schema.sql"),
+                new ClassPathResource("legacy/data.sql")).execute(legacy.getDataSource());
+        legacy.update("INSERT INTO film_likes (film_id, user_id) VALUES (2, 1), (2, 2), (3, 1)");
+
+        try (ConfigurableApplicationContext context = start(url)) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            Flyway flyway = context.getBean(Flyway.class);
+            assertThat(flyway.info().pending()).isEmpty();
+            assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("6");
+
+            // Справочники и демонстрационные данные не задвоились, счётчики лайков заполнены по film_likes
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mpa", Integer.class)).isEqualTo(5);
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM films", Integer.class)).isEqualTo(3);
+            assertThat(jdbcTemplate.queryForList("SELECT likes_count FROM films ORDER BY id", Integer.class))
+                    .containsExactly(0, 2, 1);
+            assertThat(jdbcTemplate.queryForList("SELECT index_name FROM information_schema.indexes " +
+                    "WHERE index_name LIKE 'IDX_%'", String.class)).containsExactlyInAnyOrder(
+                    "IDX_USER_FRIENDS_FRIEND_ID", "IDX_FILM_LIKES_USER_ID",
+                    "IDX_FILM_GENRES_GENRE_ID", "IDX_FILMS_MPA_ID");
+            assertThat(context.getBean(FilmDbStorage.class).getPopularFilmIds(3)).containsExactly(2, 3, 1);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String url) {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + url);
+    }
+
+    private static void populate(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("INSERT INTO users (name, email, login, birthday) " +
+                "SELECT 'User ' || X, 'user' || X || '@example.com', 'user' || X, DATE '1990-01-01' " +
+                "FROM SYSTEM_RANGE(1, ?)", USERS);
+        jdbcTemplate.update("INSERT INTO films (name, description, release_date, duration, mpa_id, likes_count) " +
+                "SELECT 'Film ' || X, 'Description ' || X, DATE '2000-01-01', 90, 1 + MOD(X, 5), ? " +
+                "FROM SYSTEM_RANGE(1, ?)", LIKES_PER_FILM, FILMS);
+        jdbcTemplate.update("INSERT INTO film_genres (film_id, genre_id) " +
+                "SELECT id, 1 + MOD(id, 6) FROM films WHERE name LIKE 'Film %' AND id > 3");
+        jdbcTemplate.update("INSERT INTO film_likes (film_id, user_id) " +
+                "SELECT f.id, 3 + MOD(f.id * 7 + r.X * 1000, ?) FROM films f, SYSTEM_RANGE(1, ?) r WHERE f.id > 3",
+                USERS, LIKES_PER_FILM);
+    }
+}
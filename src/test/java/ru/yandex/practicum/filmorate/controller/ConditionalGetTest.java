@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.monitoring.QueryBudget;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Повторный опрос неизменённого ресурса с его ETag отвечает 304 без единого SQL;
+// запись через сервис (лайк, друг) меняет ETag
+@SpringBootTest(properties = "filmorate.storage.films=db")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConditionalGetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    private int filmId;
+    private int userId;
+    private int friendId;
+
+    @BeforeEach
+    void setup() {
+        Film film = new Film();
+        film.setName("Polled");
+        film.setDescription("Conditional");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        film.setMpa(new Mpa(1, null));
+        filmId = filmService.addFilm(film).getId();
+        userId = userService.addUser(user()).getId();
+        friendId = userService.addUser(user()).getId();
+    }
+
+    @Test
+    void unchangedFilmIsNotReloaded() throws Exception {
+        String etag = mockMvc.perform(get("/films/{id}", filmId))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/films/{id}", filmId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+                .andExpect(QueryBudget.atMost(0));
+
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId)).andExpect(status().isOk());
+        String changed = mockMvc.perform(get("/films/{id}", filmId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(changed).isNotNull().isNotEqualTo(etag);
+    }
+
+    @Test
+    void friendChangesUserVersion() throws Exception {
+        String etag = mockMvc.perform(get("/users/{id}", userId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/users/{id}", userId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(QueryBudget.atMost(0));
+
+        mockMvc.perform(put("/users/{id}/friends/{friendId}", userId, friendId)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/users/{id}", userId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void referenceDataAndMissingResources() throws Exception {
+        String etag = mockMvc.perform(get("/genres"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/mpa").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(QueryBudget.atMost(0));
+        String lastModified = mockMvc.perform(get("/genres/1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        mockMvc.perform(get("/genres/1").header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+
+        // Ответ 404 не получает ETag: иначе его можно было бы подтвердить, когда ресурс появится
+        mockMvc.perform(get("/films/{id}", 999_999))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void missingResourcesAreNotConfirmedByWildcard() throws Exception {
+        // У неизвестного id та же версия, что у неизменённых ресурсов, но 304 он не получает
+        mockMvc.perform(get("/films/{id}", 999_999).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/{id}", 999_999).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/genres/{id}", 999).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/mpa/{id}", 999).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(get("/films/{id}", filmId).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotModified());
+        String lastModified = mockMvc.perform(get("/films/{id}", filmId))
+                .andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        mockMvc.perform(delete("/films/{id}", filmId)).andExpect(status().is2xxSuccessful());
+        mockMvc.perform(get("/films/{id}", filmId).header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/films/{id}", filmId).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotFound());
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setName("Poller");
+        user.setEmail("poll" + System.nanoTime() + "@example.com");
+        user.setLogin("poll" + System.nanoTime());
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
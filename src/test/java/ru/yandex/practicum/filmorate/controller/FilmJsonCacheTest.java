@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.dao.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.monitoring.QueryBudget;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Ответы из готового JSON совпадают с обычной сериализацией, а изменение, лайк и удаление сразу видны
+@SpringBootTest(properties = {"filmorate.storage.films=db", "filmorate.films.json-cache.enabled=true"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class FilmJsonCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserDbStorage userDbStorage;
+
+    private int filmId;
+    private int userId;
+
+    @BeforeEach
+    void setup() {
+        Film film = new Film();
+        film.setName("Cached");
+        film.setDescription("Serialized once");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        film.setMpa(new Mpa(1, null));
+        film.setGenres(List.of(new Genre(1, null), new Genre(2, null)));
+        filmId = filmService.addFilm(film).getId();
+
+        User user = new User();
+        user.setName("Fan");
+        user.setEmail("cache" + System.nanoTime() + "@example.com");
+        user.setLogin("cache" + System.nanoTime());
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        userId = userDbStorage.addUser(user).getId();
+    }
+
+    @Test
+    void repeatedGetIsServedFromCacheUntilLikeChangesFilm() throws Exception {
+        String first = mockMvc.perform(get("/films/{id}", filmId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        assertThat(first).isEqualTo(objectMapper.writeValueAsString(filmService.getFilm(filmId)));
+
+        mockMvc.perform(get("/films/{id}", filmId))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(0));
+
+        Film film = filmService.getFilm(filmId);
+        film.setName("Renamed");
+        mockMvc.perform(put("/films").contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(film)))
+                .andExpect(status().isOk());
+        assertThat(read(content(mockMvc.perform(get("/films/{id}", filmId)).andReturn())).getName())
+                .isEqualTo("Renamed");
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}", filmId))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(1)); // лайк сдвинул версию: фильм читается заново
+
+        mockMvc.perform(delete("/films/{id}", filmId)).andExpect(status().isNoContent());
+        mockMvc.perform(get("/films/{id}", filmId)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void listsAreConcatenatedFromFragments() throws Exception {
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId)).andExpect(status().isOk());
+        List<Film> expected = filmService.getTopFilms(5);
+
+        String body = content(mockMvc.perform(get("/films/popular").param("count", "5")).andReturn());
+        assertThat(body).isEqualTo(objectMapper.writeValueAsString(expected));
+
+        // Второй раз все фильмы уже в кэше: база не читается вовсе
+        MvcResult again = mockMvc.perform(get("/films/popular").param("count", "5"))
+                .andExpect(QueryBudget.atMost(0))
+                .andReturn();
+        assertThat(content(again)).isEqualTo(body);
+
+        assertThat(content(mockMvc.perform(get("/films").param("ids", filmId + ",-1")).andReturn()))
+                .isEqualTo(objectMapper.writeValueAsString(List.of(filmService.getFilm(filmId))));
+        assertThat(content(mockMvc.perform(get("/films").param("limit", "1000")).andReturn()))
+                .isEqualTo(objectMapper.writeValueAsString(filmService.getFilmsPage(0, 1000)));
+    }
+
+    private static String content(MvcResult result) throws Exception {
+        return result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private Film read(String json) throws Exception {
+        return objectMapper.readValue(json, Film.class);
+    }
+}
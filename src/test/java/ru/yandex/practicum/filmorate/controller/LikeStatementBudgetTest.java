@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dao.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.monitoring.QueryBudget;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Лайк и его отмена стоят фиксированного числа SQL-выражений, сколько бы жанров ни было у фильма
+@SpringBootTest(properties = "filmorate.storage.films=db")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class LikeStatementBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmDbStorage filmDbStorage;
+
+    @Autowired
+    private UserDbStorage userDbStorage;
+
+    private int filmId;
+    private int userId;
+
+    @BeforeEach
+    void setup() {
+        Film film = new Film();
+        film.setName("Budget");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        film.setMpa(new Mpa(1, null));
+        film.setGenres(List.of(new Genre(1, null), new Genre(2, null), new Genre(3, null)));
+        filmId = filmDbStorage.addFilm(film).getId();
+
+        User user = new User();
+        user.setName("Liker");
+        user.setEmail("budget" + System.nanoTime() + "@example.com");
+        user.setLogin("budget" + System.nanoTime());
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        userId = userDbStorage.addUser(user).getId();
+    }
+
+    @Test
+    void likeAndUnlikeUseFixedNumberOfStatements() throws Exception {
+        // INSERT лайка, UPDATE счётчика, SELECT фильма для ответа
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(3));
+        // Повтор отсекает первичный ключ film_likes
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, userId))
+                .andExpect(status().isBadRequest())
+                .andExpect(QueryBudget.atMost(1));
+        // DELETE лайка, UPDATE счётчика
+        mockMvc.perform(delete("/films/{id}/like/{userId}", filmId, userId))
+                .andExpect(status().isNoContent())
+                .andExpect(QueryBudget.atMost(2));
+    }
+
+    @Test
+    void missingUserOrFilmCostsOneExtraQuery() throws Exception {
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmId, Integer.MAX_VALUE))
+                .andExpect(status().isNotFound())
+                .andExpect(QueryBudget.atMost(2));
+        mockMvc.perform(put("/films/{id}/like/{userId}", Integer.MAX_VALUE, userId))
+                .andExpect(status().isNotFound())
+                .andExpect(QueryBudget.atMost(2));
+        // Лайка нет: DELETE и одна проверка, что фильм и пользователь существуют
+        mockMvc.perform(delete("/films/{id}/like/{userId}", filmId, userId))
+                .andExpect(status().isNotFound())
+                .andExpect(QueryBudget.atMost(2));
+    }
+}
@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.monitoring.QueryBudget;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Бюджеты SQL основных эндпоинтов: число выражений не должно расти вместе с числом фильмов, жанров и друзей.
+// Данных заведено несколько штук на каждый список, чтобы запрос «на каждый элемент» сразу превысил бюджет.
+// Данные заводятся через сервисы, как у обычных запросов: иначе они не попадут в поиск и рекомендации
+@SpringBootTest(properties = "filmorate.storage.films=db")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class QueryBudgetRegressionTest {
+
+    private static final int ITEMS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    private final List<Integer> filmIds = new ArrayList<>();
+    private final List<Integer> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setup() throws Exception {
+        for (int i = 0; i < ITEMS; i++) {
+            Film film = new Film();
+            film.setName("Budget film " + i);
+            film.setDescription("Regression");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120);
+            film.setMpa(new Mpa(1, null));
+            film.setGenres(List.of(new Genre(1, null), new Genre(2, null)));
+            filmIds.add(filmService.addFilm(film).getId());
+
+            User user = new User();
+            user.setName("Budget user " + i);
+            user.setEmail("regression" + System.nanoTime() + "@example.com");
+            user.setLogin("regression" + System.nanoTime());
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userIds.add(userService.addUser(user).getId());
+        }
+        for (int i = 1; i < ITEMS; i++) {
+            userService.addFriend(userIds.get(0), userIds.get(i));
+            if (i > 1) {
+                userService.addFriend(userIds.get(1), userIds.get(i));
+            }
+            mockMvc.perform(put("/films/{id}/like/{userId}", filmIds.get(i), userIds.get(0)));
+            mockMvc.perform(put("/films/{id}/like/{userId}", filmIds.get(i), userIds.get(1)));
+        }
+        // Третий пользователь дружит со вторым и разделяет его лайк: ему есть что подсказать и рекомендовать
+        userService.addFriend(userIds.get(2), userIds.get(1));
+        mockMvc.perform(put("/films/{id}/like/{userId}", filmIds.get(1), userIds.get(2)));
+    }
+
+    @Test
+    void filmEndpointsStayWithinBudget() throws Exception {
+        mockMvc.perform(get("/films/{id}", filmIds.get(0)))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(1));
+        mockMvc.perform(get("/films").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(1));
+        mockMvc.perform(get("/films").param("ids", filmIds.get(2) + "," + filmIds.get(0) + ",-1," + filmIds.get(2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(filmIds.get(2), filmIds.get(0))))
+                .andExpect(jsonPath("$[0].genres.length()").value(2))
+                .andExpect(QueryBudget.atMost(1));
+        mockMvc.perform(get("/films/popular").param("count", "10"))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(1));
+        mockMvc.perform(get("/films/popular").param("count", "10").param("genreId", "2").param("year", "2000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].releaseDate").value(everyItem(startsWith("2000-"))))
+                .andExpect(QueryBudget.atMost(1));
+        mockMvc.perform(get("/films/search").param("q", "budget film"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(greaterThanOrEqualTo(ITEMS)))
+                .andExpect(QueryBudget.atMost(1));
+    }
+
+    @Test
+    void userEndpointsStayWithinBudget() throws Exception {
+        int userId = userIds.get(0);
+        mockMvc.perform(get("/users/{id}", userId))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(1));
+        mockMvc.perform(get("/users").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(1));
+        mockMvc.perform(get("/users").param("ids", userIds.get(3) + "," + userId + "," + userIds.get(3)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(userIds.get(3), userId)))
+                .andExpect(QueryBudget.atMost(1));
+        mockMvc.perform(get("/users/{id}/friends", userId))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(2));
+        mockMvc.perform(get("/users/{id}/friends/common/{otherId}", userId, userIds.get(1)))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(2));
+        mockMvc.perform(get("/users/{id}/friends/suggestions", userIds.get(2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(greaterThan(1)))
+                .andExpect(QueryBudget.atMost(2));
+        mockMvc.perform(get("/users/{id}/recommendations", userIds.get(2)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(greaterThan(1)))
+                .andExpect(QueryBudget.atMost(2));
+    }
+
+    @Test
+    void reportsServerTimingHeader() throws Exception {
+        mockMvc.perform(get("/films/{id}", filmIds.get(0)))
+                .andExpect(header().string("Server-Timing", containsString("1 statements")));
+        mockMvc.perform(get("/metrics/sql"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("GET /films/{id}")));
+    }
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConcurrencyLimitingDataSourceTest {
+
+    private static ConcurrencyLimitingDataSource limited(int maxConcurrency, long timeoutMs) {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:limiter" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        return new ConcurrencyLimitingDataSource(h2, maxConcurrency, timeoutMs);
+    }
+
+    @Test
+    void failsWhenNoPermitFreesUpInTime() throws Exception {
+        ConcurrencyLimitingDataSource dataSource = limited(2, 50);
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            assertThat(dataSource.availablePermits()).isZero();
+            assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        }
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void repeatedCloseReleasesPermitOnce() throws Exception {
+        ConcurrencyLimitingDataSource dataSource = limited(1, 50);
+        Connection connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void thousandsOfVirtualThreadsNeverExceedLimit() throws Exception {
+        ConcurrencyLimitingDataSource dataSource = limited(4, 10_000);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(5000);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 5000; i++) {
+                executor.execute(() -> {
+                    try (Connection connection = dataSource.getConnection()) {
+                        peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                        connection.createStatement().execute("SELECT 1");
+                        active.decrementAndGet();
+                        done.countDown();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+        }
+        assertThat(done.await(0, TimeUnit.SECONDS)).isTrue();
+        assertThat(peak.get()).isBetween(1, 4);
+        assertThat(dataSource.availablePermits()).isEqualTo(4);
+    }
+}
@@ -2,15 +2,22 @@ package ru.yandex.practicum.filmorate.dao;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
@@ -22,18 +29,41 @@ class FilmDbStorageTest {
     @Autowired
     private FilmDbStorage filmDbStorage;
 
+    @Autowired
+    private UserDbStorage userDbStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     private Film testFilm;
 
     @BeforeEach
     void setup() {
+        testFilm = createFilm();
+    }
+
+    private Film createFilm() {
         // Создаем тестовый фильм
-        testFilm = new Film();
+        Film testFilm = new Film();
         testFilm.setName("Test Movie");
         testFilm.setDescription("Description");
         testFilm.setReleaseDate(LocalDate.of(2000, 1, 1));
         testFilm.setDuration(120);
         testFilm.setMpa(new Mpa(1, null)); // допустим, MPA с id=1 уже есть в БД
         testFilm.setGenres(List.of(new Genre(1, null), new Genre(2, null))); // допустим, жанры с id=1,2 есть в БД
+        return testFilm;
+    }
+
+    private int createUser() {
+        User user = new User();
+        user.setName("Liker");
+        user.setEmail("liker" + System.nanoTime() + "@example.com");
+        user.setLogin("liker" + System.nanoTime());
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return userDbStorage.addUser(user).getId();
     }
 
     @Test
@@ -76,7 +106,8 @@ class FilmDbStorageTest {
     void addAndRemoveLike() {
         Film addedFilm = filmDbStorage.addFilm(testFilm);
         int filmId = addedFilm.getId();
-        int userId = 1; // допустим, пользователь с id=1 есть
+        // Пользователь из data.sql может быть удалён другими тестами, поэтому создаём своего
+        int userId = createUser();
 
         filmDbStorage.addLike(filmId, userId);
         List<Integer> likes = filmDbStorage.getLikesForFilm(filmId);
@@ -93,4 +124,335 @@ class FilmDbStorageTest {
         List<Film> films = filmDbStorage.getAllFilms();
         assertThat(films).isNotEmpty();
     }
+
+    @Test
+    void getFilmHydratesGenresAndMpa() {
+        Film addedFilm = filmDbStorage.addFilm(testFilm);
+
+        Film retrievedFilm = filmDbStorage.getFilm(addedFilm.getId());
+        assertThat(retrievedFilm.getMpa().getName()).isNotNull();
+        assertThat(retrievedFilm.getGenres()).extracting("name").doesNotContainNull();
+    }
+
+    @Test
+    void getAllFilmsUsesConstantNumberOfStatements() {
+        StatementCountingDataSource dataSource = new StatementCountingDataSource(jdbcTemplate.getDataSource());
+        FilmDbStorage countingStorage = new FilmDbStorage(new JdbcTemplate(dataSource));
+
+        filmDbStorage.addFilm(testFilm);
+        countingStorage.getAllFilms();
+        int statementsForSmallCatalog = dataSource.getCount();
+
+        for (int i = 0; i < 20; i++) {
+            filmDbStorage.addFilm(createFilm());
+        }
+        dataSource.reset();
+        List<Film> films = countingStorage.getAllFilms();
+
+        assertThat(films).extracting(Film::getId).contains(testFilm.getId());
+        assertThat(films).filteredOn(film -> film.getId().equals(testFilm.getId()))
+                .flatExtracting(Film::getGenres).extracting("id").containsExactly(1, 2);
+        assertThat(dataSource.getCount()).isEqualTo(statementsForSmallCatalog).isEqualTo(1);
+    }
+
+    @Test
+    void getFilmsPageReturnsFilmsAfterCursor() {
+        Film first = filmDbStorage.addFilm(testFilm);
+        Film second = filmDbStorage.addFilm(createFilm());
+        Film third = filmDbStorage.addFilm(createFilm());
+
+        List<Film> page = filmDbStorage.getFilmsPage(first.getId(), 2);
+        assertThat(page).extracting(Film::getId).containsExactly(second.getId(), third.getId());
+        assertThat(page).allSatisfy(film -> assertThat(film.getGenres()).extracting("id").containsExactly(1, 2));
+
+        assertThat(filmDbStorage.getFilmsPage(third.getId(), 10)).isEmpty();
+    }
+
+    @Test
+    void forEachFilmVisitsWholeCatalogInIdOrder() {
+        filmDbStorage.addFilm(testFilm);
+        filmDbStorage.addFilm(createFilm());
+
+        List<Film> visited = new ArrayList<>();
+        filmDbStorage.forEachFilm(visited::add);
+
+        assertThat(visited).extracting(Film::getId)
+                .isSorted()
+                .containsExactlyElementsOf(filmDbStorage.getAllFilms().stream().map(Film::getId).toList());
+    }
+
+    @Test
+    void popularFilmsFollowLikesAndSurviveIndexReload() {
+        Film first = filmDbStorage.addFilm(testFilm);
+        Film second = filmDbStorage.addFilm(createFilm());
+        int userId1 = createUser();
+        int userId2 = createUser();
+
+        assertThat(filmDbStorage.addLike(second.getId(), userId1)).isTrue();
+        assertThat(filmDbStorage.addLike(second.getId(), userId2)).isTrue();
+        assertThat(filmDbStorage.addLike(second.getId(), userId2)).isFalse();
+        assertThat(filmDbStorage.addLike(first.getId(), userId1)).isTrue();
+
+        assertThat(filmDbStorage.getPopularFilms(2)).extracting(Film::getId)
+                .containsExactly(second.getId(), first.getId());
+
+        // Рейтинг после перезапуска восстанавливается из сохранённого счётчика лайков
+        FilmDbStorage restarted = new FilmDbStorage(jdbcTemplate);
+        restarted.loadPopularityIndex();
+        assertThat(restarted.getPopularFilms(2)).extracting(Film::getId)
+                .containsExactly(second.getId(), first.getId());
+
+        assertThat(filmDbStorage.removeLike(second.getId(), userId1)).isTrue();
+        assertThat(filmDbStorage.removeLike(second.getId(), userId2)).isTrue();
+        assertThat(filmDbStorage.removeLike(second.getId(), userId2)).isFalse();
+        assertThat(filmDbStorage.getPopularFilms(1)).extracting(Film::getId).doesNotContain(second.getId());
+    }
+
+    @Test
+    void filteredPopularityFollowsFilmUpdatesAndSurvivesIndexReload() {
+        // Год, в котором у других тестов фильмов нет
+        Film drama = createFilm();
+        drama.setReleaseDate(LocalDate.of(1901, 5, 1));
+        drama.setGenres(List.of(new Genre(2, null)));
+        drama = filmDbStorage.addFilm(drama);
+        Film comedy = createFilm();
+        comedy.setReleaseDate(LocalDate.of(1901, 6, 1));
+        comedy.setGenres(List.of(new Genre(1, null)));
+        comedy = filmDbStorage.addFilm(comedy);
+        filmDbStorage.addLike(comedy.getId(), createUser());
+
+        assertThat(filmDbStorage.getPopularFilmIds(10, null, 1901)).containsExactly(comedy.getId(), drama.getId());
+        assertThat(filmDbStorage.getPopularFilmIds(10, 2, 1901)).containsExactly(drama.getId());
+
+        // Фильм сменил жанр и год: рейтинги по жанрам и годам переставляются вместе с ним
+        comedy.setGenres(List.of(new Genre(1, null), new Genre(2, null)));
+        comedy.setReleaseDate(LocalDate.of(1902, 1, 1));
+        filmDbStorage.updateFilm(comedy);
+        assertThat(filmDbStorage.getPopularFilmIds(10, null, 1901)).containsExactly(drama.getId());
+        assertThat(filmDbStorage.getPopularFilmIds(10, 2, 1902)).containsExactly(comedy.getId());
+
+        FilmDbStorage restarted = new FilmDbStorage(jdbcTemplate);
+        restarted.loadPopularityIndex();
+        assertThat(restarted.getPopularFilmIds(10, 2, 1902)).containsExactly(comedy.getId());
+        assertThat(restarted.getPopularFilmIds(10, 2, 1901)).containsExactly(drama.getId());
+
+        // Лайкнутый фильм иначе вмешался бы в общий рейтинг других тестов
+        filmDbStorage.deleteFilm(drama.getId());
+        filmDbStorage.deleteFilm(comedy.getId());
+    }
+
+    @Test
+    void popularityRestoresFromChangeLogAndRereadsTablesWhenLogDiverges(@TempDir Path directory) {
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate, openChangeLog(directory));
+        storage.loadPopularityIndex(); // журнала ещё нет: рейтинг из таблиц становится контрольной точкой
+        Film first = createFilm();
+        first.setReleaseDate(LocalDate.of(1903, 1, 1));
+        first = storage.addFilm(first);
+        Film second = createFilm();
+        second.setReleaseDate(LocalDate.of(1903, 2, 1));
+        second.setGenres(List.of(new Genre(3, null)));
+        second = storage.addFilm(second);
+        storage.addLike(second.getId(), createUser());
+        storage.flushLikes();
+
+        FilmDbStorage restarted = new FilmDbStorage(jdbcTemplate, openChangeLog(directory));
+        restarted.loadPopularityIndex();
+        assertThat(restarted.getPopularFilmIds(10, null, 1903)).containsExactly(second.getId(), first.getId());
+        assertThat(restarted.getPopularFilmIds(10, 3, 1903)).containsExactly(second.getId());
+        restarted.flushLikes();
+
+        // Таблица изменена в обход журнала: при старте это видно по сумме лайков, и рейтинг читается заново
+        jdbcTemplate.update("UPDATE films SET likes_count = 5 WHERE id = ?", first.getId());
+        restarted = new FilmDbStorage(jdbcTemplate, openChangeLog(directory));
+        restarted.loadPopularityIndex();
+        assertThat(restarted.getPopularFilmIds(10, null, 1903)).containsExactly(first.getId(), second.getId());
+
+        restarted.deleteFilm(first.getId());
+        restarted.deleteFilm(second.getId());
+        restarted.flushLikes();
+    }
+
+    @Test
+    void changeLogWithLostRecordIsRereadFromTables(@TempDir Path directory) {
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate, openChangeLog(directory));
+        storage.loadPopularityIndex();
+        Film film = createFilm();
+        film.setReleaseDate(LocalDate.of(1905, 1, 1));
+        film.setGenres(List.of(new Genre(3, null)));
+        int filmId = storage.addFilm(film).getId();
+        storage.flushLikes();
+
+        // Транзакция взяла номер, сменила жанр и не успела дописать журнал: число фильмов и лайков
+        // прежнее, но журнал неполон, и жанры читаются из таблиц
+        jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR film_changes_seq", Long.class);
+        jdbcTemplate.update("UPDATE film_genres SET genre_id = 4 WHERE film_id = ?", filmId);
+        FilmDbStorage restarted = new FilmDbStorage(jdbcTemplate, openChangeLog(directory));
+        restarted.loadPopularityIndex();
+        assertThat(restarted.getPopularFilmIds(10, 4, 1905)).containsExactly(filmId);
+        assertThat(restarted.getPopularFilmIds(10, 3, 1905)).isEmpty();
+
+        restarted.deleteFilm(filmId);
+        restarted.flushLikes();
+    }
+
+    @Test
+    void indexedLikesAndTextsComeFromChangeLog(@TempDir Path directory) {
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate, openChangeLog(directory));
+        storage.loadPopularityIndex();
+        Film film = storage.addFilm(createFilm());
+        int userId = createUser();
+        storage.addLike(film.getId(), userId);
+        film.setDescription("Описание из журнала");
+        storage.updateFilm(film);
+        storage.flushLikes();
+
+        StatementCountingDataSource dataSource = new StatementCountingDataSource(jdbcTemplate.getDataSource());
+        JdbcTemplate countingTemplate = new JdbcTemplate(dataSource);
+        FilmDbStorage restarted = new FilmDbStorage(countingTemplate,
+                new NumberedChangeLog(directory, 4096, 2, FilmChanges::fold, countingTemplate, "film_changes_seq"));
+        restarted.loadPopularityIndex();
+        dataSource.reset();
+        List<List<Integer>> likes = new ArrayList<>();
+        List<Film> films = new ArrayList<>();
+        restarted.forEachIndexed((filmId, likerId) -> likes.add(List.of(filmId, likerId)), films::add);
+
+        assertThat(likes).contains(List.of(film.getId(), userId));
+        assertThat(films).filteredOn(indexed -> indexed.getId().equals(film.getId()))
+                .extracting(Film::getDescription).containsExactly("Описание из журнала");
+        // Таблицы не читаются: один запрос — последний выданный номер изменений
+        assertThat(dataSource.getCount()).isEqualTo(1);
+
+        restarted.deleteFilm(film.getId());
+        restarted.flushLikes();
+    }
+
+    @Test
+    void bufferedLikeReachesChangeLogOnlyAfterFlush(@TempDir Path directory) {
+        FilmDbStorage storage = new FilmDbStorage(jdbcTemplate, transactionTemplate,
+                new ChangeLogFactory(true, directory.toString(), 4096, 2), true, 500, 10_000, 3_600_000);
+        storage.loadPopularityIndex();
+        int filmId = storage.addFilm(createFilm()).getId();
+        int userId = createUser();
+        assertThat(storage.addLike(filmId, userId)).isTrue();
+
+        // Лайк ещё в буфере: в таблице его нет, и журнал его тоже не знает
+        assertThat(likesInChangeLog(directory.resolve("films"))).doesNotContain(List.of(filmId, userId));
+
+        storage.flushLikes();
+        assertThat(likesInChangeLog(directory.resolve("films"))).contains(List.of(filmId, userId));
+
+        new FilmDbStorage(jdbcTemplate).deleteFilm(filmId);
+    }
+
+    private List<List<Integer>> likesInChangeLog(Path directory) {
+        FilmDbStorage restarted = new FilmDbStorage(jdbcTemplate, openChangeLog(directory));
+        restarted.loadPopularityIndex();
+        List<List<Integer>> likes = new ArrayList<>();
+        restarted.forEachIndexed((filmId, userId) -> likes.add(List.of(filmId, userId)), film -> {
+        });
+        restarted.flushLikes();
+        return likes;
+    }
+
+    private NumberedChangeLog openChangeLog(Path directory) {
+        return new NumberedChangeLog(directory, 4096, 2, FilmChanges::fold, jdbcTemplate, "film_changes_seq");
+    }
+
+    @Test
+    void rolledBackLikeDoesNotReachPopularity() {
+        Film older = createFilm();
+        older.setReleaseDate(LocalDate.of(1904, 1, 1));
+        older = filmDbStorage.addFilm(older);
+        Film newer = createFilm();
+        newer.setReleaseDate(LocalDate.of(1904, 2, 1));
+        int newerId = filmDbStorage.addFilm(newer).getId();
+        int userId = createUser();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(filmDbStorage.addLike(newerId, userId)).isTrue();
+            status.setRollbackOnly();
+        });
+
+        // Лайк откатился вместе с транзакцией: рейтинг по-прежнему по id при равных лайках
+        assertThat(filmDbStorage.getPopularFilmIds(10, null, 1904)).containsExactly(older.getId(), newerId);
+        filmDbStorage.deleteFilm(older.getId());
+        filmDbStorage.deleteFilm(newerId);
+    }
+
+    @Test
+    void rolledBackFilmChangesDoNotReachPopularity() {
+        Film rolledBack = createFilm();
+        rolledBack.setReleaseDate(LocalDate.of(1906, 1, 1));
+        transactionTemplate.executeWithoutResult(status -> {
+            filmDbStorage.addFilm(rolledBack);
+            status.setRollbackOnly();
+        });
+        assertThat(filmDbStorage.getPopularFilmIds(10, null, 1906)).isEmpty();
+
+        Film film = createFilm();
+        film.setReleaseDate(LocalDate.of(1906, 1, 1));
+        int filmId = filmDbStorage.addFilm(film).getId();
+        Film moved = createFilm();
+        moved.setId(filmId);
+        moved.setReleaseDate(LocalDate.of(1907, 1, 1));
+        transactionTemplate.executeWithoutResult(status -> {
+            filmDbStorage.updateFilm(moved);
+            filmDbStorage.deleteFilm(filmId);
+            // До коммита читатели рейтинга не видят ни нового года, ни удаления
+            assertThat(filmDbStorage.getPopularFilmIds(10, null, 1906)).containsExactly(filmId);
+            status.setRollbackOnly();
+        });
+        assertThat(filmDbStorage.getPopularFilmIds(10, null, 1906)).containsExactly(filmId);
+        assertThat(filmDbStorage.getPopularFilmIds(10, null, 1907)).isEmpty();
+
+        filmDbStorage.deleteFilm(filmId);
+        assertThat(filmDbStorage.getPopularFilmIds(10, null, 1906)).isEmpty();
+    }
+
+    @Test
+    void addFilmsInBatch() {
+        List<Film> films = filmDbStorage.addFilms(List.of(createFilm(), createFilm(), createFilm()));
+
+        assertThat(films).extracting(Film::getId).doesNotContainNull().doesNotHaveDuplicates();
+        for (Film film : films) {
+            assertThat(filmDbStorage.getFilm(film.getId()).getGenres()).extracting("id")
+                    .containsExactlyInAnyOrder(1, 2);
+        }
+    }
+
+    @Test
+    void addLikesInBatchSkipsDuplicates() {
+        int filmId = filmDbStorage.addFilm(testFilm).getId();
+        int firstUser = createUser();
+        int secondUser = createUser();
+
+        boolean[] added = filmDbStorage.addLikes(List.of(
+                new FilmLike(filmId, firstUser), new FilmLike(filmId, firstUser), new FilmLike(filmId, secondUser)));
+
+        assertThat(added).containsExactly(true, false, true);
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId))
+                .isEqualTo(2);
+        assertThat(filmDbStorage.getPopularFilms(1)).extracting(Film::getId).containsExactly(filmId);
+    }
+
+    @Test
+    void getFilmsByIdsKeepsRequestOrderAndChunksLargeLists() {
+        StatementCountingDataSource dataSource = new StatementCountingDataSource(jdbcTemplate.getDataSource());
+        FilmDbStorage countingStorage = new FilmDbStorage(new JdbcTemplate(dataSource));
+        int first = filmDbStorage.addFilm(testFilm).getId();
+        int second = filmDbStorage.addFilm(createFilm()).getId();
+
+        // Между двумя фильмами — несуществующие id: всего больше двух частей по CHUNK_SIZE
+        List<Integer> ids = new ArrayList<>();
+        ids.add(second);
+        for (int i = 1; i <= ArrayParameters.CHUNK_SIZE * 2; i++) {
+            ids.add(-i);
+        }
+        ids.add(first);
+        List<Film> films = countingStorage.getFilmsByIds(ids);
+
+        assertThat(films).extracting(Film::getId).containsExactly(second, first);
+        assertThat(films).flatExtracting(Film::getGenres).extracting("id").containsExactly(1, 2, 1, 2);
+        assertThat(dataSource.getCount()).isEqualTo(3);
+    }
 }
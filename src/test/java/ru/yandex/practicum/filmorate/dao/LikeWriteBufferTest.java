@@ -0,0 +1,203 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class LikeWriteBufferTest {
+
+    // Фоновая запись по времени в тестах не срабатывает: пишем явно через flush или по размеру
+    private static final long NEVER = 3_600_000;
+
+    @Autowired
+    private FilmDbStorage filmDbStorage;
+
+    @Autowired
+    private UserDbStorage userDbStorage;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private LikeWriteBuffer buffer;
+    private final Map<Integer, Integer> corrections = new ConcurrentHashMap<>();
+    // Записанные изменения: +userId — лайк, -userId — отмена
+    private final List<Integer> written = new CopyOnWriteArrayList<>();
+    private int filmId;
+    private final List<Integer> userIds = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        Film film = new Film();
+        film.setName("Premiere");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2024, 1, 1));
+        film.setDuration(120);
+        film.setMpa(new Mpa(1, null));
+        filmId = filmDbStorage.addFilm(film).getId();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setName("Fan");
+            user.setEmail("fan" + System.nanoTime() + "@example.com");
+            user.setLogin("fan" + System.nanoTime());
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userIds.add(userDbStorage.addUser(user).getId());
+        }
+    }
+
+    @AfterEach
+    void cleanup() {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    @Test
+    void writesBufferedLikesAndCountersOnFlush() {
+        buffer = newBuffer(100, 1000);
+        for (int userId : userIds) {
+            assertThat(buffer.like(filmId, userId)).isTrue();
+        }
+        assertThat(buffer.like(filmId, userIds.get(0))).isFalse(); // повтор виден ещё до записи
+        assertThat(storedLikes()).isZero();
+
+        assertThat(written).isEmpty(); // о лайке узнают только после его записи
+
+        buffer.flush();
+
+        assertThat(storedLikes()).isEqualTo(3);
+        assertThat(likesCount()).isEqualTo(3);
+        assertThat(written).containsExactlyInAnyOrderElementsOf(userIds);
+        assertThat(buffer.unlike(filmId, userIds.get(0))).isTrue();
+        buffer.flush();
+        assertThat(storedLikes()).isEqualTo(2);
+        assertThat(likesCount()).isEqualTo(2);
+        assertThat(written).endsWith(-userIds.get(0));
+    }
+
+    @Test
+    void likeFollowedByUnlikeCancelsOut() {
+        buffer = newBuffer(100, 1000);
+        int userId = userIds.get(0);
+
+        assertThat(buffer.like(filmId, userId)).isTrue();
+        assertThat(buffer.unlike(filmId, userId)).isTrue();
+        assertThat(buffer.unlike(filmId, userId)).isFalse();
+
+        assertThat(buffer.pendingCount()).isZero();
+        buffer.flush();
+        assertThat(storedLikes()).isZero();
+    }
+
+    @Test
+    void fullBufferIsWrittenByCaller() {
+        buffer = newBuffer(2, 2);
+
+        buffer.like(filmId, userIds.get(0));
+        buffer.like(filmId, userIds.get(1));
+        buffer.like(filmId, userIds.get(2)); // буфер полон: два предыдущих пишет этот вызов или фоновая запись
+
+        assertThat(buffer.pendingCount()).isLessThanOrEqualTo(1);
+        buffer.close();
+        buffer = null;
+        assertThat(storedLikes()).isEqualTo(3);
+        assertThat(likesCount()).isEqualTo(3);
+    }
+
+    @Test
+    void skipsLikesOfFilmsDeletedBeforeFlush() {
+        buffer = newBuffer(100, 1000);
+        buffer.like(filmId, userIds.get(0));
+        filmDbStorage.deleteFilm(filmId);
+
+        buffer.flush();
+
+        assertThat(storedLikes()).isZero();
+        assertThat(corrections).containsEntry(filmId, -1); // рейтинг возвращает лайк, не попавший в таблицу
+        assertThat(written).isEmpty();
+    }
+
+    @Test
+    void failedBatchReturnsToBufferWithoutOverridingNewerChanges() {
+        int kept = userIds.get(0);
+        int unliked = userIds.get(1);
+        AtomicBoolean failing = new AtomicBoolean(true);
+        // Пока пакет пишется, второй лайк отменяют; затем запись пакета падает
+        JdbcTemplate failingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource()) {
+            @Override
+            public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                           ParameterizedPreparedStatementSetter<T> setter) {
+                if (failing.getAndSet(false)) {
+                    assertThat(buffer.unlike(filmId, unliked)).isTrue();
+                    throw new DataAccessResourceFailureException("База недоступна");
+                }
+                return super.batchUpdate(sql, batchArgs, batchSize, setter);
+            }
+        };
+        buffer = new LikeWriteBuffer(failingTemplate, transactionTemplate, 100, 1000, NEVER, new Recorder());
+        buffer.like(filmId, kept);
+        buffer.like(filmId, unliked);
+
+        assertThatThrownBy(buffer::flush).isInstanceOf(DataAccessResourceFailureException.class);
+
+        // Лайк и его отмена взаимно уничтожились, второй лайк ждёт следующей записи
+        assertThat(storedLikes()).isZero();
+        assertThat(buffer.pendingCount()).isEqualTo(1);
+        buffer.flush();
+        assertThat(storedLikes()).isEqualTo(1);
+        assertThat(likesCount()).isEqualTo(1);
+        assertThat(buffer.like(filmId, unliked)).isTrue();
+        buffer.flush();
+        assertThat(storedLikes()).isEqualTo(2);
+    }
+
+    private LikeWriteBuffer newBuffer(int batchSize, int capacity) {
+        return new LikeWriteBuffer(jdbcTemplate, transactionTemplate, batchSize, capacity, NEVER, new Recorder());
+    }
+
+    private class Recorder implements LikeWriteBuffer.Listener {
+        @Override
+        public void written(int film, int userId, boolean like) {
+            written.add(like ? userId : -userId);
+        }
+
+        @Override
+        public void skipped(int film, int userId, boolean like) {
+            corrections.merge(film, like ? -1 : 1, Integer::sum);
+        }
+    }
+
+    private int storedLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film_likes WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private int likesCount() {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
+}
@@ -0,0 +1,237 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.dao.SqlRecordingDataSource.RecordedStatement;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Map.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Прогоняет все методы DAO, а затем получает EXPLAIN для каждого выполненного ими SQL:
+// полное сканирование таблицы означает, что запросу не хватает индекса
+@SpringBootTest
+@ActiveProfiles("test")
+class QueryPlanTest {
+
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* PUBLIC\\.(\\w+)\\.tableScan");
+
+    // Выгрузки и сверки журнала с таблицами целиком читают ведущую таблицу по определению;
+    // сканировать им разрешено только её
+    private static final Map<String, String> FULL_LISTINGS = Map.ofEntries(
+            entry(FilmDbStorage.POPULARITY_SQL, "FILMS"),
+            entry(FilmDbStorage.POPULARITY_WITH_DESCRIPTION_SQL, "FILMS"),
+            entry("SELECT COUNT(*), COALESCE(SUM(likes_count), 0) FROM films", "FILMS"),
+            entry("SELECT COUNT(*) FROM user_friends", "USER_FRIENDS"),
+            entry("SELECT * FROM users", "USERS"),
+            entry("SELECT * FROM users ORDER BY id", "USERS"),
+            entry("SELECT user_id, friend_id FROM user_friends ORDER BY user_id, friend_id", "USER_FRIENDS"),
+            entry("SELECT film_id, user_id FROM film_likes", "FILM_LIKES"),
+            entry("SELECT * FROM genres ORDER BY id", "GENRES"),
+            entry("SELECT * FROM mpa ORDER BY id", "MPA"));
+
+    // Фоновая запись лайков по времени не срабатывает: буфер пишется при закрытии
+    private static final long NEVER = 3_600_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path changeLogDirectory;
+
+    private SqlRecordingDataSource dataSource;
+    private JdbcTemplate recordingTemplate;
+    private FilmDbStorage filmStorage;
+    private UserDbStorage userStorage;
+    private DbGenreStorage genreStorage;
+    private DbMpaStorage mpaStorage;
+
+    @BeforeEach
+    void setup() {
+        dataSource = new SqlRecordingDataSource(jdbcTemplate.getDataSource());
+        recordingTemplate = new JdbcTemplate(dataSource);
+        filmStorage = new FilmDbStorage(recordingTemplate);
+        userStorage = new UserDbStorage(recordingTemplate);
+        genreStorage = new DbGenreStorage(recordingTemplate);
+        mpaStorage = new DbMpaStorage(recordingTemplate);
+    }
+
+    @Test
+    void noStatementFallsBackToTableScan() {
+        exerciseStorages();
+
+        List<RecordedStatement> statements = dataSource.getStatements();
+        assertThat(statements).hasSizeGreaterThan(30);
+        // Каждая разрешённая выгрузка действительно выполнялась: список не отстаёт от кода
+        assertThat(statements).extracting(RecordedStatement::sql).containsAll(FULL_LISTINGS.keySet())
+                // Запросы, которые выполняются только при отказе лайка, в буфере лайков и с журналами
+                .contains("SELECT EXISTS (SELECT 1 FROM users WHERE id = ?), EXISTS (SELECT 1 FROM films WHERE id = ?)",
+                        "SELECT NEXT VALUE FOR film_changes_seq",
+                        "SELECT NEXT VALUE FOR friend_changes_seq",
+                        "SELECT BASE_VALUE - 1 FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = ?")
+                .anyMatch(sql -> sql.startsWith("SELECT EXISTS (SELECT 1 FROM users WHERE id = ?), " +
+                        "EXISTS (SELECT 1 FROM films WHERE id = ?), EXISTS (SELECT 1 FROM film_likes"))
+                .anyMatch(sql -> sql.startsWith("INSERT INTO film_likes") && sql.contains("AND EXISTS"));
+
+        List<String> violations = new ArrayList<>();
+        for (RecordedStatement statement : statements) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + statement.sql(), String.class,
+                    statement.parameters().toArray());
+            String allowedTable = listingTable(statement.sql());
+            Matcher scan = TABLE_SCAN.matcher(plan);
+            while (scan.find()) {
+                if (!scan.group(1).equals(allowedTable)) {
+                    violations.add(statement.sql() + "\n    -> " + plan.replace('\n', ' '));
+                    break;
+                }
+            }
+        }
+        assertThat(violations).as("Запросы с полным сканированием таблиц").isEmpty();
+    }
+
+    // Обратные выборки по второй колонке составных ключей (ими же пользуются каскадные удаления)
+    // не должны читать таблицу целиком
+    @Test
+    void reverseLookupsUseSecondaryIndexes() {
+        assertThat(explain("SELECT user_id FROM user_friends WHERE friend_id = 1")).doesNotContain("tableScan");
+        assertThat(explain("SELECT film_id FROM film_likes WHERE user_id = 1")).doesNotContain("tableScan");
+        assertThat(explain("SELECT film_id FROM film_genres WHERE genre_id = 1")).doesNotContain("tableScan");
+        assertThat(explain("SELECT id FROM films WHERE mpa_id = 1")).doesNotContain("tableScan");
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+
+    // Выгрузки каталога фильмов строятся из общего SELECT с JOIN: ведущая таблица у них films
+    private static String listingTable(String sql) {
+        String table = FULL_LISTINGS.get(sql);
+        if (table == null && sql.endsWith("FROM films f JOIN mpa m ON f.mpa_id = m.id " +
+                "LEFT JOIN film_genres fg ON fg.film_id = f.id " +
+                "LEFT JOIN genres g ON g.id = fg.genre_id ORDER BY f.id, g.id")) {
+            return "FILMS";
+        }
+        return table;
+    }
+
+    private void exerciseStorages() {
+        genreStorage.getGenre(1);
+        genreStorage.getAllGenres();
+        genreStorage.existsById(1);
+        mpaStorage.getMpa(1);
+        mpaStorage.getAllMpa();
+        mpaStorage.existsById(1);
+
+        User user = userStorage.addUser(user());
+        User friend = userStorage.addUser(user());
+        List<User> batch = userStorage.addUsers(List.of(user(), user()));
+        userStorage.updateUser(user);
+        userStorage.getUser(user.getId());
+        userStorage.getUsers();
+        userStorage.getUsersPage(0, 10);
+        userStorage.forEachUser(u -> { });
+        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.addFriends(List.of(new Friendship(user.getId(), batch.get(0).getId())));
+        userStorage.getFriends(user.getId());
+        userStorage.loadFriendGraph();
+        userStorage.getCommonFriends(user.getId(), friend.getId());
+        userStorage.userExists(user.getId());
+        userStorage.getUsersByIds(Set.of(user.getId(), friend.getId()));
+        userStorage.getExistingIds(Set.of(user.getId(), friend.getId()));
+        userStorage.getTakenEmails(List.of(user.getEmail()));
+        userStorage.getTakenLogins(List.of(user.getLogin()));
+        userStorage.removeFriend(user.getId(), friend.getId());
+
+        filmStorage.loadPopularityIndex();
+        Film film = filmStorage.addFilm(film());
+        List<Film> films = filmStorage.addFilms(List.of(film(), film()));
+        filmStorage.updateFilm(film);
+        filmStorage.getFilm(film.getId());
+        filmStorage.getAllFilms();
+        filmStorage.getFilmsPage(0, 10);
+        filmStorage.forEachFilm(f -> { });
+        filmStorage.addLike(film.getId(), user.getId());
+        filmStorage.addLikes(List.of(new FilmLike(films.get(0).getId(), user.getId())));
+        filmStorage.getPopularFilms(10);
+        filmStorage.getFilmsByIds(List.of(film.getId()));
+        filmStorage.forEachLike((filmId, userId) -> { });
+        filmStorage.getLikesForFilm(film.getId());
+        filmStorage.getExistingIds(Set.of(film.getId()));
+        filmStorage.removeLike(film.getId(), user.getId());
+        filmStorage.removeLike(film.getId(), user.getId()); // лайка нет: проверка фильма и пользователя
+        exerciseWriteBehindAndChangeLogs(films.get(0), user);
+        filmStorage.deleteFilm(film.getId());
+
+        // Лайкнутые фильмы не должны попасть в рейтинг других тестов
+        films.forEach(f -> filmStorage.deleteFilm(f.getId()));
+    }
+
+    // Отложенная запись лайков и журналы изменений: проверка лайка в таблице, пакетная запись,
+    // номера изменений из последовательностей и сверка журналов с таблицами при повторном старте
+    private void exerciseWriteBehindAndChangeLogs(Film likedFilm, User user) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        ChangeLogFactory changeLogs = new ChangeLogFactory(true, changeLogDirectory.toString(), 4096, 2);
+        for (int start = 0; start < 2; start++) {
+            FilmDbStorage buffered = new FilmDbStorage(recordingTemplate, transactionTemplate, changeLogs,
+                    true, 500, 10_000, NEVER);
+            UserDbStorage logged = new UserDbStorage(recordingTemplate, changeLogs);
+            buffered.loadPopularityIndex();
+            logged.loadFriendGraph();
+            if (start == 0) {
+                buffered.addLike(likedFilm.getId(), user.getId());
+                Film film = buffered.addFilm(film());
+                buffered.addLike(film.getId(), user.getId());
+                buffered.flushLikes();
+                transactionTemplate.executeWithoutResult(status ->
+                        logged.addFriend(user.getId(), userStorage.addUser(user()).getId()));
+                buffered = new FilmDbStorage(recordingTemplate, transactionTemplate, changeLogs,
+                        true, 500, 10_000, NEVER);
+                buffered.removeLike(film.getId(), user.getId());
+                buffered.deleteFilm(film.getId());
+            }
+            buffered.flushLikes();
+            logged.closeChangeLog();
+        }
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setName("Planner");
+        user.setEmail("plan" + System.nanoTime() + "@example.com");
+        user.setLogin("plan" + System.nanoTime());
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private static Film film() {
+        Film film = new Film();
+        film.setName("Plan");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1, null));
+        film.setGenres(List.of(new Genre(1, null)));
+        return film;
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Запоминает каждый выполненный SQL вместе с параметрами первого выполнения, чтобы потом
+// получить для него план запроса
+class SqlRecordingDataSource extends DelegatingDataSource {
+
+    record RecordedStatement(String sql, List<Object> parameters) {
+    }
+
+    private final Map<String, RecordedStatement> statements = Collections.synchronizedMap(new LinkedHashMap<>());
+
+    SqlRecordingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        return proxy(Connection.class, connection, (method, args, result) -> {
+            if (method.getName().startsWith("prepare") && result instanceof PreparedStatement ps) {
+                return recordPrepared((String) args[0], ps);
+            }
+            if (method.getName().equals("createStatement") && result instanceof Statement statement) {
+                return recordPlain(statement);
+            }
+            return result;
+        });
+    }
+
+    List<RecordedStatement> getStatements() {
+        synchronized (statements) {
+            return new ArrayList<>(statements.values());
+        }
+    }
+
+    private PreparedStatement recordPrepared(String sql, PreparedStatement target) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+        return proxy(PreparedStatement.class, target, (method, args, result) -> {
+            String name = method.getName();
+            if (name.equals("setNull")) {
+                parameters.put((Integer) args[0], null);
+            } else if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, args[1]);
+            } else if (name.startsWith("execute") || name.equals("addBatch")) {
+                statements.putIfAbsent(sql, new RecordedStatement(sql, new ArrayList<>(parameters.values())));
+            }
+            return result;
+        });
+    }
+
+    private Statement recordPlain(Statement target) {
+        return proxy(Statement.class, target, (method, args, result) -> {
+            if (method.getName().startsWith("execute") && args != null && args[0] instanceof String sql) {
+                statements.putIfAbsent(sql, new RecordedStatement(sql, List.of()));
+            }
+            return result;
+        });
+    }
+
+    private interface AfterCall {
+        Object apply(Method method, Object[] args, Object result) throws SQLException;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, AfterCall afterCall) {
+        return type.cast(Proxy.newProxyInstance(SqlRecordingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                    return afterCall.apply(method, args, result);
+                }));
+    }
+}
@@ -6,11 +6,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
 
 import static org.assertj.core.api.Assertions.*;
 
@@ -24,11 +26,15 @@ class UserDbStorageTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @BeforeEach
     void cleanDb() {
         // Удаляем данные из user_friends и users, чтобы не было конфликта по уникальности email
         jdbcTemplate.update("DELETE FROM user_friends");
         jdbcTemplate.update("DELETE FROM users");
+        userDbStorage.loadFriendGraph(); // граф в памяти должен совпадать с очищенной таблицей
     }
 
     private User user1;
@@ -84,6 +90,29 @@ class UserDbStorageTest {
         assertThat(friendsAfterRemove).doesNotContain(u2);
     }
 
+    @Test
+    void rolledBackFriendshipsDoNotReachGraph() {
+        int first = userDbStorage.addUser(user1).getId();
+        int second = userDbStorage.addUser(user2).getId();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            userDbStorage.addFriend(first, second);
+            userDbStorage.addFriends(List.of(new Friendship(second, first)));
+            // До коммита граф в памяти не меняется
+            assertThat(userDbStorage.getUser(first).getFriends()).isEmpty();
+            status.setRollbackOnly();
+        });
+        assertThat(userDbStorage.getUser(first).getFriends()).isEmpty();
+        assertThat(userDbStorage.getUser(second).getFriends()).isEmpty();
+
+        userDbStorage.addFriend(first, second);
+        transactionTemplate.executeWithoutResult(status -> {
+            userDbStorage.removeFriend(first, second);
+            status.setRollbackOnly();
+        });
+        assertThat(userDbStorage.getUser(first).getFriends()).containsExactly(second);
+    }
+
     @Test
     void getCommonFriendsTest() {
         User u1 = userDbStorage.addUser(user1);
@@ -101,6 +130,12 @@ class UserDbStorageTest {
 
         List<Integer> commonFriends = userDbStorage.getCommonFriends(u1.getId(), u2.getId());
         assertThat(commonFriends).contains(commonUser.getId());
+
+        // Граф, заново построенный из user_friends, отвечает так же, в том числе для N пользователей
+        userDbStorage.loadFriendGraph();
+        assertThat(userDbStorage.getCommonFriends(List.of(u1.getId(), u2.getId()))).containsExactly(commonUser.getId());
+        assertThat(userDbStorage.getCommonFriends(List.of(u1.getId(), u2.getId(), commonUser.getId()))).isEmpty();
+        assertThat(userDbStorage.getUser(u1.getId()).getFriends()).containsExactly(commonUser.getId());
     }
 
     @Test
@@ -115,7 +150,20 @@ class UserDbStorageTest {
         User u1 = userDbStorage.addUser(user1);
         User u2 = userDbStorage.addUser(user2);
 
-        Set<User> users = userDbStorage.getUsersByIds(Set.of(u1.getId(), u2.getId()));
-        assertThat(users).extracting("id").containsExactlyInAnyOrder(u1.getId(), u2.getId());
+        List<User> users = userDbStorage.getUsersByIds(List.of(u2.getId(), 99999, u1.getId()));
+        assertThat(users).extracting("id").containsExactly(u2.getId(), u1.getId());
+    }
+
+    @Test
+    void getUsersPageAndForEachUserTest() {
+        User u1 = userDbStorage.addUser(user1);
+        User u2 = userDbStorage.addUser(user2);
+
+        assertThat(userDbStorage.getUsersPage(0, 1)).extracting("id").containsExactly(u1.getId());
+        assertThat(userDbStorage.getUsersPage(u1.getId(), 10)).extracting("id").containsExactly(u2.getId());
+
+        List<Integer> visited = new ArrayList<>();
+        userDbStorage.forEachUser(user -> visited.add(user.getId()));
+        assertThat(visited).containsExactly(u1.getId(), u2.getId());
     }
 }
@@ -0,0 +1,84 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import org.junit.jupiter.api.Test;
+import org.zalando.logbook.Correlation;
+import org.zalando.logbook.HttpLogFormatter;
+import org.zalando.logbook.HttpLogWriter;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.HttpResponse;
+import org.zalando.logbook.Precorrelation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AsyncLogSinkTest {
+
+    @Test
+    void dropsEntriesInsteadOfBlockingWhenQueueIsFull() throws Exception {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> written = new CopyOnWriteArrayList<>();
+        HttpLogWriter writer = new HttpLogWriter() {
+            @Override
+            public void write(Precorrelation precorrelation, String request) {
+                writerBlocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                written.add(request);
+            }
+
+            @Override
+            public void write(Correlation correlation, String response) {
+                written.add(response);
+            }
+        };
+        HttpLogFormatter formatter = mock(HttpLogFormatter.class);
+        when(formatter.format(any(Precorrelation.class), any(HttpRequest.class))).thenReturn("request");
+        when(formatter.format(any(Correlation.class), any(HttpResponse.class))).thenReturn("response");
+        AsyncLogSink sink = new AsyncLogSink(formatter, writer, 2);
+
+        // Первая запись занимает фоновый поток, две ждут в очереди, остальные отбрасываются сразу
+        sink.write(mock(Precorrelation.class), mock(HttpRequest.class));
+        assertThat(writerBlocked.await(5, TimeUnit.SECONDS)).isTrue();
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            sink.write(mock(Correlation.class), mock(HttpRequest.class), mock(HttpResponse.class));
+        }
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+        assertThat(sink.pendingCount()).isEqualTo(2);
+        assertThat(sink.droppedCount()).isEqualTo(8);
+
+        release.countDown();
+        sink.close();
+        assertThat(written).containsExactly("request", "response", "response");
+    }
+
+    @Test
+    void samplesByFirstMatchingPattern() {
+        EndpointSampler sampler = new EndpointSampler(0.01, "/films/popular=1, /films/**=0.5,/users/**=0");
+
+        assertThat(sampler.rate("/films/popular")).isEqualTo(1.0);
+        assertThat(sampler.rate("/films/1")).isEqualTo(0.5);
+        assertThat(sampler.rate("/users/1/friends")).isZero();
+        assertThat(sampler.rate("/genres")).isEqualTo(0.01);
+
+        HttpRequest popular = mock(HttpRequest.class);
+        when(popular.getPath()).thenReturn("/films/popular");
+        HttpRequest user = mock(HttpRequest.class);
+        when(user.getPath()).thenReturn("/users/1");
+        for (int i = 0; i < 100; i++) {
+            assertThat(sampler.test(popular)).isTrue();
+            assertThat(sampler.test(user)).isFalse();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.dao.FilmDbStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Метрики сервисов, DAO и пула соединений доступны в формате Prometheus — на отдельном порту управления
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"filmorate.storage.films=db", "management.server.port=0"})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class MethodMetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmDbStorage filmDbStorage;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Test
+    void exposesMethodTimersResultSizesAndPoolGauges() throws Exception {
+        Film film = new Film();
+        film.setName("Metered");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setMpa(new Mpa(1, null));
+        int filmId = filmDbStorage.addFilm(film).getId();
+
+        mockMvc.perform(get("/films/{id}", filmId)).andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular").param("count", "5")).andExpect(status().isOk());
+        mockMvc.perform(get("/films/{id}", 999_999)).andExpect(status().isNotFound());
+
+        // На основном порту actuator нет
+        assertThat(mockMvc.perform(get("/actuator/prometheus")).andReturn().getResponse().getContentAsString())
+                .doesNotContain("filmorate_method_seconds");
+        ResponseEntity<String> response = restTemplate.getForEntity(
+                "http://127.0.0.1:" + managementPort + "/actuator/prometheus", String.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String scrape = response.getBody();
+
+        assertThat(scrape)
+                .contains("filmorate_method_seconds_count{class=\"FilmService\",exception=\"none\","
+                        + "layer=\"service\",method=\"getFilm\"")
+                .contains("filmorate_method_seconds_count{class=\"FilmDbStorage\",exception=\"none\","
+                        + "layer=\"storage\",method=\"getFilm\"")
+                // Ошибка учитывается отдельным рядом с именем исключения
+                .contains("filmorate_method_seconds_count{class=\"FilmService\",exception=\"FilmNotFoundException\","
+                        + "layer=\"service\",method=\"getFilm\"")
+                .contains("filmorate_method_result_size_bucket{class=\"FilmService\",layer=\"service\","
+                        + "method=\"getTopFilms\",le=\"10.0\"")
+                .contains("hikaricp_connections_active{pool=");
+    }
+}
@@ -0,0 +1,23 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Проверка для MockMvc: запрос уложился в заявленное число SQL-выражений.
+// mockMvc.perform(get("/films/1")).andExpect(QueryBudget.atMost(1))
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    public static ResultMatcher atMost(int statements) {
+        return result -> {
+            QueryStats stats = (QueryStats) result.getRequest().getAttribute(QueryAccountingFilter.STATS_ATTRIBUTE);
+            assertThat(stats).as("учёт SQL не подключён к MockMvc").isNotNull();
+            assertThat(stats.statements())
+                    .as("SQL-выражений на %s %s", result.getRequest().getMethod(), result.getRequest().getRequestURI())
+                    .isLessThanOrEqualTo(statements);
+        };
+    }
+}
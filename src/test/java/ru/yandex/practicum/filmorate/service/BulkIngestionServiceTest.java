@@ -0,0 +1,141 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.BatchReport;
+import ru.yandex.practicum.filmorate.model.BatchRowResult;
+import ru.yandex.practicum.filmorate.model.BatchRowResult.Status;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "filmorate.bulk.chunk-size=2") // маленький чанк, чтобы строки расходились по нескольким
+@ActiveProfiles("test")
+class BulkIngestionServiceTest {
+
+    @Autowired
+    private BulkIngestionService bulkIngestionService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static InputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String user(String login) {
+        return "{\"login\":\"" + login + "\",\"email\":\"" + login + "@example.com\",\"birthday\":\"1990-01-01\"}";
+    }
+
+    @Test
+    void importUsersReportsEachLine() throws IOException {
+        String login = "bulk" + System.nanoTime();
+        BatchReport report = bulkIngestionService.importUsers(ndjson(
+                user(login + "a"),
+                "{не json",
+                user(login + "a"), // повтор внутри загрузки
+                "",
+                "{\"login\":\"bad login\",\"email\":\"x@example.com\"}",
+                user(login + "b")));
+
+        assertThat(report.created()).isEqualTo(2);
+        assertThat(report.failed()).isEqualTo(3);
+        assertThat(report.rows()).extracting(BatchRowResult::line).containsExactly(1, 2, 3, 5, 6);
+        assertThat(report.rows()).extracting(BatchRowResult::status)
+                .containsExactly(Status.CREATED, Status.FAILED, Status.FAILED, Status.FAILED, Status.CREATED);
+        // Имя по умолчанию берётся из логина, как при обычном создании
+        assertThat(userService.getUser(report.rows().get(0).id()).getName()).isEqualTo(login + "a");
+    }
+
+    @Test
+    void importUsersAppliesSameConstraintsAsSingleEndpoint() throws IOException {
+        String login = "strict" + System.nanoTime();
+        BatchReport report = bulkIngestionService.importUsers(ndjson(
+                "{\"login\":\"a-b\",\"email\":\"" + login + "@example.com\",\"birthday\":\"1990-01-01\"}",
+                "{\"login\":\"" + login + "x\",\"email\":\"x@\",\"birthday\":\"1990-01-01\"}",
+                user(login)));
+
+        assertThat(report.rows()).extracting(BatchRowResult::status)
+                .containsExactly(Status.FAILED, Status.FAILED, Status.CREATED);
+        assertThat(report.rows().get(0).error()).contains("Логин может содержать только буквы и цифры");
+        assertThat(report.rows().get(1).error()).contains("Некорректный формат адреса электронной почты");
+    }
+
+    @Test
+    void importFilmsValidatesReferencesAndLikes() throws IOException {
+        String login = "fan" + System.nanoTime();
+        int userId = bulkIngestionService.importUsers(ndjson(user(login))).rows().get(0).id();
+
+        BatchReport films = bulkIngestionService.importFilms(ndjson(
+                "{\"name\":\"Bulk A\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1},\"genres\":[{\"id\":1}]}",
+                "{\"name\":\"Bulk B\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":1},\"genres\":[{\"id\":999}]}",
+                "{\"name\":\"Bulk C\",\"releaseDate\":\"2000-01-01\",\"duration\":90,\"mpa\":{\"id\":999}}"));
+        assertThat(films.rows()).extracting(BatchRowResult::status)
+                .containsExactly(Status.CREATED, Status.FAILED, Status.FAILED);
+        int filmId = films.rows().get(0).id();
+        assertThat(filmService.getFilm(filmId).getGenres()).extracting("id").containsExactly(1);
+
+        BatchReport likes = bulkIngestionService.importLikes(ndjson(
+                "{\"filmId\":" + filmId + ",\"userId\":" + userId + "}",
+                "{\"filmId\":" + filmId + ",\"userId\":" + userId + "}",
+                "{\"filmId\":" + Integer.MAX_VALUE + ",\"userId\":" + userId + "}"));
+        assertThat(likes.rows()).extracting(BatchRowResult::status)
+                .containsExactly(Status.CREATED, Status.SKIPPED, Status.FAILED);
+        assertThat(filmService.getFilm(filmId).getLikes()).containsExactly(userId);
+    }
+
+    @Test
+    void rolledBackChunkDoesNotReachSearchIndex() {
+        String name = "Rollback" + System.nanoTime();
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(90);
+        film.setMpa(new Mpa(1, null));
+
+        // Чанк откатился: поиск не находит фильм, которого нет в таблицах
+        transactionTemplate.executeWithoutResult(status -> {
+            filmService.addFilms(List.of(film));
+            status.setRollbackOnly();
+        });
+        assertThat(filmService.searchFilms(name, 10)).isEmpty();
+
+        Film committed = transactionTemplate.execute(status -> filmService.addFilms(List.of(film)).get(0));
+        assertThat(filmService.searchFilms(name, 10)).extracting(Film::getId).contains(committed.getId());
+    }
+
+    @Test
+    void importFriendships() throws IOException {
+        String login = "friend" + System.nanoTime();
+        BatchReport users = bulkIngestionService.importUsers(ndjson(user(login + "a"), user(login + "b")));
+        int first = users.rows().get(0).id();
+        int second = users.rows().get(1).id();
+
+        BatchReport report = bulkIngestionService.importFriendships(ndjson(
+                "{\"userId\":" + first + ",\"friendId\":" + second + "}",
+                "{\"userId\":" + first + ",\"friendId\":" + second + "}",
+                "{\"userId\":" + first + ",\"friendId\":" + first + "}",
+                "{\"userId\":" + first + ",\"friendId\":" + Integer.MAX_VALUE + "}"));
+
+        assertThat(report.rows()).extracting(BatchRowResult::status)
+                .containsExactly(Status.CREATED, Status.SKIPPED, Status.FAILED, Status.FAILED);
+        assertThat(userService.getUser(first).getFriends()).containsExactly(second);
+    }
+}
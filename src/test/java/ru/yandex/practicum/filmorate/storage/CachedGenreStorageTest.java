@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.dao.DbGenreStorage;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class CachedGenreStorageTest {
+
+    private DbGenreStorage dbGenreStorage;
+    private CachedGenreStorage cachedGenreStorage;
+
+    @BeforeEach
+    void setup() {
+        dbGenreStorage = mock(DbGenreStorage.class);
+        when(dbGenreStorage.getAllGenres()).thenReturn(List.of(new Genre(1, "Комедия"), new Genre(3, "Мультфильм")));
+        cachedGenreStorage = new CachedGenreStorage(dbGenreStorage);
+        cachedGenreStorage.refresh();
+    }
+
+    @Test
+    void lookupsDoNotHitDatabase() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(cachedGenreStorage.getGenre(1).getName()).isEqualTo("Комедия");
+            assertThat(cachedGenreStorage.existsById(3)).isTrue();
+            assertThat(cachedGenreStorage.existsById(2)).isFalse();
+        }
+        assertThat(cachedGenreStorage.getGenre(-1)).isNull();
+        assertThat(cachedGenreStorage.getGenre(100)).isNull();
+        assertThat(cachedGenreStorage.getAllGenres()).extracting(Genre::getId).containsExactly(1, 3);
+
+        verify(dbGenreStorage, times(1)).getAllGenres();
+        verifyNoMoreInteractions(dbGenreStorage);
+    }
+
+    @Test
+    void invalidateReloadsOnNextLookup() {
+        when(dbGenreStorage.getAllGenres()).thenReturn(List.of(new Genre(2, "Драма")));
+        assertThat(cachedGenreStorage.existsById(2)).isFalse();
+
+        cachedGenreStorage.invalidate();
+
+        assertThat(cachedGenreStorage.existsById(2)).isTrue();
+        assertThat(cachedGenreStorage.existsById(1)).isFalse();
+        verify(dbGenreStorage, times(2)).getAllGenres();
+    }
+}
@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChangeLogTest {
+
+    // Маленькие сегменты, чтобы переход к следующему случался за несколько записей; фоновое сжатие не начинается
+    private static final int SEGMENT_SIZE = 64;
+    private static final int NO_BACKGROUND_COMPACTION = 1000;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void replaysRecordsAcrossSegmentsAfterReopen() {
+        List<String> written = IntStream.range(0, 20).mapToObj(i -> "k" + i + "=" + i).toList();
+        try (ChangeLog log = open()) {
+            written.forEach(record -> log.append(bytes(record)));
+            assertThat(log.sealedSegments()).isPositive();
+            assertThat(replay(log)).containsExactlyElementsOf(written);
+        }
+
+        try (ChangeLog log = open()) {
+            assertThat(log.hasCheckpoint()).isFalse();
+            assertThat(replay(log)).containsExactlyElementsOf(written);
+        }
+    }
+
+    @Test
+    void dropsTornTailAndContinuesAfterLastWholeRecord() throws IOException {
+        try (ChangeLog log = open()) {
+            log.append(bytes("a=1"));
+            log.append(bytes("b=2"));
+        }
+        // Тело второй записи испорчено, как при обрыве записи на середине
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(2 * (8 + 3) - 5);
+            file.write('X');
+        }
+
+        try (ChangeLog log = open()) {
+            assertThat(replay(log)).containsExactly("a=1");
+            log.append(bytes("c=3"));
+        }
+        try (ChangeLog log = open()) {
+            assertThat(replay(log)).containsExactly("a=1", "c=3");
+        }
+    }
+
+    @Test
+    void compactionFoldsSealedSegmentsIntoCheckpoint() throws IOException {
+        try (ChangeLog log = open()) {
+            for (int i = 0; i < 30; i++) {
+                log.append(bytes("k" + i % 3 + "=" + i));
+            }
+            List<String> before = fold(replay(log));
+
+            log.compact();
+
+            assertThat(log.sealedSegments()).isZero();
+            assertThat(log.hasCheckpoint()).isTrue();
+            assertThat(segments()).hasSize(1);
+            assertThat(fold(replay(log))).isEqualTo(before);
+            log.append(bytes("k0=final"));
+        }
+
+        try (ChangeLog log = open()) {
+            assertThat(fold(replay(log))).containsExactly("k0=final", "k1=28", "k2=29");
+        }
+    }
+
+    @Test
+    void rebaseReplacesWholeHistory() throws IOException {
+        try (ChangeLog log = open()) {
+            for (int i = 0; i < 10; i++) {
+                log.append(bytes("old" + i + "=" + i));
+            }
+            log.rebase(out -> out.accept(bytes("x=1")));
+            log.append(bytes("y=2"));
+            assertThat(replay(log)).containsExactly("x=1", "y=2");
+        }
+
+        try (ChangeLog log = open()) {
+            assertThat(replay(log)).containsExactly("x=1", "y=2");
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.filter(file -> file.getFileName().toString().startsWith("checkpoint-"))).hasSize(1);
+        }
+    }
+
+    private ChangeLog open() {
+        return new ChangeLog(directory, SEGMENT_SIZE, NO_BACKGROUND_COMPACTION, LatestValues::new);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    private static List<String> replay(ChangeLog log) {
+        List<String> records = new ArrayList<>();
+        log.replay(record -> records.add(StandardCharsets.UTF_8.decode(record).toString()));
+        return records;
+    }
+
+    // Последнее значение каждого ключа, по порядку ключей
+    private static List<String> fold(List<String> records) {
+        LatestValues state = new LatestValues();
+        records.forEach(record -> state.apply(ByteBuffer.wrap(bytes(record))));
+        List<String> folded = new ArrayList<>();
+        state.writeTo(record -> folded.add(new String(record, StandardCharsets.UTF_8)));
+        return folded.stream().sorted().toList();
+    }
+
+    private static byte[] bytes(String record) {
+        return record.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Записи вида ключ=значение; в контрольную точку попадает последнее значение ключа
+    private static class LatestValues implements ChangeLog.State {
+        private final Map<String, String> values = new LinkedHashMap<>();
+
+        @Override
+        public void apply(ByteBuffer record) {
+            String[] parts = StandardCharsets.UTF_8.decode(record).toString().split("=", 2);
+            values.put(parts[0], parts[1]);
+        }
+
+        @Override
+        public void writeTo(Consumer<byte[]> out) {
+            values.forEach((key, value) -> out.accept(bytes(key + "=" + value)));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmRecommenderTest {
+
+    private final LikeMatrix matrix = new LikeMatrix();
+    private final FilmRecommender recommender = new FilmRecommender(matrix, 2, 200, 500, 50);
+
+    @AfterEach
+    void shutdown() {
+        recommender.close();
+    }
+
+    @Test
+    void recommendsFilmsOfMostSimilarUsers() {
+        // 2 совпадает с 1 на двух фильмах из трёх, 3 — только на одном
+        likeAll(1, 10, 11, 12);
+        likeAll(2, 10, 11, 20);
+        likeAll(3, 12, 30, 31, 32);
+
+        assertThat(recommender.recommend(1, 10)).containsExactly(20, 30, 31, 32);
+        assertThat(recommender.recommend(1, 1)).containsExactly(20);
+    }
+
+    @Test
+    void neverRecommendsAlreadyLikedFilms() {
+        likeAll(1, 10, 11);
+        likeAll(2, 10, 11);
+
+        assertThat(recommender.recommend(1, 10)).isEmpty();
+    }
+
+    @Test
+    void emptyForUserWithoutLikes() {
+        likeAll(2, 10, 11);
+
+        assertThat(recommender.recommend(1, 10)).isEmpty();
+    }
+
+    @Test
+    void mergesCoLikersAcrossManyFilms() {
+        // Больше фильмов, чем обрабатывает одна задача: сбор соседей делится на части
+        for (int film = 1; film <= 100; film++) {
+            matrix.add(1, film);
+            matrix.add(2, film);
+            if (film % 2 == 0) {
+                matrix.add(3, film);
+            }
+        }
+        matrix.add(2, 500);
+        matrix.add(3, 600);
+
+        assertThat(recommender.recommend(1, 10)).containsExactly(500, 600);
+    }
+
+    private void likeAll(int userId, int... filmIds) {
+        for (int filmId : filmIds) {
+            matrix.add(userId, filmId);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FilmSearchIndexTest {
+
+    private final FilmSearchIndex index = new FilmSearchIndex();
+
+    @Test
+    void findsWordsBySubstringAndPrefix() {
+        index.put(1, "Матрица", "Хакер узнаёт правду о мире");
+        index.put(2, "Аниматрица", "Девять короткометражек");
+        index.put(3, "Титаник", "Корабль и айсберг");
+
+        assertThat(index.search("матр", 10)).containsExactly(1, 2); // префикс выше подстроки
+        assertThat(index.search("КОРАБЛЬ", 10)).containsExactly(3);
+        assertThat(index.search("ко", 10)).containsExactly(2, 3); // короткое слово — только префикс
+        assertThat(index.search("дракон", 10)).isEmpty();
+    }
+
+    @Test
+    void ranksNameAboveDescriptionAndRequiresAllWords() {
+        index.put(1, "Фильм", "Про космос и звёзды");
+        index.put(2, "Космос", "Документальный фильм");
+        index.put(3, "Космос", "Про звёзды");
+
+        assertThat(index.search("космос", 10)).containsExactly(2, 3, 1);
+        assertThat(index.search("космос звёзды", 10)).containsExactly(3, 1);
+        assertThat(index.search("космос", 2)).containsExactly(2, 3);
+    }
+
+    @Test
+    void exactAndPrefixMatchesSurviveExpansionLimit() {
+        // Словарь в десять раз больше лимита: все слова содержат «ring» внутри и кандидаты тех же триграмм
+        for (int i = 0; i < 10_000; i++) {
+            index.put(100 + i, String.format("bring%04d", i), null);
+        }
+        index.put(1, "Ring", null);
+        index.put(2, "Rings", null);
+
+        assertThat(index.search("ring", 2)).containsExactly(1, 2);
+        assertThat(index.search("ring", 3)).containsExactly(1, 2, 100);
+    }
+
+    @Test
+    void followsUpdatesAndDeletes() {
+        index.put(1, "Старое название", null);
+        index.put(1, "Новое название", null);
+
+        assertThat(index.search("старое", 10)).isEmpty();
+        assertThat(index.search("новое", 10)).containsExactly(1);
+
+        index.remove(1);
+        assertThat(index.search("название", 10)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+}
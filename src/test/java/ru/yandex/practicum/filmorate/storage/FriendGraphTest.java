@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendGraphTest {
+
+    private final FriendGraph graph = new FriendGraph();
+
+    @Test
+    void keepsFriendListsSorted() {
+        assertThat(graph.addEdge(1, 30)).isTrue();
+        assertThat(graph.addEdge(1, 10)).isTrue();
+        assertThat(graph.addEdge(1, 20)).isTrue();
+        assertThat(graph.addEdge(1, 10)).isFalse();
+
+        assertThat(graph.friends(1)).containsExactly(10, 20, 30);
+        assertThat(graph.friends(2)).isEmpty(); // дружба односторонняя
+
+        assertThat(graph.removeEdge(1, 20)).isTrue();
+        assertThat(graph.removeEdge(1, 20)).isFalse();
+        assertThat(graph.friends(1)).containsExactly(10, 30);
+    }
+
+    @Test
+    void tracksFollowers() {
+        graph.addEdge(1, 3);
+        graph.addEdge(2, 3);
+        graph.putFriends(4, new int[]{3});
+
+        assertThat(graph.followers(3)).containsExactly(1, 2, 4);
+
+        graph.removeEdge(2, 3);
+        graph.putFriends(4, new int[]{5});
+
+        assertThat(graph.followers(3)).containsExactly(1);
+        assertThat(graph.followers(5)).containsExactly(4);
+    }
+
+    @Test
+    void commonFriendsOfSeveralUsers() {
+        graph.putFriends(1, new int[]{2, 3, 4, 5});
+        graph.putFriends(2, new int[]{1, 3, 5, 7});
+        graph.putFriends(3, new int[]{5, 7});
+
+        assertThat(graph.commonFriends(1, 2)).containsExactly(3, 5);
+        assertThat(graph.commonFriends(1, 2, 3)).containsExactly(5);
+        assertThat(graph.commonFriends(1, 4)).isEmpty();
+        assertThat(graph.commonFriends(1)).containsExactly(2, 3, 4, 5);
+    }
+
+    @Test
+    void intersectsListsOfVeryDifferentLength() {
+        // Длинный список проходит двоичным поиском, а не слиянием, результат тот же
+        int[] large = IntStream.range(0, 10_000).map(i -> i * 3).toArray();
+        int[] small = {3, 4, 300, 29_997, 30_000};
+
+        assertThat(FriendGraph.intersect(small, large)).containsExactly(3, 300, 29_997);
+    }
+
+    @Test
+    void commonFriendsResultIsNotSharedWithGraph() {
+        graph.putFriends(1, new int[]{2, 3});
+
+        graph.commonFriends(1)[0] = 42;
+
+        assertThat(graph.friends(1)).containsExactly(2, 3);
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendSuggestionsTest {
+
+    private final FriendGraph graph = new FriendGraph();
+    private final FriendSuggestions suggestions = new FriendSuggestions(graph, 50, 10, 100);
+
+    @Test
+    void ranksSecondDegreeByMutualFriends() {
+        graph.putFriends(1, new int[]{2, 3, 4});
+        graph.putFriends(2, new int[]{1, 5, 6});
+        graph.putFriends(3, new int[]{4, 6, 7});
+        graph.putFriends(4, new int[]{6, 7});
+
+        // 6 — общий у троих, 7 — у двоих, 5 — у одного; сам пользователь и его друзья (4) не предлагаются
+        assertThat(suggestions.suggest(1, 10)).containsExactly(6, 7, 5);
+        assertThat(suggestions.suggest(1, 2)).containsExactly(6, 7);
+        assertThat(suggestions.suggest(9, 10)).isEmpty();
+    }
+
+    @Test
+    void capsFanOutPerNode() {
+        FriendSuggestions narrow = new FriendSuggestions(graph, 10, 100, 100);
+        graph.putFriends(1, new int[]{2});
+        graph.putFriends(2, IntStream.rangeClosed(100, 1099).toArray());
+
+        // Из тысячи друзей друга просматривается не больше десяти
+        assertThat(narrow.rank(1)).hasSize(10);
+    }
+
+    @Test
+    void invalidatesUserAndEveryoneWhoFollowsThem() {
+        graph.putFriends(1, new int[]{2});
+        graph.putFriends(2, new int[]{3});
+        assertThat(suggestions.suggest(1, 10)).containsExactly(3);
+        assertThat(suggestions.suggest(2, 10)).isEmpty();
+        assertThat(suggestions.cachedUsers()).isEqualTo(2);
+
+        // У друга появился новый друг: рекомендации пользователя 1 должны пересчитаться
+        graph.addEdge(2, 4);
+        suggestions.invalidate(2);
+
+        assertThat(suggestions.cachedUsers()).isZero();
+        assertThat(suggestions.suggest(1, 10)).containsExactly(3, 4);
+    }
+
+    @Test
+    void cacheStaysBounded() {
+        FriendSuggestions small = new FriendSuggestions(graph, 50, 10, 3);
+        for (int userId = 1; userId <= 10; userId++) {
+            small.suggest(userId, 10);
+        }
+
+        assertThat(small.cachedUsers()).isLessThanOrEqualTo(3);
+    }
+}
@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Нагрузочные проверки: параллельные запросы не должны терять лайки и выдавать одинаковые id
+class InMemoryFilmStorageTest {
+
+    private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    private final InMemoryFilmStorage storage = new InMemoryFilmStorage();
+
+    private static Film createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(120);
+        return film;
+    }
+
+    @Test
+    void concurrentAddsGetUniqueIds() throws Exception {
+        int filmsPerThread = 2_000;
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < filmsPerThread; i++) {
+                storage.addFilm(createFilm("Film " + thread + "-" + i));
+            }
+        });
+
+        List<Film> films = storage.getAllFilms();
+        assertThat(films).hasSize(THREADS * filmsPerThread);
+        assertThat(films).extracting(Film::getId).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void concurrentLikesAreNotLost() throws Exception {
+        Film film = storage.addFilm(createFilm("Premiere"));
+        int likesPerThread = 5_000;
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < likesPerThread; i++) {
+                storage.addLike(film.getId(), thread * likesPerThread + i);
+            }
+        });
+
+        assertThat(storage.getFilm(film.getId()).getLikes()).hasSize(THREADS * likesPerThread);
+    }
+
+    @Test
+    void duplicateLikeIsAcceptedOnce() throws Exception {
+        Film film = storage.addFilm(createFilm("Premiere"));
+        AtomicInteger accepted = new AtomicInteger();
+
+        runConcurrently(THREADS, thread -> {
+            for (int userId = 0; userId < 1_000; userId++) {
+                if (storage.addLike(film.getId(), userId)) {
+                    accepted.incrementAndGet();
+                }
+            }
+        });
+
+        assertThat(accepted.get()).isEqualTo(1_000);
+        assertThat(storage.getFilm(film.getId()).getLikes()).hasSize(1_000);
+    }
+
+    @Test
+    void popularityStaysConsistentUnderConcurrentLikesAndUnlikes() throws Exception {
+        Film hit = storage.addFilm(createFilm("Hit"));
+        Film flop = storage.addFilm(createFilm("Flop"));
+        int usersPerThread = 1_000;
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < usersPerThread; i++) {
+                int userId = thread * usersPerThread + i;
+                storage.addLike(hit.getId(), userId);
+                storage.addLike(flop.getId(), userId);
+                storage.removeLike(flop.getId(), userId);
+            }
+        });
+
+        assertThat(storage.getFilm(flop.getId()).getLikes()).isEmpty();
+        assertThat(storage.getPopularFilms(2)).extracting(Film::getId).containsExactly(hit.getId(), flop.getId());
+
+        // Лайк после всех снятий снова поднимает фильм, а не уводит счётчик в минус
+        storage.addLike(flop.getId(), 1);
+        storage.addLike(flop.getId(), 2);
+        storage.removeLike(hit.getId(), 0);
+        assertThat(storage.getPopularFilms(1)).extracting(Film::getId).containsExactly(hit.getId());
+    }
+
+    @Test
+    void updateKeepsLikesAddedConcurrently() throws Exception {
+        Film film = storage.addFilm(createFilm("Original"));
+        int likesPerThread = 2_000;
+
+        runConcurrently(THREADS, thread -> {
+            for (int i = 0; i < likesPerThread; i++) {
+                if (thread == 0 && i % 10 == 0) {
+                    Film update = createFilm("Renamed " + i);
+                    update.setId(film.getId());
+                    storage.updateFilm(update);
+                }
+                storage.addLike(film.getId(), thread * likesPerThread + i);
+            }
+        });
+
+        assertThat(storage.getFilm(film.getId()).getLikes()).hasSize(THREADS * likesPerThread);
+    }
+
+    @Test
+    void updateRacingWithDeleteDoesNotResurrectFilmInPopularity() throws Exception {
+        for (int round = 0; round < 500; round++) {
+            Film film = storage.addFilm(createFilm("Doomed " + round));
+            Film update = createFilm("Renamed " + round);
+            update.setId(film.getId());
+
+            runConcurrently(2, thread -> {
+                try {
+                    if (thread == 0) {
+                        storage.updateFilm(update);
+                    } else {
+                        storage.deleteFilm(film.getId());
+                    }
+                } catch (FilmNotFoundException ignored) {
+                    // Обновление опоздало: фильм уже удалён
+                }
+            });
+        }
+
+        // В рейтинге не осталось ни одного удалённого фильма
+        assertThat(storage.getPopularFilmIds(Integer.MAX_VALUE)).isEmpty();
+    }
+
+    @Test
+    void batchLikesDoNotCheckUsersOneByOne() {
+        AtomicInteger checks = new AtomicInteger();
+        UserStorage users = (UserStorage) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{UserStorage.class}, (proxy, method, args) -> {
+                    checks.incrementAndGet();
+                    return true;
+                });
+        InMemoryFilmStorage checkedStorage = new InMemoryFilmStorage(users);
+        Film film = checkedStorage.addFilm(createFilm("Batch"));
+
+        boolean[] added = checkedStorage.addLikes(List.of(
+                new FilmLike(film.getId(), 1), new FilmLike(film.getId(), 2), new FilmLike(film.getId(), 1)));
+
+        assertThat(added).containsExactly(true, true, false);
+        assertThat(checkedStorage.getPopularFilmIds(1)).containsExactly(film.getId());
+        assertThat(checks.get()).isZero();
+
+        // Одиночный лайк по-прежнему проверяет пользователя
+        checkedStorage.addLike(film.getId(), 3);
+        assertThat(checks.get()).isEqualTo(1);
+    }
+
+    private static void runConcurrently(int threads, ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                Callable<Void> task = () -> {
+                    start.await();
+                    body.run(thread);
+                    return null;
+                };
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}
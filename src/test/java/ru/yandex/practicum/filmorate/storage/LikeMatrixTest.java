@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LikeMatrixTest {
+
+    private final LikeMatrix matrix = new LikeMatrix();
+
+    @Test
+    void loadBuildsSortedRowsAndColumns() {
+        matrix.load(likes -> {
+            likes.accept(20, 2);
+            likes.accept(10, 1);
+            likes.accept(30, 1);
+            likes.accept(20, 1);
+            likes.accept(20, 1); // повтор не дублируется
+        });
+
+        assertThat(matrix.filmsLikedBy(1)).containsExactly(10, 20, 30);
+        assertThat(matrix.filmsLikedBy(2)).containsExactly(20);
+        assertThat(matrix.usersWhoLiked(20)).containsExactly(1, 2);
+        assertThat(matrix.usersWhoLiked(40)).isEmpty();
+    }
+
+    @Test
+    void updatesIncrementallyAfterLoad() {
+        matrix.load(likes -> likes.accept(10, 1));
+
+        assertThat(matrix.add(2, 10)).isTrue();
+        assertThat(matrix.add(2, 10)).isFalse();
+        assertThat(matrix.remove(1, 10)).isTrue();
+        assertThat(matrix.remove(1, 10)).isFalse();
+
+        assertThat(matrix.usersWhoLiked(10)).containsExactly(2);
+        assertThat(matrix.filmsLikedBy(1)).isEmpty();
+
+        matrix.add(2, 20);
+        matrix.removeFilm(10);
+        assertThat(matrix.filmsLikedBy(2)).containsExactly(20);
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PopularityIndexTest {
+
+    private final PopularityIndex index = new PopularityIndex();
+
+    @Test
+    void ordersByLikesThenByName() {
+        index.put(1, "Б", 0);
+        index.put(2, "А", 0);
+        index.put(3, "В", 0);
+
+        assertThat(index.top(10)).containsExactly(2, 1, 3);
+
+        index.adjustLikes(3, 1);
+        index.adjustLikes(1, 1);
+        index.adjustLikes(1, 1);
+
+        assertThat(index.top(2)).containsExactly(1, 3);
+        assertThat(index.top(10)).containsExactly(1, 3, 2);
+    }
+
+    @Test
+    void renameAndRemoveKeepRankingConsistent() {
+        index.put(1, "Б", 2);
+        index.put(2, "В", 2);
+
+        index.rename(2, "А");
+        assertThat(index.top(10)).containsExactly(2, 1);
+
+        index.remove(2);
+        index.adjustLikes(2, 5); // удалённый фильм не возвращается в рейтинг
+        index.rename(2, "Я");
+        assertThat(index.top(10)).containsExactly(1);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void renameToSameNameKeepsEntry() {
+        index.put(1, "А", 3);
+        index.rename(1, "А");
+
+        assertThat(index.top(10)).containsExactly(1);
+    }
+
+    @Test
+    void filtersByGenreAndYearFollowLikes() {
+        index.put(1, "А", 0, 1999, new int[]{1, 2});
+        index.put(2, "Б", 0, 1999, new int[]{2});
+        index.put(3, "В", 0, 2000, new int[]{1});
+        index.put(4, "Г", 0, null, new int[]{1});
+
+        assertThat(index.top(10, 1, null)).containsExactly(1, 3, 4);
+        assertThat(index.top(10, null, 1999)).containsExactly(1, 2);
+        assertThat(index.top(10, 1, 1999)).containsExactly(1);
+        assertThat(index.top(10, 3, null)).isEmpty();
+        assertThat(index.top(10, 1, 1950)).isEmpty();
+
+        index.adjustLikes(2, 1);
+        index.adjustLikes(4, 2);
+
+        assertThat(index.top(10, 2, null)).containsExactly(2, 1);
+        assertThat(index.top(1, 1, null)).containsExactly(4);
+        assertThat(index.top(10, 2, 1999)).containsExactly(2, 1);
+    }
+
+    @Test
+    void filmUpdateMovesItBetweenGenresAndYears() {
+        Film film = new Film();
+        film.setId(1);
+        film.setName("А");
+        film.setReleaseDate(LocalDate.of(1999, 1, 1));
+        film.setGenres(List.of(new Genre(1, null)));
+        index.put(film, 5);
+        index.put(2, "Б", 0, 1999, new int[]{2});
+
+        // То же место в рейтинге, но другие жанр и год
+        film.setReleaseDate(LocalDate.of(2001, 1, 1));
+        film.setGenres(List.of(new Genre(2, null), new Genre(2, null)));
+        index.update(film);
+
+        assertThat(index.top(10, 1, null)).isEmpty();
+        assertThat(index.top(10, null, 1999)).containsExactly(2);
+        assertThat(index.top(10, 2, 2001)).containsExactly(1);
+        assertThat(index.top(10)).containsExactly(1, 2);
+
+        index.remove(1);
+        assertThat(index.top(10, 2, null)).containsExactly(2);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntFloatMapTest {
+
+    @Test
+    void keepsMaximumPerKeyAcrossResizes() {
+        IntFloatMap map = new IntFloatMap();
+        for (int key = 1; key <= 1000; key++) {
+            map.putMax(key, key);
+            map.putMax(key, 1f); // меньшее значение не перезаписывает большее
+        }
+
+        assertThat(map.size()).isEqualTo(1000);
+        assertThat(map.get(500)).isEqualTo(500f);
+        assertThat(map.containsKey(1001)).isFalse();
+        assertThat(map.get(1001)).isNaN();
+    }
+
+    @Test
+    void replaceAllAndForEachVisitEveryEntry() {
+        IntFloatMap map = new IntFloatMap(2);
+        map.putMax(7, 1f);
+        map.putMax(3, 2f);
+        map.replaceAll((key, value) -> value + key);
+
+        Map<Integer, Float> copy = new HashMap<>();
+        map.forEach(copy::put);
+        assertThat(copy).containsExactlyInAnyOrderEntriesOf(Map.of(7, 8f, 3, 5f));
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntSetTest {
+
+    @Test
+    void behavesLikeHashSetUnderRandomOperations() {
+        IntSet set = new IntSet();
+        Set<Integer> expected = new HashSet<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(5_000) - 100; // в том числе ноль и отрицательные
+            if (random.nextInt(3) == 0) {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            } else {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            }
+        }
+
+        assertThat(set).hasSize(expected.size()).isEqualTo(expected);
+        for (int value = -100; value < 4_900; value++) {
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+    }
+
+    @Test
+    void unionAndIntersection() {
+        IntSet a = IntSet.of(0, 1, 2, 3, 50);
+        IntSet b = IntSet.of(2, 3, 4, 50, 60);
+
+        assertThat(a.union(b)).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 50, 60);
+        assertThat(a.intersection(b)).containsExactlyInAnyOrder(2, 3, 50);
+        assertThat(b.intersection(a)).containsExactlyInAnyOrder(2, 3, 50);
+        assertThat(a.intersection(new IntSet())).isEmpty();
+    }
+
+    @Test
+    void serializesAsSortedJsonArray() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        Film film = new Film();
+        film.setName("Film");
+        film.getLikes().add(30);
+        film.getLikes().add(10);
+        film.getLikes().add(20);
+
+        String json = objectMapper.writeValueAsString(film);
+        assertThat(json).contains("\"likes\":[10,20,30]");
+
+        Film parsed = objectMapper.readValue(json, Film.class);
+        assertThat(parsed.getLikes()).isInstanceOf(IntSet.class).containsExactlyInAnyOrder(10, 20, 30);
+    }
+
+    @Test
+    void concurrentAddsAndRemovesOfSameValuesAgree() throws Exception {
+        IntSet set = new IntSet();
+        int threads = 4;
+        int values = 20_000;
+        AtomicInteger added = new AtomicInteger();
+        AtomicInteger removed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    // Все потоки вставляют одни и те же значения, чётные сразу удаляют: таблица
+                    // несколько раз перестраивается под вставками и копит надгробия
+                    for (int value = 1; value <= values; value++) {
+                        if (set.add(value)) {
+                            added.incrementAndGet();
+                        }
+                        if (value % 2 == 0 && set.remove(value)) {
+                            removed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Каждая вставка и каждое удаление засчитаны ровно одному потоку
+        assertThat(added.get() - removed.get()).isEqualTo(set.size()).isEqualTo(values / 2);
+        assertThat(set.toIntArray()).hasSize(values / 2).doesNotHaveDuplicates();
+        for (int value = 1; value <= values; value++) {
+            assertThat(set.contains(value)).isEqualTo(value % 2 == 1);
+        }
+    }
+}